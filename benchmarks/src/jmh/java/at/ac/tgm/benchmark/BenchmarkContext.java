@@ -0,0 +1,74 @@
+package at.ac.tgm.benchmark;
+
+import at.ac.tgm.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Startet die vollständige Anwendung (ohne Webserver) auf einer H2-In-Memory-Datenbank und dem eingebetteten LDAP.
+ * Da JMH jede Parameterkombination in einem eigenen JVM-Fork ausführt, gibt es genau einen Kontext pro Fork.
+ */
+public final class BenchmarkContext {
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkContext() {
+    }
+
+    public static synchronized ConfigurableApplicationContext get() {
+        if (context == null) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+            properties.put("spring.datasource.driverClassName", "org.h2.Driver");
+            properties.put("spring.datasource.username", "sa");
+            properties.put("spring.datasource.password", "");
+            properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+            properties.put("spring.jpa.show-sql", "false");
+            properties.put("spring.main.banner-mode", "off");
+            properties.put("logging.level.root", "WARN");
+            properties.put("logging.level.org.springframework.security", "WARN");
+            properties.put("logging.level.org.springframework.ldap", "WARN");
+            properties.put("ldap.embedded.port", "10390");
+            properties.put("ldap.embedded.students", "200");
+            properties.put("ldap.embedded.teachers", "50");
+            properties.put("admins", "");
+
+            context = new SpringApplicationBuilder(Application.class)
+                    .web(WebApplicationType.NONE)
+                    .profiles("ldap-embedded")
+                    .properties(properties)
+                    .run();
+
+            // Benchmark-Threads sind nicht die Setup-Threads, daher gilt der Security-Kontext global
+            SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+            SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(
+                    "benchmark", null, "ROLE_ADMIN", "ROLE_TEACHER", "ROLE_STUDENT"));
+        }
+        return context;
+    }
+
+    public static <T> T getBean(Class<T> type) {
+        return get().getBean(type);
+    }
+
+    /**
+     * Führt den Aufruf in einer Transaktion aus, wie es im Webkontext durch Open-Session-In-View der Fall ist.
+     */
+    public static <T> T inTransaction(Supplier<T> supplier) {
+        return getBean(TransactionTemplate.class).execute(status -> supplier.get());
+    }
+
+    public static synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+}
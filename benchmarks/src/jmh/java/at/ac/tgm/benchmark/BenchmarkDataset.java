@@ -0,0 +1,209 @@
+package at.ac.tgm.benchmark;
+
+import at.ac.tgm.entity.Betreuer;
+import at.ac.tgm.entity.Diplomarbeit;
+import at.ac.tgm.model.*;
+import at.ac.tgm.repository.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Erzeugt reproduzierbare Datensätze in beliebiger Größe für die Benchmarks.
+ */
+public final class BenchmarkDataset {
+    public static final int STUDENTS_PER_CLASS = 25;
+    public static final String[][] SUBJECTS = {
+            {"AM", "Pflichtgegenstände", "Angewandte Mathematik"},
+            {"D", "Pflichtgegenstände", "Deutsch"},
+            {"E", "Pflichtgegenstände", "Englisch"},
+            {"SEW", "Pflichtgegenstände", "Softwareentwicklung"},
+            {"ITP", "Pflichtgegenstände", "Informationstechnische Projekte"},
+            {"INSY", "Pflichtgegenstände", "Informationssysteme"},
+            {"NWT", "Pflichtgegenstände", "Netzwerktechnik"},
+            {"SYT", "Pflichtgegenstände", "Systemtechnik"},
+            {"GGP", "Pflichtgegenstände", "Geografie, Geschichte und Politische Bildung"},
+            {"NW", "Pflichtgegenstände", "Naturwissenschaften"},
+            {"BESP", "Pflichtgegenstände", "Bewegung und Sport"},
+            {"KV", "Allgemeines", "Klassenvorstand"}};
+    public static final String[] TITLES = {"Mag.", "Dr.", "DI", "Ing.", "MSc", "BEd", "Dipl.-Ing.", "Prof", "Mag.a", "DI(FH)"};
+    private static final String[] FIRST_NAMES = {"Anna", "Lukas", "Sophie", "David", "Lena", "Tobias", "Laura", "Simon", "Julia", "Florian"};
+    private static final String[] LAST_NAMES = {"GRUBER", "HUBER", "WAGNER", "MÜLLER", "PICHLER", "STEINER", "MOSER", "MAYER", "HOFER", "BAUER"};
+    private static final String[] STATUS = {"eingereicht", "angenommen", "abgelehnt", "in Bearbeitung", "abgeschlossen"};
+
+    private BenchmarkDataset() {
+    }
+
+    /**
+     * Legt Klassen, Fächer, Lehrer, Unterrichte, Schüler und für etwa die Hälfte der Schüler-Unterricht-Paare Ampeln an.
+     *
+     * @return Die ID des Lehrers mit den meisten Unterrichten.
+     */
+    public static long seedEis(int students) {
+        // Eine Transaktion, damit Lehrer/Klassen beim Anlegen der abhängigen Entitäten nicht detached sind
+        return BenchmarkContext.inTransaction(() -> doSeedEis(students));
+    }
+
+    private static long doSeedEis(int students) {
+        Random random = new Random(42);
+        HitclassRepository hitclassRepository = BenchmarkContext.getBean(HitclassRepository.class);
+        SubjectRepository subjectRepository = BenchmarkContext.getBean(SubjectRepository.class);
+        TeacherRepository teacherRepository = BenchmarkContext.getBean(TeacherRepository.class);
+        LessonRepository lessonRepository = BenchmarkContext.getBean(LessonRepository.class);
+        StudentRepository studentRepository = BenchmarkContext.getBean(StudentRepository.class);
+        AmpelRepository ampelRepository = BenchmarkContext.getBean(AmpelRepository.class);
+
+        int classCount = Math.max(1, students / STUDENTS_PER_CLASS);
+        int teacherCount = Math.max(5, classCount * 2);
+
+        List<Teacher> teachers = new ArrayList<>();
+        for (int i = 0; i < teacherCount; i++) {
+            teachers.add(Teacher.builder().name(teacherName(i)).lessons(new HashSet<>()).build());
+        }
+        teachers = teacherRepository.saveAll(teachers);
+
+        List<Subject> subjects = new ArrayList<>();
+        for (String[] subject : SUBJECTS) {
+            subjects.add(Subject.builder().kurzbezeichnung(subject[0]).gegenstandsart(subject[1]).langbezeichnung(subject[2]).build());
+        }
+        subjects = subjectRepository.saveAll(subjects);
+
+        List<Hitclass> classes = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            classes.add(Hitclass.builder()
+                    .name((i % 5 + 1) + String.valueOf((char) ('A' + (i / 5) % 26)) + "HIT" + (i / 130 == 0 ? "" : i / 130))
+                    .klassenvorstand(teachers.get(i % teacherCount))
+                    .students(new HashSet<>())
+                    .lessons(new HashSet<>())
+                    .build());
+        }
+        classes = hitclassRepository.saveAll(classes);
+
+        List<Lesson> lessons = new ArrayList<>();
+        for (int c = 0; c < classCount; c++) {
+            for (int s = 0; s < subjects.size(); s++) {
+                // Lehrer 0 unterrichtet in jeder Klasse, damit er die meisten Unterrichte hat
+                Teacher teacher = s == 0 ? teachers.get(0) : teachers.get((c * subjects.size() + s) % teacherCount);
+                lessons.add(Lesson.builder().subject(subjects.get(s)).hitclass(classes.get(c)).teachers(new HashSet<>(Set.of(teacher))).build());
+            }
+        }
+        lessons = lessonRepository.saveAll(lessons);
+
+        List<Student> studentList = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            studentList.add(Student.builder()
+                    .vorname(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)])
+                    .nachname(LAST_NAMES[random.nextInt(LAST_NAMES.length)])
+                    .studentKennzahl(String.valueOf(100_000 + i))
+                    .hitclass(classes.get(i % classCount))
+                    .build());
+        }
+        studentList = studentRepository.saveAll(studentList);
+
+        List<Ampel> ampeln = new ArrayList<>();
+        AmpelFarbe[] farben = AmpelFarbe.values();
+        for (Student student : studentList) {
+            int c = classes.indexOf(student.getHitclass());
+            for (int s = 0; s < subjects.size(); s++) {
+                if (random.nextBoolean()) {
+                    Lesson lesson = lessons.get(c * subjects.size() + s);
+                    Ampel ampel = new Ampel();
+                    ampel.setLesson(lesson);
+                    ampel.setStudent(student);
+                    ampel.setTeacher(lesson.getTeachers().iterator().next());
+                    ampel.setFarbe(farben[random.nextInt(farben.length)]);
+                    ampel.setBemerkung("Bemerkung " + random.nextInt(1000));
+                    ampel.setUpdatedAt(LocalDateTime.of(2025, 1, 1, 8, 0).plusMinutes(random.nextInt(100_000)));
+                    ampeln.add(ampel);
+                }
+            }
+        }
+        ampelRepository.saveAll(ampeln);
+        return teachers.get(0).getId();
+    }
+
+    /**
+     * Erzeugt Zeilen im Format des EIS-CSV-Exports (16 Spalten, Trennzeichen ";").
+     */
+    public static List<String> csvLines(int students) {
+        Random random = new Random(42);
+        int classCount = Math.max(1, students / STUDENTS_PER_CLASS);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            String klasse = (i % classCount % 5 + 1) + "AHIT";
+            for (int s = 0; s < SUBJECTS.length; s++) {
+                String lehrer = titledTeacherName(random, (i % classCount * SUBJECTS.length + s) % Math.max(5, classCount * 2))
+                        + (random.nextInt(4) == 0 ? ", " + titledTeacherName(random, random.nextInt(50)) : "");
+                lines.add(String.join(";", "2025", klasse, "", "", String.valueOf(100_000 + i),
+                        LAST_NAMES[i % LAST_NAMES.length], FIRST_NAMES[i % FIRST_NAMES.length],
+                        "", "", "", "", SUBJECTS[s][1], "", SUBJECTS[s][0], SUBJECTS[s][2], lehrer));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Lehrernamen wie im CSV-Export, mit zufälligen akademischen Titeln.
+     */
+    public static String titledTeacherName(Random random, int index) {
+        StringBuilder name = new StringBuilder();
+        for (int t = random.nextInt(3); t > 0; t--) {
+            name.append(TITLES[random.nextInt(TITLES.length)]).append(' ');
+        }
+        name.append(teacherName(index));
+        if (random.nextInt(3) == 0) {
+            name.append(", ").append(TITLES[random.nextInt(TITLES.length)]);
+        }
+        return name.toString();
+    }
+
+    public static void seedBetreuer(int count) {
+        Random random = new Random(42);
+        BetreuerRepository betreuerRepository = BenchmarkContext.getBean(BetreuerRepository.class);
+        List<Betreuer> betreuer = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String vorname = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String nachname = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            int maxProjekte = 1 + random.nextInt(5);
+            betreuer.add(Betreuer.builder()
+                    .samAccountName("betreuer" + i)
+                    .vorname(vorname)
+                    .nachname(nachname)
+                    .email("betreuer" + i + "@tgm.ac.at")
+                    .displayName(vorname + " " + nachname)
+                    .status(random.nextBoolean() ? "verfügbar" : "voll")
+                    .maxProjekte(maxProjekte)
+                    .vergebeneProjekte(random.nextInt(maxProjekte + 1))
+                    .build());
+        }
+        betreuerRepository.saveAll(betreuer);
+    }
+
+    public static void seedDiplomarbeiten(int count) {
+        Random random = new Random(42);
+        DiplomarbeitRepository diplomarbeitRepository = BenchmarkContext.getBean(DiplomarbeitRepository.class);
+        List<Diplomarbeit> diplomarbeiten = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Diplomarbeit diplomarbeit = new Diplomarbeit();
+            diplomarbeit.setTitel("Diplomarbeit " + i + " " + SUBJECTS[i % SUBJECTS.length][2]);
+            diplomarbeit.setBeschreibung("Beschreibung der Diplomarbeit " + i + " zum Thema " + SUBJECTS[random.nextInt(SUBJECTS.length)][2]);
+            diplomarbeit.setStatus(STATUS[random.nextInt(STATUS.length)]);
+            diplomarbeit.setStartdatum(LocalDate.of(2024, 9, 1).plusDays(random.nextInt(365)));
+            diplomarbeit.setEnddatum(diplomarbeit.getStartdatum().plusMonths(9));
+            diplomarbeit.setBetreuerSamAccountName("betreuer" + random.nextInt(Math.max(1, count / 5)));
+            Set<String> mitarbeiter = new HashSet<>();
+            for (int m = 0; m < 1 + random.nextInt(4); m++) {
+                mitarbeiter.add("schueler" + random.nextInt(count * 3));
+            }
+            diplomarbeit.setMitarbeiterSamAccountNames(mitarbeiter);
+            diplomarbeiten.add(diplomarbeit);
+        }
+        diplomarbeitRepository.saveAll(diplomarbeiten);
+    }
+
+    private static String teacherName(int index) {
+        return FIRST_NAMES[index % FIRST_NAMES.length] + " " + LAST_NAMES[(index / FIRST_NAMES.length) % LAST_NAMES.length]
+                + (index >= FIRST_NAMES.length * LAST_NAMES.length ? String.valueOf(index) : "");
+    }
+}
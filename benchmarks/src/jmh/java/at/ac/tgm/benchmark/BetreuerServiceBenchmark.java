@@ -0,0 +1,53 @@
+package at.ac.tgm.benchmark;
+
+import at.ac.tgm.entity.Betreuer;
+import at.ac.tgm.service.BetreuerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suche und Exporte (CSV, Excel, PDF) der Betreuerliste.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BetreuerServiceBenchmark {
+    @Param({"100", "1000"})
+    public int size;
+
+    private BetreuerService betreuerService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        betreuerService = BenchmarkContext.getBean(BetreuerService.class);
+        BenchmarkDataset.seedBetreuer(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public List<Betreuer> searchBetreuer() {
+        return betreuerService.searchBetreuer("er", "nachname", "asc", "verfügbar");
+    }
+
+    @Benchmark
+    public byte[] exportCsv() throws IOException {
+        return betreuerService.exportBetreuerListAsCsv(null, "nachname", "asc", null);
+    }
+
+    @Benchmark
+    public byte[] exportExcel() throws IOException {
+        return betreuerService.exportBetreuerListAsExcel(null, "nachname", "asc", null);
+    }
+
+    @Benchmark
+    public byte[] exportPdf() throws IOException {
+        return betreuerService.exportBetreuerListAsPdf(null, "nachname", "asc", null);
+    }
+}
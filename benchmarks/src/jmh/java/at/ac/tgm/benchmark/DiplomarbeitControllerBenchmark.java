@@ -0,0 +1,43 @@
+package at.ac.tgm.benchmark;
+
+import at.ac.tgm.controller.DiplomarbeitController;
+import at.ac.tgm.dto.DiplomarbeitResponseDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter-, Such- und Sortier-Pipeline von {@link DiplomarbeitController#getAllProjects}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DiplomarbeitControllerBenchmark {
+    @Param({"100", "1000"})
+    public int size;
+
+    private DiplomarbeitController diplomarbeitController;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        diplomarbeitController = BenchmarkContext.getBean(DiplomarbeitController.class);
+        BenchmarkDataset.seedDiplomarbeiten(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<DiplomarbeitResponseDTO>> getAllProjectsUnfiltered() {
+        return diplomarbeitController.getAllProjects(null, null, null, "projektId", "asc", null);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<DiplomarbeitResponseDTO>> getAllProjectsFiltered() {
+        return diplomarbeitController.getAllProjects("software", "2024-10-01", "2025-03-31", "titel", "desc", "angenommen");
+    }
+}
@@ -0,0 +1,48 @@
+package at.ac.tgm.benchmark;
+
+import at.ac.tgm.config.JacksonConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import javax.naming.InvalidNameException;
+import javax.naming.Name;
+import javax.naming.ldap.LdapName;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisierung mit den eigenen Serializern aus {@link JacksonConfig} (Name, LocalDateTime, LocalDate).
+ * Benötigt keinen Spring-Kontext.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JacksonConfigBenchmark {
+    @Param({"100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Row> rows;
+
+    public record Row(Name dn, String name, LocalDateTime updatedAt, LocalDate startdatum) {
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws InvalidNameException {
+        objectMapper = new JacksonConfig().registerObjectMapper();
+        rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(new LdapName("CN=schueler" + i + ",OU=HIT,OU=Schueler,OU=People,OU=tgm,DC=tgm,DC=ac,DC=at"),
+                    "Schüler " + i, LocalDateTime.of(2025, 1, 1, 8, 0).plusMinutes(i), LocalDate.of(2024, 9, 1).plusDays(i % 365)));
+        }
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(rows);
+    }
+}
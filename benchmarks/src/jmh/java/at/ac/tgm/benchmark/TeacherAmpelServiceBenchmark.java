@@ -0,0 +1,38 @@
+package at.ac.tgm.benchmark;
+
+import at.ac.tgm.dto.AmpelDto;
+import at.ac.tgm.service.TeacherAmpelService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ampel-Matrix eines Lehrers ({@link TeacherAmpelService#getAllAmpelForTeacher(Long)}) bei wachsender Schülerzahl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TeacherAmpelServiceBenchmark {
+    @Param({"500", "2000"})
+    public int size;
+
+    private TeacherAmpelService teacherAmpelService;
+    private long teacherId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        teacherAmpelService = BenchmarkContext.getBean(TeacherAmpelService.class);
+        teacherId = BenchmarkDataset.seedEis(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public List<AmpelDto> getAllAmpelForTeacher() {
+        return BenchmarkContext.inTransaction(() -> teacherAmpelService.getAllAmpelForTeacher(teacherId));
+    }
+}
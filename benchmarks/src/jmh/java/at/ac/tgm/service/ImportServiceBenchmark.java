@@ -0,0 +1,72 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.benchmark.BenchmarkContext;
+import at.ac.tgm.benchmark.BenchmarkDataset;
+import at.ac.tgm.dto.ImportSummaryDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV-Import des EIS: Titelbereinigung ({@link ImportService#removeTitles(String)}), Import einzelner Zeilen und ganzer Dateien.
+ * Liegt im Paket des Service, da {@code removeTitles} nicht öffentlich ist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImportServiceBenchmark {
+    @Param({"500", "2000"})
+    public int size;
+
+    private ImportService importService;
+    private List<String> lines;
+    private String csv;
+    private List<String> teacherNames;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        importService = BenchmarkContext.getBean(ImportService.class);
+        lines = BenchmarkDataset.csvLines(size);
+        csv = String.join("\n", lines);
+        Random random = new Random(42);
+        teacherNames = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            teacherNames.add(BenchmarkDataset.titledTeacherName(random, i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public void removeTitles(Blackhole blackhole) {
+        for (String name : teacherNames) {
+            blackhole.consume(importService.removeTitles(name));
+        }
+    }
+
+    /**
+     * Jede Zeile wird nur beim ersten Durchlauf neu angelegt, danach misst der Benchmark den Lookup-Pfad.
+     */
+    @Benchmark
+    public void importCsvLine() {
+        importService.importCsvLine(lines.get(next++ % lines.size()));
+    }
+
+    /**
+     * Ganze Datei über den gebündelten Import; ab dem zweiten Durchlauf existieren alle Datensätze bereits.
+     */
+    @Benchmark
+    public ImportSummaryDto importCsv() throws IOException {
+        return importService.importCsv(new StringReader(csv));
+    }
+}
@@ -0,0 +1,86 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.benchmark.BenchmarkDataset;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Titelbereinigung der Lehrernamen: ursprüngliche regex-basierte Variante als Vergleich, vorab normalisierte
+ * Titelmenge ohne und mit Zwischenspeicher. {@code size} ist die Anzahl verschiedener Lehrer, jeder Durchlauf
+ * bereinigt 1000 Namen wie in einem CSV-Export, in dem dieselben Lehrer mehrfach vorkommen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TeacherNameNormalizerBenchmark {
+    private static final int NAMES = 1000;
+
+    @Param({"50", "250"})
+    public int size;
+
+    private TeacherNameNormalizer normalizer;
+    private List<String> names;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        normalizer = new TeacherNameNormalizer();
+        Random random = new Random(42);
+        List<String> teachers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            teachers.add(BenchmarkDataset.titledTeacherName(random, i));
+        }
+        names = new ArrayList<>();
+        for (int i = 0; i < NAMES; i++) {
+            names.add(teachers.get(random.nextInt(teachers.size())));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(legacyRemoveTitles(name));
+        }
+    }
+
+    @Benchmark
+    public void stripTitles(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(normalizer.stripTitles(name));
+        }
+    }
+
+    @Benchmark
+    public void removeTitlesCached(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(normalizer.removeTitles(name));
+        }
+    }
+
+    /**
+     * Die frühere Implementierung aus {@code ImportService}, nur als Vergleichswert.
+     */
+    private static String legacyRemoveTitles(String fullName) {
+        String[] tokens = fullName.split("\\s+");
+        List<String> filtered = new ArrayList<>();
+        for (String token : tokens) {
+            String cleaned = token.replaceAll("[.,]+$", "");
+            String normalized = cleaned.replace(".", "").replace("-", "").toLowerCase();
+            boolean isTitle = false;
+            for (String title : TeacherNameNormalizer.KNOWN_TITLES) {
+                if (normalized.equals(title.replace(".", "").replace("-", "").toLowerCase())) {
+                    isTitle = true;
+                    break;
+                }
+            }
+            if (!isTitle) {
+                filtered.add(token);
+            }
+        }
+        return String.join(" ", filtered).trim();
+    }
+}
@@ -0,0 +1,81 @@
+package at.ac.tgm.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sammelt die Antwortzeiten aller Anfragen je Endpunkt und berechnet daraus Durchsatz und Perzentile.
+ */
+public class LatencyRecorder {
+    private final Map<String, Samples> samplesByEndpoint = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long nanos, boolean success) {
+        samplesByEndpoint.computeIfAbsent(endpoint, key -> new Samples()).add(nanos, success);
+    }
+
+    /**
+     * Verwirft alle bisherigen Messwerte, z.B. nach der Aufwärmphase.
+     */
+    public void reset() {
+        samplesByEndpoint.clear();
+    }
+
+    /**
+     * @param elapsed Die Dauer der Messphase, Basis für den Durchsatz.
+     * @return Ein Eintrag pro Endpunkt, nach Anzahl der Anfragen absteigend sortiert.
+     */
+    public List<EndpointReport> report(Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        List<EndpointReport> reports = new ArrayList<>();
+        samplesByEndpoint.forEach((endpoint, samples) -> reports.add(samples.report(endpoint, seconds)));
+        reports.sort(Comparator.comparingLong(EndpointReport::requests).reversed());
+        return reports;
+    }
+
+    /**
+     * Kennzahlen eines Endpunkts, Zeiten in Millisekunden.
+     */
+    public record EndpointReport(String endpoint, long requests, long errors, double throughput,
+                                 double p50, double p95, double p99, double max) {
+    }
+
+    private static class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long value, boolean success) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized EndpointReport report(String endpoint, double seconds) {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            return new EndpointReport(endpoint, size, errors, size / seconds,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+
+        /**
+         * Nearest-Rank-Perzentil in Millisekunden.
+         */
+        private static double percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package at.ac.tgm.loadtest;
+
+import at.ac.tgm.Application;
+import at.ac.tgm.ad.embedded.SchoolDirectoryGenerator;
+import at.ac.tgm.loadtest.LatencyRecorder.EndpointReport;
+import at.ac.tgm.loadtest.SchoolYearDataset.Person;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * End-to-End-Lasttest: Startet den vollständigen Server mit H2 und dem eingebetteten LDAP auf einem freien Port,
+ * befüllt ein Schuljahr ({@link SchoolYearSeeder}) und lässt gleichzeitig Lehrer, Schüler und Admins
+ * ({@link UserScenario}) über die echten REST-Endpunkte arbeiten. Pro Endpunkt werden Durchsatz sowie
+ * p50/p95/p99 ausgegeben und als JSON gespeichert, damit Ergebnisse zwischen Versionen verglichen werden können.
+ * <p>
+ * Aufruf über {@code ./gradlew :benchmarks:loadTest}, Parameter siehe {@link LoadTestConfig}.
+ */
+public final class LoadTest {
+    private static final String ADMIN = SchoolDirectoryGenerator.TEST_TEACHER;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        try (ConfigurableApplicationContext context = start(config)) {
+            Environment env = context.getEnvironment();
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            String password = env.getProperty("ldap.embedded.user-password", "password");
+            SchoolYearDataset dataset = new SchoolYearDataset(env.getProperty("ldap.embedded.root", "DC=tgm,DC=ac,DC=at"),
+                    env.getRequiredProperty("spring.ldap.base"), env.getRequiredProperty("spring.ldap.domain"),
+                    config.seed(), config.students(), config.teachers());
+
+            System.out.printf("Seeding school year: %d students (%d HIT), %d teachers%n",
+                    dataset.students().size(), dataset.hitStudents().size(), dataset.teachers().size());
+            LatencyRecorder seedRecorder = new LatencyRecorder();
+            LoadTestClient seedClient = new LoadTestClient(baseUrl, seedRecorder);
+            seedClient.login(ADMIN, password);
+            SchoolYearSeeder seeder = new SchoolYearSeeder(context, dataset, seedClient, config.seed());
+            seeder.seed();
+            seeder.getDurations().forEach((step, millis) -> System.out.printf("  %-24s %8d ms%n", step, millis));
+
+            LatencyRecorder recorder = new LatencyRecorder();
+            List<UserScenario> scenarios = scenarios(config, dataset);
+            Duration elapsed = run(config, baseUrl, password, recorder, scenarios);
+
+            List<EndpointReport> reports = recorder.report(elapsed);
+            print(reports, elapsed);
+            write(config, seeder.getDurations(), seedRecorder.report(Duration.ofMillis(
+                    Math.max(1, seeder.getDurations().values().stream().mapToLong(Long::longValue).sum()))), reports, elapsed);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(LoadTestConfig config) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driverClassName", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.springframework.security", "WARN");
+        properties.put("logging.level.org.springframework.ldap", "WARN");
+        properties.put("logging.level.org.springframework.boot.autoconfigure.security", "WARN");
+        properties.put("ldap.embedded.port", "10391");
+        properties.put("ldap.embedded.students", String.valueOf(config.students()));
+        properties.put("ldap.embedded.teachers", String.valueOf(config.teachers()));
+        properties.put("ldap.embedded.seed", String.valueOf(config.seed()));
+        properties.put("admins", ADMIN);
+
+        return new SpringApplicationBuilder(Application.class)
+                .profiles("ldap-embedded")
+                .properties(properties)
+                .run();
+    }
+
+    private static List<UserScenario> scenarios(LoadTestConfig config, SchoolYearDataset dataset) {
+        Random random = new Random(config.seed());
+        List<UserScenario> scenarios = new ArrayList<>();
+        List<Person> teachers = new ArrayList<>(dataset.teachingTeachers());
+        List<Person> students = new ArrayList<>(dataset.hitStudents());
+        Collections.shuffle(teachers, random);
+        Collections.shuffle(students, random);
+        addScenarios(scenarios, config.teacherUsers(), teachers, random, UserScenario.Teacher::new);
+        addScenarios(scenarios, config.studentUsers(), students, random, UserScenario.Student::new);
+        addScenarios(scenarios, config.adminUsers(), List.of(dataset.testTeacher()), random, UserScenario.Admin::new);
+        return scenarios;
+    }
+
+    /**
+     * Gibt es weniger Benutzer als Sitzungen, teilen sich mehrere Sitzungen einen Benutzer.
+     */
+    private static void addScenarios(List<UserScenario> scenarios, int count, List<Person> users, Random random,
+                                     BiFunction<Person, Random, UserScenario> factory) {
+        for (int i = 0; i < count; i++) {
+            scenarios.add(factory.apply(users.get(i % users.size()), new Random(random.nextLong())));
+        }
+    }
+
+    private static Duration run(LoadTestConfig config, String baseUrl, String password, LatencyRecorder recorder,
+                                List<UserScenario> scenarios) throws InterruptedException {
+        System.out.printf("Running %d teacher, %d student and %d admin sessions: %ds warmup, %ds measurement%n",
+                config.teacherUsers(), config.studentUsers(), config.adminUsers(), config.warmup(), config.duration());
+        AtomicBoolean running = new AtomicBoolean(true);
+        long measurementStart;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (UserScenario scenario : scenarios) {
+                executor.submit(() -> {
+                    LoadTestClient client = new LoadTestClient(baseUrl, recorder);
+                    try {
+                        client.login(scenario.getUser().samAccountName(), password);
+                    } catch (IllegalStateException e) {
+                        System.err.println(e.getMessage());
+                        return null;
+                    }
+                    while (running.get()) {
+                        scenario.step(client);
+                        if (config.thinkTime() > 0) {
+                            Thread.sleep(config.thinkTime());
+                        }
+                    }
+                    return null;
+                });
+            }
+            Thread.sleep(config.warmup() * 1000L);
+            recorder.reset();
+            measurementStart = System.nanoTime();
+            Thread.sleep(config.duration() * 1000L);
+            running.set(false);
+        }
+        return Duration.ofNanos(System.nanoTime() - measurementStart);
+    }
+
+    private static void print(List<EndpointReport> reports, Duration elapsed) {
+        System.out.printf("%n%-60s %8s %7s %9s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointReport report : reports) {
+            System.out.printf("%-60s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", report.endpoint(), report.requests(), report.errors(),
+                    report.throughput(), report.p50(), report.p95(), report.p99(), report.max());
+        }
+        long total = reports.stream().mapToLong(EndpointReport::requests).sum();
+        System.out.printf("%nTotal: %d requests in %ds (%.1f req/s)%n", total, elapsed.toSeconds(), total / (elapsed.toNanos() / 1e9));
+    }
+
+    private static void write(LoadTestConfig config, Map<String, Long> seedDurations, List<EndpointReport> seedReports,
+                              List<EndpointReport> reports, Duration elapsed) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", LocalDateTime.now().toString());
+        result.put("config", config);
+        result.put("durationSeconds", elapsed.toNanos() / 1e9);
+        result.put("seedingMillis", seedDurations);
+        result.put("seedingEndpoints", seedReports);
+        result.put("endpoints", reports);
+        Files.createDirectories(config.report().toAbsolutePath().getParent());
+        LoadTestClient.MAPPER.writerWithDefaultPrettyPrinter().writeValue(config.report().toFile(), result);
+        System.out.println("Report written to " + config.report().toAbsolutePath());
+    }
+}
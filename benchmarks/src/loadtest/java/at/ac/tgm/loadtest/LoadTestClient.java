@@ -0,0 +1,129 @@
+package at.ac.tgm.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Eine Benutzersitzung gegen den laufenden Server. Jede Instanz hat eigene Cookies (und damit eine eigene Session),
+ * alle Anfragen werden mit ihrer Antwortzeit im {@link LatencyRecorder} erfasst.
+ */
+public class LoadTestClient {
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final LatencyRecorder recorder;
+
+    public LoadTestClient(String baseUrl, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .cookieHandler(new CookieManager(null, CookiePolicy.ACCEPT_ALL))
+                .build();
+    }
+
+    /**
+     * Meldet den Benutzer über {@code /auth/login} an, die Session wird im Cookie gehalten.
+     */
+    public void login(String username, String password) {
+        Response response = postJson("POST /auth/login", "/auth/login", Map.of("username", username, "password", password));
+        if (!response.ok()) {
+            throw new IllegalStateException("Login of " + username + " failed with " + response.status() + ": " + response.body());
+        }
+    }
+
+    public Response get(String endpoint, String path) {
+        return send(endpoint, request(path).GET());
+    }
+
+    public Response put(String endpoint, String path) {
+        return send(endpoint, request(path).PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    public Response postJson(String endpoint, String path, Object body) {
+        return send(endpoint, request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body))));
+    }
+
+    /**
+     * Sendet ein {@code multipart/form-data}-Formular mit einer Datei im Feld {@code file} und weiteren Textfeldern.
+     */
+    public Response postMultipart(String endpoint, String path, Map<String, String> fields, String fileName, byte[] content) {
+        String boundary = "----loadtest" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        fields.forEach((name, value) -> write(body, "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n"));
+        write(body, "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n");
+        body.writeBytes(content);
+        write(body, "\r\n--" + boundary + "--\r\n");
+        return send(endpoint, request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60));
+    }
+
+    private Response send(String endpoint, HttpRequest.Builder builder) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            Response result = new Response(response.statusCode(), response.body());
+            recorder.record(endpoint, System.nanoTime() - start, result.ok());
+            return result;
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return new Response(-1, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(-1, e.toString());
+        }
+    }
+
+    private static String toJson(Object body) {
+        try {
+            return MAPPER.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void write(ByteArrayOutputStream out, String value) {
+        out.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public record Response(int status, String body) {
+        public boolean ok() {
+            return status >= 200 && status < 300;
+        }
+
+        public JsonNode json() {
+            try {
+                return MAPPER.readTree(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Invalid JSON response: " + body, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package at.ac.tgm.loadtest;
+
+import java.nio.file.Path;
+
+/**
+ * Parameter des Lasttests, werden als System-Properties {@code loadtest.*} übergeben (über Gradle als {@code -Ploadtest.*}).
+ *
+ * @param students     Anzahl der Schüler im generierten Verzeichnis (verteilt auf alle Abteilungen, nur HIT wird importiert).
+ * @param teachers     Anzahl der Lehrer im generierten Verzeichnis.
+ * @param seed         Seed für Verzeichnis und Testdaten.
+ * @param teacherUsers Anzahl gleichzeitiger Lehrer-Sitzungen.
+ * @param studentUsers Anzahl gleichzeitiger Schüler-Sitzungen.
+ * @param adminUsers   Anzahl gleichzeitiger Admin-Sitzungen.
+ * @param warmup       Aufwärmphase in Sekunden, wird nicht gemessen.
+ * @param duration     Messphase in Sekunden.
+ * @param thinkTime    Wartezeit zwischen zwei Anfragen einer Sitzung in Millisekunden.
+ * @param report       Pfad des JSON-Berichts.
+ */
+public record LoadTestConfig(int students, int teachers, long seed,
+                             int teacherUsers, int studentUsers, int adminUsers,
+                             int warmup, int duration, int thinkTime, Path report) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.students", 3000),
+                Integer.getInteger("loadtest.teachers", 250),
+                Long.getLong("loadtest.seed", 42L),
+                Integer.getInteger("loadtest.teacher-users", 20),
+                Integer.getInteger("loadtest.student-users", 60),
+                Integer.getInteger("loadtest.admin-users", 2),
+                Integer.getInteger("loadtest.warmup", 30),
+                Integer.getInteger("loadtest.duration", 120),
+                Integer.getInteger("loadtest.think-time", 0),
+                Path.of(System.getProperty("loadtest.report", "loadtest.json")));
+    }
+}
@@ -0,0 +1,152 @@
+package at.ac.tgm.loadtest;
+
+import at.ac.tgm.ad.embedded.SchoolDirectoryGenerator;
+import com.unboundid.ldap.sdk.Entry;
+
+import java.util.*;
+
+/**
+ * Ein Schuljahr passend zum eingebetteten LDAP: Das Verzeichnis wird mit denselben Parametern wie im Server erneut
+ * generiert, daraus entstehen die EIS-CSV (Klassen, Unterrichte, Lehrer) und die Benutzer für die Lastszenarien.
+ * <p>
+ * {@link SchoolDirectoryGenerator#TEST_TEACHER} unterrichtet Angewandte Mathematik in allen HIT-Klassen und ist
+ * Klassenvorstand der 5AHIT, in der auch {@link SchoolDirectoryGenerator#TEST_STUDENT} ist.
+ */
+public class SchoolYearDataset {
+    static final String[][] SUBJECTS = {
+            {"AM", "Pflichtgegenstände", "Angewandte Mathematik"},
+            {"D", "Pflichtgegenstände", "Deutsch"},
+            {"E", "Pflichtgegenstände", "Englisch"},
+            {"SEW", "Pflichtgegenstände", "Softwareentwicklung"},
+            {"ITP", "Pflichtgegenstände", "Informationstechnische Projekte"},
+            {"INSY", "Pflichtgegenstände", "Informationssysteme"},
+            {"NWT", "Pflichtgegenstände", "Netzwerktechnik"},
+            {"SYT", "Pflichtgegenstände", "Systemtechnik"},
+            {"GGP", "Pflichtgegenstände", "Geografie, Geschichte und Politische Bildung"},
+            {"NW", "Pflichtgegenstände", "Naturwissenschaften"},
+            {"BESP", "Pflichtgegenstände", "Bewegung und Sport"},
+            {"KV", "Allgemeines", "Klassenvorstand"}};
+    private static final String[] TITLES = {"Mag.", "Dr.", "DI", "Ing.", "MSc", "Dipl.-Ing.", "Prof", "Mag.a", "DI(FH)"};
+    private static final String[] SUFFIXES = {"BEd", "MSc", "BSc", "PhD"};
+    private static final String KV_CLASS_OF_TEST_TEACHER = "5AHIT";
+
+    private final List<Person> teachers = new ArrayList<>();
+    private final List<Person> students = new ArrayList<>();
+    private final List<String> hitClasses = new ArrayList<>();
+    private final Map<String, Person[]> teachersByClass = new LinkedHashMap<>();
+    private final Random random;
+
+    public record Person(String samAccountName, String givenName, String sn, String name, String employeeID, String className) {
+        public int year() {
+            return className.charAt(0) - '0';
+        }
+
+        public boolean hit() {
+            return className != null && className.endsWith("HIT");
+        }
+    }
+
+    public SchoolYearDataset(String rootDn, String baseDn, String mailDomain, long seed, int students, int teachers) {
+        this.random = new Random(seed);
+        for (Entry entry : new SchoolDirectoryGenerator(rootDn, baseDn, mailDomain, seed).generate(students, teachers)) {
+            if (!entry.hasObjectClass("user")) {
+                continue;
+            }
+            Person person = new Person(entry.getAttributeValue("sAMAccountName"), entry.getAttributeValue("givenName"),
+                    entry.getAttributeValue("sn"), entry.getAttributeValue("name"),
+                    entry.getAttributeValue("employeeID"), entry.getAttributeValue("department"));
+            if ("Lehrer".equals(entry.getAttributeValue("employeeType"))) {
+                this.teachers.add(person);
+            } else {
+                this.students.add(person);
+            }
+        }
+        SchoolDirectoryGenerator.classNames().stream().filter(name -> name.endsWith("HIT")).forEach(hitClasses::add);
+        assignTeachers();
+    }
+
+    private void assignTeachers() {
+        Person testTeacher = testTeacher();
+        List<Person> others = teachers.stream().filter(teacher -> teacher != testTeacher).toList();
+        for (int c = 0; c < hitClasses.size(); c++) {
+            Person[] perSubject = new Person[SUBJECTS.length];
+            for (int s = 0; s < SUBJECTS.length; s++) {
+                if (s == 0) {
+                    perSubject[s] = testTeacher;
+                } else if ("Allgemeines".equals(SUBJECTS[s][1])) {
+                    perSubject[s] = hitClasses.get(c).equals(KV_CLASS_OF_TEST_TEACHER) ? testTeacher : others.get(c % others.size());
+                } else {
+                    perSubject[s] = others.get((c * SUBJECTS.length + s) % others.size());
+                }
+            }
+            teachersByClass.put(hitClasses.get(c), perSubject);
+        }
+    }
+
+    /**
+     * Zeilen im Format des EIS-CSV-Exports (16 Spalten, Trennzeichen ";"), Lehrernamen mit zufälligen akademischen Titeln.
+     */
+    public List<String> csvLines() {
+        List<String> lines = new ArrayList<>();
+        for (Person student : hitStudents()) {
+            Person[] perSubject = teachersByClass.get(student.className());
+            for (int s = 0; s < SUBJECTS.length; s++) {
+                lines.add(String.join(";", "2025", student.className(), "", "", student.employeeID(),
+                        student.sn().toUpperCase(Locale.ROOT), student.givenName(),
+                        "", "", "", "", SUBJECTS[s][1], "", SUBJECTS[s][0], SUBJECTS[s][2], titled(perSubject[s])));
+            }
+        }
+        return lines;
+    }
+
+    private String titled(Person teacher) {
+        StringBuilder name = new StringBuilder();
+        for (int t = random.nextInt(3); t > 0; t--) {
+            name.append(TITLES[random.nextInt(TITLES.length)]).append(' ');
+        }
+        name.append(teacher.name());
+        if (random.nextInt(3) == 0) {
+            name.append(", ").append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+        }
+        return name.toString();
+    }
+
+    public Person testTeacher() {
+        return teachers.stream().filter(t -> t.samAccountName().equals(SchoolDirectoryGenerator.TEST_TEACHER)).findFirst().orElseThrow();
+    }
+
+    /**
+     * Lehrer mit Unterrichten, deren Name vom {@code TeacherAmpelService} eindeutig einem EIS-Lehrer zugeordnet wird.
+     * Die Zuordnung sucht per "Name enthält Vorname und Nachname", bei Namen wie "Anna Huber" und "Johanna Huber" wäre sie mehrdeutig.
+     */
+    public List<Person> teachingTeachers() {
+        Set<Person> assigned = new LinkedHashSet<>();
+        teachersByClass.values().forEach(perSubject -> assigned.addAll(Arrays.asList(perSubject)));
+        assigned.remove(testTeacher());
+        return assigned.stream().filter(teacher -> assigned.stream().filter(other -> matches(other, teacher)).count() == 1).toList();
+    }
+
+    private static boolean matches(Person candidate, Person teacher) {
+        String name = candidate.name().toLowerCase(Locale.ROOT);
+        return name.contains(teacher.givenName().toLowerCase(Locale.ROOT)) && name.contains(teacher.sn().toLowerCase(Locale.ROOT));
+    }
+
+    public List<Person> teachers() {
+        return teachers;
+    }
+
+    public List<Person> students() {
+        return students;
+    }
+
+    /**
+     * Schüler, die über die CSV in EIS importiert werden.
+     */
+    public List<Person> hitStudents() {
+        return students.stream().filter(Person::hit).toList();
+    }
+
+    public List<Person> studentsOfYear(int year) {
+        return students.stream().filter(student -> student.year() == year).toList();
+    }
+}
@@ -0,0 +1,245 @@
+package at.ac.tgm.loadtest;
+
+import at.ac.tgm.entity.BootstickEntity;
+import at.ac.tgm.entity.DatenstickEntity;
+import at.ac.tgm.enums.Schulklasse;
+import at.ac.tgm.enums.Status;
+import at.ac.tgm.enums.Zustand;
+import at.ac.tgm.loadtest.SchoolYearDataset.Person;
+import at.ac.tgm.model.*;
+import at.ac.tgm.repository.*;
+import at.ac.tgm.service.AmpelStatsService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Befüllt den frisch gestarteten Server mit einem Schuljahr. Wo es Endpunkte gibt, läuft das Befüllen über die
+ * REST-API (EIS-CSV-Import, Betreuer-Refresh, Projekte, Bewerbungen, Dokumente) und wird dabei mitgemessen.
+ * Ampeln und Boot-/Datensticks werden direkt über die Repositories angelegt, da es dafür keinen Massen- bzw.
+ * gar keinen Anlege-Endpunkt gibt.
+ */
+public class SchoolYearSeeder {
+    private static final int TEAM_SIZE = 3;
+    private static final int MAX_PROJECTS_PER_BETREUER = 3;
+    private static final int STICKS_PER_CLASS = 40;
+    private static final long IMPORT_POLL_MILLIS = 100;
+    private static final String[] DOCUMENT_TYPES = {"Lastenheft", "Pflichtenheft"};
+
+    private final ApplicationContext context;
+    private final SchoolYearDataset dataset;
+    private final LoadTestClient admin;
+    private final Random random;
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final List<Long> projectIds = new ArrayList<>();
+
+    public SchoolYearSeeder(ApplicationContext context, SchoolYearDataset dataset, LoadTestClient admin, long seed) {
+        this.context = context;
+        this.dataset = dataset;
+        this.admin = admin;
+        this.random = new Random(seed);
+    }
+
+    public void seed() {
+        timed("eis-csv-import", this::importCsv);
+        timed("eis-ampeln", this::seedAmpeln);
+        timed("diplomdb-betreuer", this::seedBetreuer);
+        timed("diplomdb-projects", this::seedProjects);
+        timed("diplomdb-applications", this::seedApplications);
+        timed("diplomdb-documents", this::seedDocuments);
+        timed("bsvw-sticks", this::seedSticks);
+    }
+
+    /**
+     * @return Dauer der einzelnen Schritte in Millisekunden.
+     */
+    public Map<String, Long> getDurations() {
+        return durations;
+    }
+
+    public List<Long> getProjectIds() {
+        return projectIds;
+    }
+
+    private void timed(String step, Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        durations.put(step, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Der Import läuft im Hintergrund, gemessen wird bis der Job abgeschlossen ist.
+     */
+    private void importCsv() {
+        byte[] csv = String.join("\n", dataset.csvLines()).getBytes(StandardCharsets.UTF_8);
+        String jobId = expect(admin.postMultipart("POST /eis/api/admin/upload", "/eis/api/admin/upload", Map.of(), "export.csv", csv), "CSV import")
+                .json().get("jobId").asText();
+        while (true) {
+            JsonNode job = expect(admin.get("GET /eis/api/admin/import/{jobId}", "/eis/api/admin/import/" + jobId), "CSV import status").json();
+            String status = job.get("status").asText();
+            if ("COMPLETED".equals(status)) {
+                return;
+            }
+            if ("FAILED".equals(status)) {
+                throw new IllegalStateException("CSV import failed: " + job.get("errors"));
+            }
+            try {
+                Thread.sleep(IMPORT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for CSV import", e);
+            }
+        }
+    }
+
+    private void seedAmpeln() {
+        AmpelRepository ampelRepository = context.getBean(AmpelRepository.class);
+        LessonRepository lessonRepository = context.getBean(LessonRepository.class);
+        AmpelFarbe[] farben = AmpelFarbe.values();
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            List<Ampel> ampeln = new ArrayList<>();
+            List<Lesson> lessons = new ArrayList<>(lessonRepository.findAll());
+            lessons.sort(Comparator.comparing(Lesson::getId));
+            for (Lesson lesson : lessons) {
+                Teacher teacher = lesson.getTeachers().iterator().next();
+                List<Student> students = new ArrayList<>(lesson.getHitclass().getStudents());
+                students.sort(Comparator.comparing(Student::getId));
+                for (Student student : students) {
+                    if (random.nextBoolean()) {
+                        Ampel ampel = new Ampel();
+                        ampel.setLesson(lesson);
+                        ampel.setStudent(student);
+                        ampel.setTeacher(teacher);
+                        ampel.setFarbe(farben[random.nextInt(farben.length)]);
+                        ampel.setBemerkung("Bemerkung " + random.nextInt(1000));
+                        ampel.setUpdatedAt(LocalDateTime.now().minusMinutes(random.nextInt(100_000)));
+                        ampeln.add(ampel);
+                    }
+                }
+            }
+            ampelRepository.saveAll(ampeln);
+        });
+        // Die Ampeln gehen direkt in die Datenbank, an der Statistik vorbei
+        context.getBean(AmpelStatsService.class).rebuild();
+    }
+
+    private void seedBetreuer() {
+        expect(admin.postJson("POST /diplomdb/api/betreuer/refresh", "/diplomdb/api/betreuer/refresh?full=true", Map.of()), "Betreuer refresh");
+        for (Person betreuer : betreuer()) {
+            expect(admin.put("PUT /diplomdb/api/betreuer/sam/{sam}/capacity",
+                    "/diplomdb/api/betreuer/sam/" + betreuer.samAccountName() + "/capacity?maxProjekte=" + MAX_PROJECTS_PER_BETREUER), "Betreuer capacity");
+        }
+    }
+
+    /**
+     * Jedes Team aus drei Schülern eines fünften Jahrgangs reicht ein Projekt ein.
+     */
+    private void seedProjects() {
+        List<Person> betreuer = betreuer();
+        List<List<Person>> teams = teams();
+        for (int i = 0; i < teams.size(); i++) {
+            List<Person> team = teams.get(i);
+            Map<String, Object> project = new HashMap<>();
+            project.put("titel", "Diplomarbeit " + (i + 1) + " " + SchoolYearDataset.SUBJECTS[i % SchoolYearDataset.SUBJECTS.length][2]);
+            project.put("beschreibung", "Projekt des Teams " + team.stream().map(Person::samAccountName).toList());
+            project.put("startdatum", LocalDate.now().toString());
+            project.put("enddatum", LocalDate.now().plusMonths(9).toString());
+            project.put("betreuerSamAccountName", betreuer.get(i / MAX_PROJECTS_PER_BETREUER).samAccountName());
+            project.put("mitarbeiterSamAccountNames", team.stream().map(Person::samAccountName).toList());
+            LoadTestClient.Response response = expect(admin.postJson("POST /diplomdb/api/projects", "/diplomdb/api/projects", project), "Project");
+            projectIds.add(response.json().get("projektId").asLong());
+        }
+    }
+
+    /**
+     * Jeder Schüler eines vierten Jahrgangs bewirbt sich mit Priorität 1 bis 3 auf drei verschiedene Projekte.
+     */
+    private void seedApplications() {
+        for (Person student : dataset.studentsOfYear(4)) {
+            List<Long> choices = new ArrayList<>(projectIds);
+            Collections.shuffle(choices, random);
+            for (int prioritaet = 1; prioritaet <= Math.min(3, choices.size()); prioritaet++) {
+                Map<String, Object> bewerbung = Map.of(
+                        "projektId", choices.get(prioritaet - 1),
+                        "samAccountName", student.samAccountName(),
+                        "prioritaet", prioritaet);
+                expect(admin.postJson("POST /diplomdb/api/project-applications", "/diplomdb/api/project-applications", bewerbung), "Application");
+            }
+        }
+    }
+
+    private void seedDocuments() {
+        List<List<Person>> teams = teams();
+        byte[] content = new byte[16 * 1024];
+        for (int i = 0; i < projectIds.size(); i++) {
+            for (String typ : DOCUMENT_TYPES) {
+                random.nextBytes(content);
+                Map<String, String> fields = Map.of(
+                        "titel", typ + " " + (i + 1),
+                        "beschreibung", typ + " der Diplomarbeit " + (i + 1),
+                        "typ", typ,
+                        "datum", LocalDate.now().toString(),
+                        "diplomarbeitId", String.valueOf(projectIds.get(i)),
+                        "erstellerSamAccountName", teams.get(i).get(random.nextInt(teams.get(i).size())).samAccountName());
+                expect(admin.postMultipart("POST /diplomdb/api/documents/upload", "/diplomdb/api/documents/upload", fields,
+                        typ.toLowerCase(Locale.ROOT) + ".pdf", content), "Document");
+            }
+        }
+    }
+
+    private void seedSticks() {
+        List<BootstickEntity> bootsticks = new ArrayList<>();
+        List<DatenstickEntity> datensticks = new ArrayList<>();
+        for (Schulklasse klasse : Schulklasse.values()) {
+            for (int nummer = 1; nummer <= STICKS_PER_CLASS; nummer++) {
+                BootstickEntity bootstick = new BootstickEntity();
+                bootstick.setName(klasse);
+                bootstick.setNummer(nummer);
+                bootstick.setStatus(random.nextInt(10) == 0 ? Status.AUSGEBORGT : Status.VORHANDEN);
+                bootstick.setZustand(random.nextInt(20) == 0 ? Zustand.FEHLERHAFT : Zustand.IN_ORDNUNG);
+                bootstick.setLetzte_initialisierung(LocalDateTime.now().minusDays(random.nextInt(200)));
+                bootsticks.add(bootstick);
+
+                DatenstickEntity datenstick = new DatenstickEntity();
+                datenstick.setName(klasse);
+                datenstick.setNummer(nummer);
+                datenstick.setStatus(random.nextInt(10) == 0 ? Status.AUSGEBORGT : Status.VORHANDEN);
+                datenstick.setZustand(random.nextInt(20) == 0 ? Zustand.FEHLERHAFT : Zustand.IN_ORDNUNG);
+                datenstick.setLetzte_initialisierung(LocalDateTime.now().minusDays(random.nextInt(200)));
+                datensticks.add(datenstick);
+            }
+        }
+        context.getBean(BootstickRepository.class).saveAll(bootsticks);
+        context.getBean(DatenstickRepository.class).saveAll(datensticks);
+    }
+
+    private List<List<Person>> teams() {
+        List<Person> students = dataset.studentsOfYear(5);
+        List<List<Person>> teams = new ArrayList<>();
+        for (int i = 0; i + TEAM_SIZE <= students.size(); i += TEAM_SIZE) {
+            teams.add(students.subList(i, i + TEAM_SIZE));
+        }
+        return teams;
+    }
+
+    private List<Person> betreuer() {
+        int needed = (teams().size() + MAX_PROJECTS_PER_BETREUER - 1) / MAX_PROJECTS_PER_BETREUER;
+        List<Person> teachers = dataset.teachers();
+        if (needed > teachers.size()) {
+            throw new IllegalStateException("Not enough teachers for " + teams().size() + " projects");
+        }
+        return teachers.subList(0, needed);
+    }
+
+    private static LoadTestClient.Response expect(LoadTestClient.Response response, String what) {
+        if (!response.ok()) {
+            throw new IllegalStateException(what + " failed with " + response.status() + ": " + response.body());
+        }
+        return response;
+    }
+}
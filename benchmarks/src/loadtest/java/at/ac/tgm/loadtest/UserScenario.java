@@ -0,0 +1,148 @@
+package at.ac.tgm.loadtest;
+
+import at.ac.tgm.loadtest.SchoolYearDataset.Person;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Das Verhalten einer angemeldeten Sitzung: Jeder Schritt wählt gewichtet zufällig eine Aktion.
+ * Die Gewichte bilden grob die Nutzung während eines Schuljahres ab, Lehrer tragen z.B. vor allem Ampeln ein.
+ */
+public abstract class UserScenario {
+    private static final String[] FARBEN = {"ROT", "GELB", "GRUEN", "SCHWARZ", "GRAU"};
+    private static final String[] SEARCH_TERMS = {"Software", "Netzwerk", "Mathematik", "Diplomarbeit 1", "Projekt"};
+
+    protected final Person user;
+    protected final Random random;
+    private final List<Consumer<LoadTestClient>> actions = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    protected UserScenario(Person user, Random random) {
+        this.user = user;
+        this.random = random;
+    }
+
+    public Person getUser() {
+        return user;
+    }
+
+    protected void action(int weight, Consumer<LoadTestClient> action) {
+        totalWeight += weight;
+        actions.add(action);
+        cumulativeWeights.add(totalWeight);
+    }
+
+    public void step(LoadTestClient client) {
+        int pick = random.nextInt(totalWeight);
+        for (int i = 0; i < actions.size(); i++) {
+            if (pick < cumulativeWeights.get(i)) {
+                actions.get(i).accept(client);
+                return;
+            }
+        }
+    }
+
+    protected String searchTerm() {
+        return URLEncoder.encode(SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], StandardCharsets.UTF_8);
+    }
+
+    public static class Teacher extends UserScenario {
+        private JsonNode ampeln;
+
+        public Teacher(Person user, Random random) {
+            super(user, random);
+            action(30, this::loadAmpeln);
+            action(20, this::saveAmpel);
+            action(5, this::saveLesson);
+            action(10, client -> client.get("GET /eis/api/teacher-ampel/kv/getStudents", "/eis/api/teacher-ampel/kv/getStudents"));
+            action(5, client -> client.get("GET /eis/api/stats/kv", "/eis/api/stats/kv"));
+            action(15, client -> client.get("GET /diplomdb/api/projects", "/diplomdb/api/projects"));
+            action(5, client -> client.get("GET /diplomdb/api/projects?search", "/diplomdb/api/projects?search=" + searchTerm()));
+            action(5, client -> client.get("GET /diplomdb/api/betreuer", "/diplomdb/api/betreuer"));
+            action(5, client -> client.get("GET /diplomdb/api/project-applications", "/diplomdb/api/project-applications"));
+            action(5, client -> client.get("GET /diplomdb/api/documents", "/diplomdb/api/documents"));
+            action(5, client -> client.get("GET /bsvw/bootsticks", "/bsvw/bootsticks"));
+        }
+
+        private void loadAmpeln(LoadTestClient client) {
+            LoadTestClient.Response response = client.get("GET /eis/api/teacher-ampel/getLehrer", "/eis/api/teacher-ampel/getLehrer");
+            if (response.ok()) {
+                ampeln = response.json();
+            }
+        }
+
+        /**
+         * Trägt für einen zufälligen Eintrag der zuletzt geladenen Übersicht eine Ampel ein bzw. ändert sie.
+         */
+        private void saveAmpel(LoadTestClient client) {
+            if (ampeln == null || ampeln.isEmpty()) {
+                loadAmpeln(client);
+                return;
+            }
+            JsonNode entry = ampeln.get(random.nextInt(ampeln.size()));
+            client.postJson("POST /eis/api/teacher-ampel", "/eis/api/teacher-ampel", Map.of(
+                    "lessonId", entry.get("lessonId").asLong(),
+                    "studentId", entry.get("studentId").asLong(),
+                    "farbe", FARBEN[random.nextInt(FARBEN.length)],
+                    "bemerkung", "Lasttest " + random.nextInt(1000)));
+        }
+
+        /**
+         * Benotet alle Schüler eines zufälligen Unterrichts der zuletzt geladenen Übersicht in einer Anfrage.
+         */
+        private void saveLesson(LoadTestClient client) {
+            if (ampeln == null || ampeln.isEmpty()) {
+                loadAmpeln(client);
+                return;
+            }
+            long lessonId = ampeln.get(random.nextInt(ampeln.size())).get("lessonId").asLong();
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (JsonNode entry : ampeln) {
+                if (entry.get("lessonId").asLong() == lessonId) {
+                    entries.add(Map.of(
+                            "lessonId", lessonId,
+                            "studentId", entry.get("studentId").asLong(),
+                            "farbe", FARBEN[random.nextInt(FARBEN.length)],
+                            "bemerkung", "Lasttest " + random.nextInt(1000)));
+                }
+            }
+            client.postJson("POST /eis/api/teacher-ampel/bulk", "/eis/api/teacher-ampel/bulk", entries);
+        }
+    }
+
+    public static class Student extends UserScenario {
+        public Student(Person user, Random random) {
+            super(user, random);
+            action(40, client -> client.get("GET /eis/api/student-ampel/getSchueler", "/eis/api/student-ampel/getSchueler"));
+            action(20, client -> client.get("GET /diplomdb/api/projects", "/diplomdb/api/projects"));
+            action(5, client -> client.get("GET /diplomdb/api/projects?search", "/diplomdb/api/projects?search=" + searchTerm()));
+            action(15, client -> client.get("GET /diplomdb/api/project-applications?user", "/diplomdb/api/project-applications?user=" + user.samAccountName()));
+            action(10, client -> client.get("GET /diplomdb/api/betreuer", "/diplomdb/api/betreuer"));
+            action(10, client -> client.get("GET /diplomdb/api/documents", "/diplomdb/api/documents"));
+        }
+    }
+
+    public static class Admin extends UserScenario {
+        public Admin(Person user, Random random) {
+            super(user, random);
+            action(15, client -> client.get("GET /eis/api/admin/getAllTeachersWithLessons", "/eis/api/admin/getAllTeachersWithLessons"));
+            action(15, client -> client.get("GET /eis/api/admin/getAllStudents", "/eis/api/admin/getAllStudents"));
+            action(10, client -> client.get("GET /eis/api/admin/hitclasses/with-teachers", "/eis/api/admin/hitclasses/with-teachers"));
+            action(5, client -> client.get("GET /eis/api/stats", "/eis/api/stats"));
+            action(15, client -> client.get("GET /diplomdb/api/project-applications/overview", "/diplomdb/api/project-applications/overview"));
+            action(5, client -> client.get("GET /diplomdb/api/betreuer/export?format=csv", "/diplomdb/api/betreuer/export?format=csv"));
+            action(15, client -> client.get("GET /diplomdb/api/projects", "/diplomdb/api/projects"));
+            action(10, client -> client.get("GET /diplomdb/api/documents", "/diplomdb/api/documents"));
+            action(10, client -> client.get("GET /bsvw/bootsticks", "/bsvw/bootsticks"));
+            action(5, client -> client.get("GET /bsvw/datensticks", "/bsvw/datensticks"));
+        }
+    }
+}
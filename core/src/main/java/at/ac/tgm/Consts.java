@@ -5,6 +5,7 @@ public class Consts {
     public static final String BEISPIEL_TABLE_PREFIX = "BEISPIEL_";
     public static final String EIS_PATH_PREFIX = "/eis";
     public static final String EIS_TABLE_PREFIX = "EIS_";
+    public static final int EIS_ID_ALLOCATION_SIZE = 50;
     public static final String DIPLOMDB_PATH_PREFIX = "/diplomdb";
     public static final String DIPLOMDB_TABLE_PREFIX = "DIPLOMDB_";
     public static final String BSVW_PATH_PREFIX = "/bsvw";
@@ -0,0 +1,11 @@
+package at.ac.tgm.ad;
+
+/**
+ * Beim Login in der Session abgelegte Werte aus dem AD, damit häufige Endpunkte ohne LDAP-Abfrage auskommen.
+ */
+public final class SessionAttributes {
+    public static final String EMPLOYEE_ID = "employeeID"; // Schülerkennzahl, nur bei Schülern
+
+    private SessionAttributes() {
+    }
+}
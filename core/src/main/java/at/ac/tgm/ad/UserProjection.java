@@ -0,0 +1,41 @@
+package at.ac.tgm.ad;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Benannte Attribut-Profile für Benutzer-Abfragen im AD.
+ * Statt aller ~80 Attribute des {@link at.ac.tgm.ad.entry.UserEntry} (inkl. Exchange-Blobs) werden nur die
+ * Attribute angefordert, die der Aufrufer tatsächlich liest.
+ */
+public enum UserProjection {
+    /**
+     * Name, Mail und Kennzahlen, siehe {@link at.ac.tgm.ad.entry.UserIdentity}.
+     */
+    IDENTITY("sAMAccountName", "cn", "name", "displayName", "givenName", "sn", "mail", "employeeID", "employeeNumber"),
+    /**
+     * Zusätzlich Gruppen und Kontaktinformationen, siehe {@link at.ac.tgm.ad.entry.UserContact}.
+     */
+    CONTACT(IDENTITY, "memberOf", "userPrincipalName", "department", "info", "employeeType", "uSNChanged"),
+    /**
+     * Alle Attribute, entspricht dem vollständigen {@link at.ac.tgm.ad.entry.UserEntry}.
+     */
+    FULL((String[]) null);
+    
+    private final String[] attributes;
+    
+    UserProjection(String... attributes) {
+        this.attributes = attributes;
+    }
+    
+    UserProjection(UserProjection base, String... attributes) {
+        this.attributes = Stream.concat(Arrays.stream(base.attributes), Arrays.stream(attributes)).toArray(String[]::new);
+    }
+    
+    /**
+     * @return Die anzufordernden Attribute für {@code SearchControls.setReturningAttributes}, {@code null} für alle Attribute.
+     */
+    public String[] getAttributes() {
+        return attributes == null ? null : attributes.clone();
+    }
+}
@@ -0,0 +1,200 @@
+package at.ac.tgm.ad.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Einfacher In-Process-Cache für LDAP-Abfragen mit TTL und Größenbeschränkung.
+ * <p>
+ * Bei Überschreiten von {@code maxSize} wird der am längsten nicht verwendete Eintrag verdrängt (LRU).
+ * Nicht gefundene Schlüssel werden ebenfalls gecacht (Negative Caching), allerdings mit eigener,
+ * üblicherweise kürzerer TTL, damit neu angelegte Accounts rasch sichtbar werden.
+ * <p>
+ * Jede Invalidierung erhöht eine Generation. Ein Ladevorgang, während dessen invalidiert wurde, legt sein Ergebnis
+ * nicht mehr in den Cache, sonst wäre der veraltete Wert danach wieder für die volle TTL gültig.
+ */
+public class LdapCache<K, V> {
+    private final String name;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final int maxSize;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    // Wird bei jeder Invalidierung erhöht, geschützt durch das Lock auf entries
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LdapCache(String name, Duration ttl, Duration negativeTtl, int maxSize) {
+        this.name = name;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > LdapCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Liefert den gecachten Wert oder lädt ihn über den {@code loader}.
+     * Der Loader wird außerhalb des Locks aufgerufen, damit eine langsame LDAP-Abfrage andere Zugriffe nicht blockiert.
+     */
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        long loadGeneration;
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired()) {
+                    hits.increment();
+                    return Optional.ofNullable(entry.value());
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        Optional<V> loaded = loader.apply(key);
+        put(key, loaded.orElse(null), loadGeneration);
+        return loaded;
+    }
+
+    /**
+     * Liefert die Werte zu mehreren Schlüsseln. Alle nicht (mehr) gecachten Schlüssel werden gesammelt
+     * und mit einem einzigen Aufruf des {@code loader} nachgeladen, statt jeden Schlüssel einzeln abzufragen.
+     * Schlüssel, die der Loader nicht liefert, werden als Negativ-Eintrag gecacht.
+     *
+     * @return Map mit allen gefundenen Werten, nicht gefundene Schlüssel fehlen in der Map.
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        long loadGeneration;
+        synchronized (entries) {
+            for (K key : keys) {
+                if (key == null || result.containsKey(key) || missing.contains(key)) {
+                    continue;
+                }
+                CacheEntry<V> entry = entries.get(key);
+                if (entry != null && !entry.isExpired()) {
+                    hits.increment();
+                    if (entry.value() != null) {
+                        result.put(key, entry.value());
+                    }
+                } else {
+                    if (entry != null) {
+                        entries.remove(key);
+                        evictions.increment();
+                    }
+                    missing.add(key);
+                }
+            }
+            loadGeneration = generation;
+        }
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            Map<K, V> loaded = loader.apply(new ArrayList<>(missing));
+            for (K key : missing) {
+                V value = loaded.get(key);
+                put(key, value, loadGeneration);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Legt einen Wert direkt in den Cache, z.B. wenn er bereits über eine andere Abfrage geladen wurde.
+     * {@code null} wird als Negativ-Eintrag gespeichert.
+     */
+    public void put(K key, V value) {
+        if (key == null) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + (value != null ? ttl : negativeTtl).toNanos();
+        synchronized (entries) {
+            entries.put(key, new CacheEntry<>(value, expiresAt));
+        }
+    }
+
+    /**
+     * Legt einen geladenen Wert nur ab, wenn seit Beginn des Ladens nicht invalidiert wurde.
+     */
+    private void put(K key, V value, long loadGeneration) {
+        long expiresAt = System.nanoTime() + (value != null ? ttl : negativeTtl).toNanos();
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(key, new CacheEntry<>(value, expiresAt));
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Entfernt alle (positiven) Einträge, deren Wert dem Prädikat entspricht.
+     */
+    public void invalidateIf(Predicate<V> predicate) {
+        synchronized (entries) {
+            generation++;
+            Iterator<CacheEntry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                V value = iterator.next().value();
+                if (value != null && predicate.test(value)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public CacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(name, size, maxSize, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private record CacheEntry<V>(V value, long expiresAt) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package at.ac.tgm.ad.entry;
+
+import javax.naming.Name;
+import java.util.Set;
+
+/**
+ * Sicht auf einen AD-Benutzer mit den Attributen des Profils {@link at.ac.tgm.ad.UserProjection#CONTACT}.
+ */
+public record UserContact(
+        UserIdentity identity,
+        Set<Name> memberOf,
+        String userPrincipalName,
+        String department, // Just Student, not Teachers
+        String info, // Just Teachers
+        String employeeType,
+        String uSNChanged
+) {
+}
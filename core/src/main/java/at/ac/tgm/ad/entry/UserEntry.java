@@ -2,6 +2,7 @@ package at.ac.tgm.ad.entry;
 
 import at.ac.tgm.ad.util.EntryBase;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -19,6 +20,7 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 public class UserEntry {
     private @Id Name id;
     private @Attribute(name = "memberOf") Set<Name> memberOf;
@@ -0,0 +1,17 @@
+package at.ac.tgm.ad.entry;
+
+/**
+ * Schlanke Sicht auf einen AD-Benutzer mit den Attributen des Profils {@link at.ac.tgm.ad.UserProjection#IDENTITY}.
+ */
+public record UserIdentity(
+        String sAMAccountName,
+        String cn,
+        String name,
+        String displayName,
+        String givenName,
+        String sn,
+        String mail,
+        String employeeID, // Just Students
+        String employeeNumber // Just Teachers
+) {
+}
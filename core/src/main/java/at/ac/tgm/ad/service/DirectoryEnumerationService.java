@@ -0,0 +1,179 @@
+package at.ac.tgm.ad.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.ldap.control.PagedResultsCookie;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
+import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapOperations;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.support.SingleContextSource;
+import org.springframework.stereotype.Service;
+
+import javax.naming.directory.SearchControls;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Durchläuft große Teile des Verzeichnisses seitenweise und parallel.
+ * <p>
+ * Der Baum unterhalb der Basis wird bis zur Tiefe {@code ldap.enumeration.partition-depth} in Partitionen zerlegt:
+ * je Ebene eine ONELEVEL-Partition für die direkten Einträge und für jeden direkten Eintrag, der selbst weitere
+ * Einträge enthalten kann (alles außer Personen und Gruppen, also OUs, Container, builtinDomain, ...), die
+ * Partitionen seiner Nachfahren. Auf der untersten Ebene übernimmt eine SUBTREE-Partition den Eintrag samt
+ * Nachfahren, er wird dann aus der ONELEVEL-Partition darüber ausgeschlossen. Die Partitionen sind damit disjunkt.
+ * <p>
+ * Einschränkung: Unterhalb von Personen und Gruppen wird nicht gesucht (z.B. die ActiveSync-Geräte unter einem
+ * Benutzer). Laut AD-Schema können dort keine Benutzer oder Gruppen liegen, für andere Objektklassen ist die
+ * Aufzählung dort unvollständig.
+ * <p>
+ * Jede Partition läuft auf einem eigenen virtuellen Thread mit eigener Verbindung und eigenem Paging-Cookie. Da eine
+ * Partition ihre Verbindung für die gesamte Suche belegt, laufen höchstens {@code ldap.enumeration.parallelism}
+ * Partitionen gleichzeitig, und nie mehr als die Hälfte von {@code ldap.pool.max-total}, damit Logins und andere
+ * Anfragen während einer Aufzählung weiterhin Verbindungen bekommen.
+ */
+@Service
+@Slf4j
+public class DirectoryEnumerationService {
+    private static final String LEAF_FILTER = "(|(objectClass=person)(objectClass=group))";
+    private static final String PARENT_FILTER = "(!" + LEAF_FILTER + ")";
+
+    @Autowired
+    private LdapTemplate ldapTemplate;
+
+    @Value("${ldap.paging.page-size:200}")
+    private int pageSize;
+    @Value("${ldap.enumeration.partition-depth:2}")
+    private int partitionDepth;
+    @Value("${ldap.enumeration.parallelism:4}")
+    private int parallelism;
+    @Value("${ldap.pool.max-total:16}")
+    private int poolMaxTotal;
+
+    /**
+     * Durchsucht alle Partitionen parallel und übergibt jede Ergebnisseite an den {@code sink}.
+     * Die Seiten kommen in beliebiger Reihenfolge an, der Sink wird aber nie gleichzeitig aufgerufen.
+     *
+     * @param filter     Der LDAP-Filter, der angewendet werden soll.
+     * @param attributes Die anzufordernden Attribute.
+     * @param mapper     Wandelt einen Treffer um, {@code null}-Ergebnisse werden verworfen.
+     * @param sink       Verarbeitet jeweils eine Seite.
+     * @return Die Gesamtanzahl der an den Sink übergebenen Einträge.
+     */
+    public <T> long enumerate(String filter, String[] attributes, AttributesMapper<T> mapper, Consumer<List<T>> sink) {
+        List<Partition> partitions = partitions("", partitionDepth);
+        int permits = Math.max(1, Math.min(parallelism, poolMaxTotal / 2));
+        log.debug("Enumerating {} with {} partitions, {} in parallel and page size {}", filter, partitions.size(), permits, pageSize);
+
+        // Keine synchronized-Blöcke: Der Sink schreibt z.B. per JDBC, das würde die Trägerthreads blockieren
+        Lock sinkLock = new ReentrantLock();
+        Semaphore connections = new Semaphore(permits);
+        List<Future<Long>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Partition partition : partitions) {
+                futures.add(executor.submit(() -> {
+                    connections.acquire();
+                    try {
+                        return SingleContextSource.doWithSingleContext(ldapTemplate.getContextSource(),
+                                operations -> enumeratePartition(operations, partition, filter, attributes, mapper, page -> {
+                                    sinkLock.lock();
+                                    try {
+                                        sink.accept(page);
+                                    } finally {
+                                        sinkLock.unlock();
+                                    }
+                                }));
+                    } finally {
+                        connections.release();
+                    }
+                }));
+            }
+        }
+
+        long total = 0;
+        for (Future<Long> future : futures) {
+            try {
+                total += future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Directory enumeration interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Directory enumeration failed", e.getCause());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Ein Paging-Cursor pro Partition. Die Suche läuft über eine einzige Verbindung,
+     * da das Paging-Cookie an die Verbindung gebunden ist.
+     */
+    private <T> long enumeratePartition(LdapOperations operations, Partition partition, String filter, String[] attributes,
+                                        AttributesMapper<T> mapper, Consumer<List<T>> sink) {
+        SearchControls controls = new SearchControls();
+        controls.setSearchScope(partition.scope());
+        controls.setReturningAttributes(attributes);
+        String partitionFilter = partition.leavesOnly() ? "(&" + filter + LEAF_FILTER + ")" : filter;
+
+        long count = 0;
+        PagedResultsCookie cookie = null;
+        do {
+            PagedResultsDirContextProcessor pager = new PagedResultsDirContextProcessor(pageSize, cookie);
+            List<T> page = operations.search(partition.base(), partitionFilter, controls, mapper, pager);
+            page.removeIf(Objects::isNull);
+            if (!page.isEmpty()) {
+                sink.accept(page);
+                count += page.size();
+            }
+            cookie = pager.getCookie();
+        } while (cookie != null && cookie.getCookie() != null);
+        return count;
+    }
+
+    /**
+     * Zerlegt den Baum unterhalb von {@code base} (ohne {@code base} selbst, außer bei {@code depth <= 0}).
+     */
+    private List<Partition> partitions(String base, int depth) {
+        List<Partition> partitions = new ArrayList<>();
+        if (depth <= 0) {
+            partitions.add(new Partition(base, SearchControls.SUBTREE_SCOPE, false));
+            return partitions;
+        }
+        // Auf der letzten Ebene decken die SUBTREE-Partitionen die Eltern-Einträge selbst mit ab
+        partitions.add(new Partition(base, SearchControls.ONELEVEL_SCOPE, depth == 1));
+        SearchControls controls = new SearchControls();
+        controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+        controls.setReturningAttributes(new String[]{"objectClass"});
+        List<String> children = ldapTemplate.search(base, PARENT_FILTER, controls,
+                (ContextMapper<String>) ctx -> ((DirContextOperations) ctx).getDn().toString());
+        for (String child : children) {
+            if (depth == 1) {
+                partitions.add(new Partition(child, SearchControls.SUBTREE_SCOPE, false));
+            } else {
+                partitions.addAll(partitions(child, depth - 1));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * @param leavesOnly Nur Personen und Gruppen, die übrigen Einträge liegen in eigenen SUBTREE-Partitionen.
+     */
+    private record Partition(String base, int scope, boolean leavesOnly) {
+    }
+}
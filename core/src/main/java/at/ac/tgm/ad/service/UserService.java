@@ -1,38 +1,82 @@
 package at.ac.tgm.ad.service;
 
+import at.ac.tgm.ad.UserProjection;
+import at.ac.tgm.ad.cache.CacheStats;
+import at.ac.tgm.ad.cache.LdapCache;
 import at.ac.tgm.ad.entry.GroupEntry;
+import at.ac.tgm.ad.entry.UserContact;
 import at.ac.tgm.ad.entry.UserEntry;
-import at.ac.tgm.ad.repository.GroupRepository;
+import at.ac.tgm.ad.entry.UserIdentity;
 import at.ac.tgm.ad.repository.UserRepository;
-import at.ac.tgm.ad.util.Util;
+import at.ac.tgm.ad.util.EntryBase;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.ldap.control.PagedResultsCookie;
-import org.springframework.ldap.control.PagedResultsDirContextProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.filter.EqualsFilter;
+import org.springframework.ldap.filter.OrFilter;
 import org.springframework.ldap.odm.annotations.Entry;
+import org.springframework.ldap.query.LdapQuery;
 import org.springframework.ldap.query.LdapQueryBuilder;
 import org.springframework.stereotype.Service;
 
 import javax.naming.Name;
+import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
-import javax.naming.directory.SearchControls;
 import javax.naming.ldap.LdapName;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
+@Slf4j
 public class UserService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private GroupRepository groupRepository;
-    @Autowired
     private LdapTemplate ldapTemplate;
+    @Autowired
+    private DirectoryEnumerationService directoryEnumerationService;
+    
+    @Value("${spring.ldap.urls}")
+    private String ldapUrls;
+    @Value("${ldap.cache.ttl:10m}")
+    private Duration cacheTtl;
+    @Value("${ldap.cache.negative-ttl:1m}")
+    private Duration cacheNegativeTtl;
+    @Value("${ldap.cache.max-size:5000}")
+    private int cacheMaxSize;
+    @Value("${ldap.group-cache.ttl:6h}")
+    private Duration groupCacheTtl;
+    @Value("${ldap.group-cache.max-size:2000}")
+    private int groupCacheMaxSize;
+    @Value("${ldap.group-cache.batch-size:50}")
+    private int groupBatchSize;
+    
+    private LdapCache<String, UserEntry> userBySAMAccountName;
+    private LdapCache<String, UserEntry> userByMail;
+    private LdapCache<String, UserEntry> userByCn;
+    private LdapCache<String, UserIdentity> identityBySAMAccountName;
+    private LdapCache<String, UserContact> contactBySAMAccountName;
+    private LdapCache<String, GroupEntry> groupByDn;
+    
+    @PostConstruct
+    void initCaches() {
+        userBySAMAccountName = new LdapCache<>("userBySAMAccountName", cacheTtl, cacheNegativeTtl, cacheMaxSize);
+        userByMail = new LdapCache<>("userByMail", cacheTtl, cacheNegativeTtl, cacheMaxSize);
+        userByCn = new LdapCache<>("userByCn", cacheTtl, cacheNegativeTtl, cacheMaxSize);
+        identityBySAMAccountName = new LdapCache<>("identityBySAMAccountName", cacheTtl, cacheNegativeTtl, cacheMaxSize);
+        contactBySAMAccountName = new LdapCache<>("contactBySAMAccountName", cacheTtl, cacheNegativeTtl, cacheMaxSize);
+        // Gruppen ändern sich selten, daher längere TTL; auch nicht gefundene DNs (z.B. außerhalb von OU=Groups) werden so lange gemerkt
+        groupByDn = new LdapCache<>("groupByDn", groupCacheTtl, groupCacheTtl, groupCacheMaxSize);
+    }
     
     public Optional<UserEntry> findByCommonName(String cn, boolean loadGroups) {
-        Optional<UserEntry> user = userRepository.findByCn(cn);
+        Optional<UserEntry> user = copy(userByCn.get(cacheKey(cn), key -> userRepository.findByCn(cn)));
         if (loadGroups) {
             user.ifPresent(this::loadGroupMembers);
         }
@@ -58,18 +102,158 @@ public class UserService {
     }
     
     private void loadGroupMembers(UserEntry lehrer) {
-        Set<GroupEntry> groups =
-                lehrer.getMemberOf().stream().map(member -> groupRepository.findByCn(Util.getCnFromName(member)).orElse(null)).filter(Objects::nonNull).collect(Collectors.toSet());
-        lehrer.setGroups(groups);
+        lehrer.setGroups(resolveGroups(lehrer.getMemberOf()));
+    }
+    
+    /**
+     * Löst die Gruppen zu den übergebenen DNs (z.B. memberOf) auf.
+     * Gecachte Gruppen werden direkt übernommen, alle übrigen werden gesammelt mit einer OR-Filter-Abfrage
+     * je {@code ldap.group-cache.batch-size} DNs geladen, statt eine Abfrage pro Gruppe abzusetzen.
+     *
+     * @param groupDns Die DNs der Gruppen.
+     * @return Die gefundenen Gruppen.
+     */
+    public Set<GroupEntry> resolveGroups(Collection<Name> groupDns) {
+        if (groupDns == null || groupDns.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<String> keys = groupDns.stream().map(dn -> cacheKey(dn.toString())).toList();
+        return new HashSet<>(groupByDn.getAll(keys, this::findGroupsByDn).values());
+    }
+    
+    private Map<String, GroupEntry> findGroupsByDn(List<String> dns) {
+        Map<String, GroupEntry> result = new HashMap<>();
+        for (int from = 0; from < dns.size(); from += groupBatchSize) {
+            OrFilter filter = new OrFilter();
+            for (String dn : dns.subList(from, Math.min(from + groupBatchSize, dns.size()))) {
+                filter.or(new EqualsFilter("distinguishedName", dn));
+            }
+            List<GroupEntry> groups = ldapTemplate.find(LdapQueryBuilder.query().base(EntryBase.GROUP).filter(filter), GroupEntry.class);
+            for (GroupEntry group : groups) {
+                result.put(cacheKey(group.getDistinguishedName()), group);
+            }
+        }
+        return result;
     }
 
     public Optional<UserEntry> findByMail(String email) {
-        Optional<UserEntry> user = userRepository.findByMail(email);
-        return user;
+        return copy(userByMail.get(cacheKey(email), key -> userRepository.findByMail(email)));
     }
     public Optional<UserEntry> findBysAMAccountName(String sAMAccountName) {
-        Optional<UserEntry> user = userRepository.findBysAMAccountName(sAMAccountName);
-        return user;
+        return copy(userBySAMAccountName.get(cacheKey(sAMAccountName), key -> userRepository.findBysAMAccountName(sAMAccountName)));
+    }
+    
+    /**
+     * Entfernt einen Benutzer aus allen Benutzer-Caches, z.B. nachdem er im AD geändert wurde.
+     *
+     * @param sAMAccountName Der sAMAccountName des Benutzers.
+     */
+    public void invalidateUser(String sAMAccountName) {
+        String key = cacheKey(sAMAccountName);
+        userBySAMAccountName.invalidate(key);
+        identityBySAMAccountName.invalidate(key);
+        contactBySAMAccountName.invalidate(key);
+        userByMail.invalidateIf(user -> key.equals(cacheKey(user.getSAMAccountName())));
+        userByCn.invalidateIf(user -> key.equals(cacheKey(user.getSAMAccountName())));
+    }
+    
+    /**
+     * Leert alle Benutzer- und Gruppen-Caches.
+     */
+    public void invalidateAllCaches() {
+        userBySAMAccountName.invalidateAll();
+        userByMail.invalidateAll();
+        userByCn.invalidateAll();
+        identityBySAMAccountName.invalidateAll();
+        contactBySAMAccountName.invalidateAll();
+        groupByDn.invalidateAll();
+    }
+    
+    public List<CacheStats> getCacheStats() {
+        return List.of(userBySAMAccountName.getStats(), userByMail.getStats(), userByCn.getStats(),
+                identityBySAMAccountName.getStats(), contactBySAMAccountName.getStats(), groupByDn.getStats());
+    }
+    
+    /**
+     * Gecachte Einträge werden von allen Threads geteilt. Aufrufer erhalten daher eine Kopie, die sie verändern dürfen,
+     * z.B. beim Nachladen der Gruppen.
+     */
+    private static Optional<UserEntry> copy(Optional<UserEntry> user) {
+        return user.map(entry -> entry.toBuilder()
+                .memberOf(entry.getMemberOf() != null ? new HashSet<>(entry.getMemberOf()) : null)
+                .groups(entry.getGroups() != null ? new HashSet<>(entry.getGroups()) : null)
+                .build());
+    }
+    
+    /**
+     * AD vergleicht sAMAccountName, mail und cn case-insensitiv, daher werden auch die Cache-Keys normalisiert.
+     */
+    private static String cacheKey(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Lädt nur die Attribute des Profils {@link UserProjection#IDENTITY}.
+     * Für Aufrufer, die lediglich Namen, Mail oder Kennzahl benötigen, bzw. nur die Existenz prüfen.
+     */
+    public Optional<UserIdentity> findIdentityBysAMAccountName(String sAMAccountName) {
+        return identityBySAMAccountName.get(cacheKey(sAMAccountName),
+                key -> findProjectedBysAMAccountName(sAMAccountName, UserProjection.IDENTITY, this::mapIdentity));
+    }
+    
+    /**
+     * Lädt nur die Attribute des Profils {@link UserProjection#CONTACT}, inkl. memberOf.
+     */
+    public Optional<UserContact> findContactBysAMAccountName(String sAMAccountName) {
+        return contactBySAMAccountName.get(cacheKey(sAMAccountName),
+                key -> findProjectedBysAMAccountName(sAMAccountName, UserProjection.CONTACT, this::mapContact));
+    }
+    
+    private <T> Optional<T> findProjectedBysAMAccountName(String sAMAccountName, UserProjection projection, AttributesMapper<T> mapper) {
+        LdapQuery query = LdapQueryBuilder.query()
+                .base(EntryBase.PEOPLE)
+                .attributes(projection.getAttributes())
+                .countLimit(1)
+                .where("objectclass").is("user")
+                .and("sAMAccountName").is(sAMAccountName);
+        return ldapTemplate.search(query, mapper).stream().findFirst();
+    }
+    
+    private UserIdentity mapIdentity(Attributes attrs) throws NamingException {
+        return new UserIdentity(
+                getAttribute(attrs, "sAMAccountName"),
+                getAttribute(attrs, "cn"),
+                getAttribute(attrs, "name"),
+                getAttribute(attrs, "displayName"),
+                getAttribute(attrs, "givenName"),
+                getAttribute(attrs, "sn"),
+                getAttribute(attrs, "mail"),
+                getAttribute(attrs, "employeeID"),
+                getAttribute(attrs, "employeeNumber"));
+    }
+    
+    private UserContact mapContact(Attributes attrs) throws NamingException {
+        Set<Name> memberOf = new HashSet<>();
+        Attribute memberOfAttr = attrs.get("memberOf");
+        if (memberOfAttr != null) {
+            NamingEnumeration<?> values = memberOfAttr.getAll();
+            while (values.hasMore()) {
+                memberOf.add(new LdapName(values.next().toString()));
+            }
+        }
+        return new UserContact(
+                mapIdentity(attrs),
+                memberOf,
+                getAttribute(attrs, "userPrincipalName"),
+                getAttribute(attrs, "department"),
+                getAttribute(attrs, "info"),
+                getAttribute(attrs, "employeeType"),
+                getAttribute(attrs, "uSNChanged"));
+    }
+    
+    private static String getAttribute(Attributes attrs, String name) throws NamingException {
+        Attribute attr = attrs.get(name);
+        return attr != null && attr.get() != null ? attr.get().toString() : null;
     }
     
     /**
@@ -94,36 +278,84 @@ public class UserService {
     
     /**
      * Sammelt alle sAMAccountNames aus dem LDAP, die dem angegebenen Filter entsprechen, mithilfe der Paging-Methode.
+     * Die Partitionen des Verzeichnisses werden dabei parallel durchsucht, die Reihenfolge ist daher nicht festgelegt.
      *
      * @param filter Der LDAP-Filter, der angewendet werden soll.
      * @return Eine Liste der gesammelten sAMAccountNames.
      */
     public List<String> collectAllSAMAccountNamesPaged(String filter) {
         List<String> result = new ArrayList<>();
-        String baseDn = "";
-        SearchControls controls = new SearchControls();
-        controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
-        controls.setReturningAttributes(new String[]{"sAMAccountName"});
-        
-        int pageSize = 200;
-        PagedResultsCookie cookie = null;
-        
-        do {
-            PagedResultsDirContextProcessor pager = new PagedResultsDirContextProcessor(pageSize, cookie);
-            List<String> pageSAMs = ldapTemplate.search(
-                    baseDn,
-                    filter,
-                    controls,
-                    this::extractSamAccountName,
-                    pager
-            );
-            result.addAll(pageSAMs);
-            cookie = pager.getCookie();
-        } while (cookie != null && cookie.getCookie() != null);
-        
+        directoryEnumerationService.enumerate(filter, new String[]{"sAMAccountName"}, this::extractSamAccountName, result::addAll);
         return result;
     }
     
+    /**
+     * Durchläuft alle Benutzer, die dem Filter entsprechen, seitenweise und übergibt jede Seite an den {@code pageConsumer}.
+     * Im Gegensatz zu {@link #collectAllSAMAccountNamesPaged(String)} mit anschließender Einzelabfrage pro Benutzer
+     * werden die Attribute des Profils {@link UserProjection#CONTACT} (inkl. memberOf) direkt in der Paging-Suche geladen.
+     * Es wird nie die gesamte Ergebnismenge im Speicher gehalten.
+     * Die geladenen Einträge werden zusätzlich in die Identity-/Contact-Caches übernommen.
+     * Die Seiten stammen aus parallel durchsuchten Partitionen, der {@code pageConsumer} wird aber nie gleichzeitig aufgerufen.
+     *
+     * @param filter       Der LDAP-Filter, der angewendet werden soll.
+     * @param pageConsumer Verarbeitet jeweils eine Seite von Benutzern.
+     * @return Die Gesamtanzahl der verarbeiteten Benutzer.
+     */
+    public int streamUsersPaged(String filter, Consumer<List<UserContact>> pageConsumer) {
+        // Einträge ohne sAMAccountName verwirft bereits der Mapper, damit sie auch nicht mitgezählt werden
+        AttributesMapper<UserContact> mapper = attrs -> {
+            UserContact user = mapContact(attrs);
+            return user.identity().sAMAccountName() != null ? user : null;
+        };
+        long total = directoryEnumerationService.enumerate(filter, UserProjection.CONTACT.getAttributes(), mapper, page -> {
+            for (UserContact user : page) {
+                String key = cacheKey(user.identity().sAMAccountName());
+                contactBySAMAccountName.put(key, user);
+                identityBySAMAccountName.put(key, user.identity());
+            }
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+            }
+        });
+        return Math.toIntExact(total);
+    }
+    
+    /**
+     * Wie {@link #streamUsersPaged(String, Consumer)}, liefert aber nur Benutzer, deren {@code uSNChanged}
+     * größer als die übergebene Marke ist. Achtung: uSNChanged wird nicht repliziert und ist nur in Bezug auf
+     * denselben Domain Controller aussagekräftig.
+     *
+     * @param filter       Der LDAP-Filter, der angewendet werden soll.
+     * @param usnChanged   Die zuletzt verarbeitete uSNChanged-Marke.
+     * @param pageConsumer Verarbeitet jeweils eine Seite von Benutzern.
+     * @return Die Gesamtanzahl der verarbeiteten Benutzer.
+     */
+    public int streamUsersChangedSincePaged(String filter, long usnChanged, Consumer<List<UserContact>> pageConsumer) {
+        return streamUsersPaged("(&" + filter + "(uSNChanged>=" + (usnChanged + 1) + "))", pageConsumer);
+    }
+    
+    /**
+     * Liest {@code highestCommittedUSN} aus dem RootDSE des Domain Controllers. Vor einer Suche gelesen, ist das die
+     * sichere neue Marke für {@link #streamUsersChangedSincePaged}: Alle bis dahin festgeschriebenen Änderungen liefert
+     * die folgende Suche, spätere (auch solche, die während der Suche passieren) der nächste Lauf. Das Maximum der
+     * gelesenen uSNChanged-Werte taugt dafür nicht, da Seiten aus verschiedenen Partitionen zu verschiedenen
+     * Zeitpunkten gelesen werden.
+     *
+     * @return Die USN oder leer, falls der Server sie nicht liefert (kein Active Directory) oder nicht erreichbar ist.
+     */
+    public Optional<Long> findHighestCommittedUsn() {
+        // Der RootDSE liegt außerhalb von spring.ldap.base, daher über die URL ohne Basis-DN
+        String rootDse = ldapUrls.trim().split("[,\\s]+")[0].replaceAll("/+$", "") + "/";
+        try {
+            String usn = ldapTemplate.executeReadOnly(ctx ->
+                    getAttribute(ctx.getAttributes(rootDse, new String[]{"highestCommittedUSN"}), "highestCommittedUSN"));
+            return Optional.ofNullable(usn).map(String::trim).map(Long::valueOf);
+        } catch (RuntimeException e) {
+            log.warn("highestCommittedUSN konnte nicht aus dem RootDSE gelesen werden: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
     /**
      * Extrahiert den sAMAccountName aus den LDAP-Attributen.
      *
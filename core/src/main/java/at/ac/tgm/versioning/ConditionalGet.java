@@ -0,0 +1,19 @@
+package at.ac.tgm.versioning;
+
+import java.lang.annotation.*;
+
+/**
+ * Markiert einen GET-Endpunkt, dessen Antwort nur von den angegebenen Entitäten abhängt. Der Server beantwortet
+ * Anfragen mit passendem {@code If-None-Match} bzw. {@code If-Modified-Since} dann mit 304, ohne die Methode aufzurufen.
+ * Die ETag enthält auch Benutzer und Query-String, daher sind benutzerbezogene Antworten erlaubt.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConditionalGet {
+
+    /**
+     * Entitäten, deren Änderung die Antwort ändern kann.
+     */
+    Class<?>[] value();
+}
@@ -0,0 +1,97 @@
+package at.ac.tgm.versioning;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ein Änderungszähler pro Entität, Grundlage für die ETags von {@link ConditionalGet}-Endpunkten.
+ * <p>
+ * Änderungen über den EntityManager zählt ein Hibernate-Listener im Server mit. Massen-Updates per JPQL oder SQL
+ * umgehen Hibernate, dort muss {@link #markChanged(Class[])} selbst aufgerufen werden. Gezählt wird erst nach dem
+ * Commit, sonst könnte eine gleichzeitige Anfrage alte Daten unter der neuen Version ausliefern.
+ */
+@Component
+public class EntityVersions {
+
+    private static final Object PENDING_KEY = new Object();
+
+    // Zähler beginnen bei jedem Start neu, die Startzeit unterscheidet die ETags
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    private static class Version {
+        private final AtomicLong counter = new AtomicLong();
+        private volatile long lastModified;
+    }
+
+    /**
+     * Stand einer Menge von Entitäten: die Summe ihrer Zähler und der letzte Änderungszeitpunkt.
+     */
+    public record Snapshot(long startedAt, long version, long lastModified) {
+    }
+
+    /**
+     * Merkt die Entitäten als geändert, innerhalb einer Transaktion erst nach deren Commit.
+     */
+    public void markChanged(Class<?>... entityClasses) {
+        for (Class<?> entityClass : entityClasses) {
+            markChanged(entityClass.getName());
+        }
+    }
+
+    /**
+     * @param entityName Hibernate-Entitätsname, d.h. der voll qualifizierte Klassenname.
+     */
+    @SuppressWarnings("unchecked")
+    public void markChanged(String entityName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(entityName);
+            return;
+        }
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            Set<String> names = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, names);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                    if (status == STATUS_COMMITTED) {
+                        names.forEach(EntityVersions.this::increment);
+                    }
+                }
+            });
+            pending = names;
+        }
+        pending.add(entityName);
+    }
+
+    /**
+     * Zählt sofort, für Aufrufer, die bereits nach dem Commit laufen.
+     */
+    public void increment(String entityName) {
+        Version version = versions.computeIfAbsent(entityName, name -> new Version());
+        version.lastModified = System.currentTimeMillis();
+        version.counter.incrementAndGet();
+    }
+
+    public Snapshot snapshot(Class<?>... entityClasses) {
+        long sum = 0;
+        long lastModified = startedAt;
+        for (Class<?> entityClass : entityClasses) {
+            Version version = versions.get(entityClass.getName());
+            if (version != null) {
+                sum += version.counter.get();
+                lastModified = Math.max(lastModified, version.lastModified);
+            }
+        }
+        return new Snapshot(startedAt, sum, lastModified);
+    }
+}
@@ -3,6 +3,7 @@ package at.ac.tgm.controller;
 import at.ac.tgm.ad.Roles;
 import at.ac.tgm.entity.Betreuer;
 import at.ac.tgm.service.BetreuerService;
+import at.ac.tgm.versioning.ConditionalGet;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -27,7 +28,7 @@ import static at.ac.tgm.Consts.DIPLOMDB_PATH_PREFIX;
  *
  * Verfügbare Endpunkte:
  * - POST /api/betreuer/refresh:
- *   Aktualisiert die Betreuerliste durch einen Import aus dem LDAP-Verzeichnis.
+ *   Aktualisiert die Betreuerliste durch einen Import aus dem LDAP-Verzeichnis (inkrementell, mit "full=true" vollständig).
  * - GET /api/betreuer:
  *   Ruft die Liste der Betreuer ab, optional gefiltert nach Suchbegriff, Status und
  *   sortiert nach einem angegebenen Feld.
@@ -53,8 +54,10 @@ public class BetreuerController {
 
     /**
      * Aktualisiert die Betreuerliste aus dem LDAP-Verzeichnis.
+     * Standardmäßig werden nur seit dem letzten Lauf geänderte Einträge übernommen.
      * Nur Benutzer mit der Rolle ADMIN haben Zugriff.
      *
+     * @param full true, um alle Einträge neu zu laden.
      * @return ResponseEntity mit einer Bestätigungsmeldung, dass die Betreuerliste erfolgreich aktualisiert wurde.
      */
     @Secured(Roles.ADMIN)
@@ -63,9 +66,9 @@ public class BetreuerController {
             responseCode = "200", description = "ResponseEntity mit einer Bestätigungsmeldung, dass die Betreuerliste erfolgreich aktualisiert wurde."
     )})
     @PostMapping("/refresh")
-    public ResponseEntity<String> refreshBetreuerList() {
-        LOGGER.info("Refreshing Betreuer list from LDAP...");
-        betreuerService.refreshBetreuerListFromLDAP();
+    public ResponseEntity<String> refreshBetreuerList(@RequestParam(defaultValue = "false") boolean full) {
+        LOGGER.info("Refreshing Betreuer list from LDAP (full={})...", full);
+        betreuerService.refreshBetreuerListFromLDAP(full);
         AUDIT_LOGGER.info("Die Betreuerliste wurde aus dem LDAP-Verzeichnis aktualisiert (Admin-Aktion).");
         return ResponseEntity.ok("Betreuerliste wurde aktualisiert.");
     }
@@ -82,6 +85,7 @@ public class BetreuerController {
      * @return ResponseEntity mit der Liste der Betreuer, die den angegebenen Kriterien entsprechen.
      */
     @Secured({Roles.STUDENT, Roles.TEACHER, Roles.ADMIN})
+    @ConditionalGet(Betreuer.class)
     @Operation(
             summary = "Ruft eine Liste von Betreuern ab.",
             description = "Es können optionale Parameter zur Filterung und Sortierung angegeben werden.",
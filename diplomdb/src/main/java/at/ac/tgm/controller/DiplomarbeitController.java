@@ -14,6 +14,7 @@ import at.ac.tgm.repository.DiplomarbeitRepository;
 import at.ac.tgm.repository.DokumentRepository;
 import at.ac.tgm.repository.MeilensteinRepository;
 import at.ac.tgm.service.BetreuerService;
+import at.ac.tgm.versioning.ConditionalGet;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -456,6 +457,7 @@ public class DiplomarbeitController {
      * URL: /api/projects
      */
     @Secured({Roles.STUDENT, Roles.TEACHER, Roles.ADMIN})
+    @ConditionalGet(Diplomarbeit.class)
     @Operation(
             summary     = "Ruft alle Projekte ab, optional gefiltert nach Suchbegriff, Datumsbereich, Status und sortiert.",
             description = "Ermöglicht das Abrufen aller Projekte mit optionalen Query-Parametern zur Filterung und Sortierung.",
@@ -738,7 +740,7 @@ public class DiplomarbeitController {
      * Hilfsfunktion zur Überprüfung, ob ein Benutzer im LDAP-Verzeichnis existiert.
      */
     private boolean userExistsInLdap(String sAMAccountName) {
-        return userService.findBysAMAccountName(sAMAccountName).isPresent();
+        return userService.findIdentityBysAMAccountName(sAMAccountName).isPresent();
     }
 
 }
\ No newline at end of file
@@ -548,6 +548,6 @@ public class DokumentController {
      * @return true, falls der Benutzer existiert, andernfalls false.
      */
     private boolean userExistsInLdap(String sAMAccountName) {
-        return userService.findBysAMAccountName(sAMAccountName).isPresent();
+        return userService.findIdentityBysAMAccountName(sAMAccountName).isPresent();
     }
 }
@@ -20,13 +20,13 @@ import static at.ac.tgm.Consts.DIPLOMDB_PATH_PREFIX;
 /**
  * Controller zur Verwaltung der Schülerdaten.
  *
- * Dieser Controller bietet Endpunkte zum Aktualisieren (LDAP-Import mit Clean Slate) und zum Abrufen
- * der Schülerliste. Die Aktualisierung berücksichtigt den Jahrgang (4 oder 5) und löscht vor dem Import
- * alle vorhandenen Einträge.
+ * Dieser Controller bietet Endpunkte zum Aktualisieren (LDAP-Import) und zum Abrufen
+ * der Schülerliste. Die Aktualisierung berücksichtigt den Jahrgang (4 oder 5) und lädt standardmäßig nur die seit
+ * dem letzten Lauf geänderten Einträge. Eine vollständige Synchronisation löscht danach die nicht mehr gefundenen Schüler des Jahrgangs.
  *
  * Verfügbare Endpunkte:
- * - POST /api/schueler/refresh: Löscht alle bestehenden Schülerdaten und importiert neue Daten aus dem LDAP-Verzeichnis.
- *   Erfordert den Parameter "year" mit den Werten "4" oder "5".
+ * - POST /api/schueler/refresh: Aktualisiert die Schülerdaten aus dem LDAP-Verzeichnis.
+ *   Erfordert den Parameter "year" mit den Werten "4" oder "5", optional "full=true" für einen vollständigen Abgleich des Jahrgangs.
  * - GET /api/schueler: Ruft die Schülerliste ab, optional gefiltert nach einem Suchbegriff und sortiert nach einem angegebenen Feld.
  */
 @RestController
@@ -37,19 +37,22 @@ public class SchuelerController {
     private SchuelerService schuelerService;
 
     /**
-     * Aktualisiert die Schülerliste für den angegebenen Jahrgang durch einen Neuimport aus dem LDAP-Verzeichnis.
-     * Vorher werden alle vorhandenen Einträge gelöscht (Clean Slate).
+     * Aktualisiert die Schülerliste für den angegebenen Jahrgang aus dem LDAP-Verzeichnis.
+     * Standardmäßig werden nur seit dem letzten Lauf geänderte Einträge übernommen. Mit {@code full=true}
+     * (beim ersten Lauf bzw. regelmäßig nach {@code diplomdb.ldap-sync.full-interval}) werden alle Schüler des Jahrgangs
+     * übernommen und die nicht mehr gefundenen Schüler dieses Jahrgangs gelöscht.
      *
      * HTTP-Methode: POST
-     * URL: /api/schueler/refresh?year=4 oder /api/schueler/refresh?year=5
+     * URL: /api/schueler/refresh?year=4 oder /api/schueler/refresh?year=5&full=true
      *
      * @param year Der Jahrgang, für den die Schülerdaten importiert werden sollen ("4" oder "5").
+     * @param full true für eine vollständige Synchronisation.
      * @return ResponseEntity mit einer Bestätigungsmeldung oder einer Fehlermeldung bei ungültigem Jahrgang.
      */
     @Secured(Roles.ADMIN)
     @Operation(
-            summary     = "Aktualisiert die Schülerliste für den angegebenen Jahrgang durch Neuimport aus LDAP.",
-            description = "Löscht alle bestehenden Einträge und importiert neue Schülerdaten aus dem LDAP-Verzeichnis (Clean Slate).",
+            summary     = "Aktualisiert die Schülerliste für den angegebenen Jahrgang aus LDAP.",
+            description = "Übernimmt nur seit dem letzten Lauf geänderte Einträge. Mit full=true werden alle Schüler des Jahrgangs abgeglichen und nicht mehr gefundene gelöscht.",
             parameters  = {
                     @Parameter(
                             name        = "year",
@@ -57,6 +60,13 @@ public class SchuelerController {
                             description = "Der Jahrgang, für den die Schülerdaten importiert werden sollen (\"4\" oder \"5\").",
                             required    = true,
                             schema      = @Schema(type = "string", allowableValues = {"4","5"})
+                    ),
+                    @Parameter(
+                            name        = "full",
+                            in          = ParameterIn.QUERY,
+                            description = "true für eine vollständige Synchronisation des Jahrgangs, Standard ist false.",
+                            required    = false,
+                            schema      = @Schema(type = "boolean", defaultValue = "false")
                     )
             },
             responses   = {
@@ -65,12 +75,13 @@ public class SchuelerController {
             }
     )
     @PostMapping("/refresh")
-    public ResponseEntity<String> refreshSchuelerList(@RequestParam String year) {
+    public ResponseEntity<String> refreshSchuelerList(@RequestParam String year,
+                                                      @RequestParam(defaultValue = "false") boolean full) {
         if (!("4".equals(year) || "5".equals(year))) {
             return ResponseEntity.badRequest().body("Ungültiger Parameter year, nur '4' oder '5' erlaubt.");
         }
-        schuelerService.refreshSchuelerListFromLDAP(year);
-        return ResponseEntity.ok("Schuelerliste für Jahrgang " + year + " (Clean Slate) aktualisiert.");
+        schuelerService.refreshSchuelerListFromLDAP(year, full);
+        return ResponseEntity.ok("Schuelerliste für Jahrgang " + year + (full ? " (vollständig)" : "") + " aktualisiert.");
     }
 
     /**
@@ -74,8 +74,8 @@ public class UserController {
     @GetMapping("/test-ldap-user/{samAccountName}")
     public ResponseEntity<String> testLdapUser(@PathVariable String samAccountName) {
         LOGGER.debug("Test LDAP user: {}", samAccountName);
-        return userService.findBysAMAccountName(samAccountName)
-                .map(user -> ResponseEntity.ok("User gefunden: " + user.getDisplayName()))
+        return userService.findIdentityBysAMAccountName(samAccountName)
+                .map(user -> ResponseEntity.ok("User gefunden: " + user.displayName()))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -0,0 +1,48 @@
+package at.ac.tgm.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+import static at.ac.tgm.Consts.DIPLOMDB_TABLE_PREFIX;
+
+/**
+ * Entität zur Speicherung des Synchronisationsstands eines LDAP-Refresh-Jobs.
+ * Pro Job (z.B. "betreuer" oder "schueler-4") wird die höchste bereits verarbeitete uSNChanged-Marke gespeichert,
+ * damit der nächste Lauf nur noch geänderte Einträge abfragen muss.
+ */
+@Entity
+@Table(name = DIPLOMDB_TABLE_PREFIX + "ldap_sync_state")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LdapSyncState {
+
+    /**
+     * Eindeutiger Name des Refresh-Jobs.
+     */
+    @Id
+    @Column(name = "sync_key", nullable = false, unique = true)
+    private String syncKey;
+
+    /**
+     * Höchste bisher verarbeitete uSNChanged-Marke.
+     */
+    private Long highestUsn;
+
+    /**
+     * Zeitpunkt der letzten Synchronisation (inkrementell oder vollständig).
+     */
+    private LocalDateTime lastSyncAt;
+
+    /**
+     * Zeitpunkt der letzten vollständigen Synchronisation.
+     */
+    private LocalDateTime lastFullSyncAt;
+}
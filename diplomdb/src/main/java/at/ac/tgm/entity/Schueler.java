@@ -6,6 +6,8 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 import static at.ac.tgm.Consts.DIPLOMDB_TABLE_PREFIX;
 
 /**
@@ -48,4 +50,14 @@ public class Schueler {
      * Anzeigename des Schülers.
      */
     private String displayName;
+
+    /**
+     * Jahrgang ("4" oder "5"), über dessen Gruppen der Schüler zuletzt aus dem LDAP übernommen wurde.
+     */
+    private String jahrgang;
+
+    /**
+     * Beginn der letzten Synchronisation, in der der Schüler im LDAP gefunden wurde.
+     */
+    private LocalDateTime lastSeenAt;
 }
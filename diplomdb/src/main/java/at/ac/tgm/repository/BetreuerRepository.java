@@ -2,11 +2,21 @@ package at.ac.tgm.repository;
 
 import at.ac.tgm.entity.Betreuer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BetreuerRepository extends JpaRepository<Betreuer, Long> {
     Optional<Betreuer> findBySamAccountNameIgnoreCase(String samAccountName);
+
+    /**
+     * @param samAccountNames sAMAccountNames in Kleinbuchstaben.
+     */
+    @Query("SELECT b FROM Betreuer b WHERE LOWER(b.samAccountName) IN :samAccountNames")
+    List<Betreuer> findAllBySamAccountNameLowerIn(@Param("samAccountNames") Collection<String> samAccountNames);
 }
@@ -0,0 +1,9 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.entity.LdapSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LdapSyncStateRepository extends JpaRepository<LdapSyncState, String> {
+}
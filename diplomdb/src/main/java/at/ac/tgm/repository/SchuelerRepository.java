@@ -2,11 +2,25 @@ package at.ac.tgm.repository;
 
 import at.ac.tgm.entity.Schueler;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface SchuelerRepository extends JpaRepository<Schueler, String> {
     Optional<Schueler> findBySamAccountNameIgnoreCase(String samAccountName);
+
+    /**
+     * Löscht die Schüler eines Jahrgangs, die in der vollständigen Synchronisation ab {@code syncStart} nicht mehr
+     * gefunden wurden, d.h. das TGM verlassen haben oder in eine andere Gruppe gewechselt sind.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Schueler s WHERE s.jahrgang = :jahrgang AND (s.lastSeenAt IS NULL OR s.lastSeenAt < :syncStart)")
+    int deleteByJahrgangNotSeenSince(@Param("jahrgang") String jahrgang, @Param("syncStart") LocalDateTime syncStart);
 }
@@ -1,5 +1,7 @@
 package at.ac.tgm.service;
 
+import at.ac.tgm.ad.entry.UserContact;
+import at.ac.tgm.ad.entry.UserIdentity;
 import at.ac.tgm.ad.service.UserService;
 import at.ac.tgm.entity.Betreuer;
 import at.ac.tgm.exception.ResourceNotFoundException;
@@ -24,14 +26,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class BetreuerService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BetreuerService.class);
+    private static final String SYNC_KEY = "betreuer";
 
     @Autowired
     private UserService userService;
@@ -39,6 +46,9 @@ public class BetreuerService {
     @Autowired
     private BetreuerRepository betreuerRepository;
 
+    @Autowired
+    private LdapSyncService ldapSyncService;
+
     /**
      * Exportiert die Betreuerliste als CSV-Datei.
      *
@@ -232,26 +242,42 @@ public class BetreuerService {
     /**
      * Aktualisiert die Betreuerliste aus dem LDAP.
      * Dabei wird nun auch ein Lehrer automatisch als Betreuer angelegt, falls er in LDAP vorhanden ist.
+     * Ist bereits ein Synchronisationsstand vorhanden, werden nur seit dem letzten Lauf geänderte Einträge geladen.
+     *
+     * @param full true, um unabhängig vom gespeicherten Stand alle Einträge zu laden.
      */
-    public void refreshBetreuerListFromLDAP() {
-        LOGGER.info("Aktualisiere Betreuerliste aus LDAP ...");
-        List<String> allSAMs = userService.collectAllSAMAccountNamesPaged();
-        for (String sam : allSAMs) {
-            // Auto-add teacher if not existing
-            Betreuer b = betreuerRepository.findBySamAccountNameIgnoreCase(sam)
-                    .orElseGet(() -> findeOderErstelleBetreuer(sam));
-            userService.findBysAMAccountNameWithGroups(sam).ifPresent(user -> {
-                b.setVorname(user.getGivenName());
-                b.setNachname(user.getSn());
-                b.setEmail(user.getMail());
-                b.setDisplayName(user.getDisplayName());
+    public void refreshBetreuerListFromLDAP(boolean full) {
+        Optional<Long> highWaterMark = full ? Optional.empty() : ldapSyncService.getHighWaterMark(SYNC_KEY);
+        LOGGER.info("Aktualisiere Betreuerliste aus LDAP ({}) ...",
+                highWaterMark.map(usn -> "inkrementell ab uSNChanged " + usn).orElse("vollständig"));
+        // Marke vor der Suche, siehe UserService#findHighestCommittedUsn (ohne Wert bleibt die bisherige Marke)
+        long newHighWaterMark = userService.findHighestCommittedUsn().orElse(highWaterMark.orElse(0L));
+        // Benutzer werden seitenweise inkl. Attributen geladen, bestehende Betreuer mit einer Abfrage pro Seite
+        Consumer<List<UserContact>> pageConsumer = page -> {
+            Map<String, Betreuer> existing = new HashMap<>();
+            List<String> keys = page.stream().map(contact -> contact.identity().sAMAccountName().toLowerCase(Locale.ROOT)).toList();
+            for (Betreuer b : betreuerRepository.findAllBySamAccountNameLowerIn(keys)) {
+                existing.put(b.getSamAccountName().toLowerCase(Locale.ROOT), b);
+            }
+            for (UserContact contact : page) {
+                UserIdentity user = contact.identity();
+                // Auto-add teacher if not existing
+                Betreuer b = existing.computeIfAbsent(user.sAMAccountName().toLowerCase(Locale.ROOT), key -> neuerBetreuer(user.sAMAccountName()));
+                b.setVorname(user.givenName());
+                b.setNachname(user.sn());
+                b.setEmail(user.mail());
+                b.setDisplayName(user.displayName());
                 if (b.getStatus() == null) {
                     b.setStatus("verfügbar");
                 }
-                betreuerRepository.save(b);
-            });
-        }
-        LOGGER.info("Betreuer-Refresh abgeschlossen. Anzahl der aktualisierten Einträge: {}", allSAMs.size());
+            }
+            betreuerRepository.saveAll(existing.values());
+        };
+        int count = highWaterMark.isPresent()
+                ? userService.streamUsersChangedSincePaged("(objectClass=user)", highWaterMark.get(), pageConsumer)
+                : userService.streamUsersPaged("(objectClass=user)", pageConsumer);
+        ldapSyncService.saveHighWaterMark(SYNC_KEY, newHighWaterMark, highWaterMark.isEmpty());
+        LOGGER.info("Betreuer-Refresh abgeschlossen. Anzahl der aktualisierten Einträge: {}", count);
     }
 
     /**
@@ -267,23 +293,28 @@ public class BetreuerService {
         if (existing.isPresent()) {
             return existing.get();
         }
-        return userService.findBysAMAccountName(samAccountName)
+        return userService.findIdentityBysAMAccountName(samAccountName)
                 .map(ldapUser -> {
-                    Betreuer neuerBetreuer = new Betreuer();
-                    neuerBetreuer.setSamAccountName(samAccountName);
-                    neuerBetreuer.setVorname(ldapUser.getGivenName());
-                    neuerBetreuer.setNachname(ldapUser.getSn());
-                    neuerBetreuer.setEmail(ldapUser.getMail());
-                    neuerBetreuer.setDisplayName(ldapUser.getDisplayName());
-                    neuerBetreuer.setStatus("verfügbar");
-                    neuerBetreuer.setMaxProjekte(3);
-                    neuerBetreuer.setVergebeneProjekte(0);
+                    Betreuer neuerBetreuer = neuerBetreuer(samAccountName);
+                    neuerBetreuer.setVorname(ldapUser.givenName());
+                    neuerBetreuer.setNachname(ldapUser.sn());
+                    neuerBetreuer.setEmail(ldapUser.mail());
+                    neuerBetreuer.setDisplayName(ldapUser.displayName());
                     LOGGER.info("LDAP-Benutzer {} gefunden und als neuer Betreuer erstellt.", samAccountName);
                     return betreuerRepository.save(neuerBetreuer);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Lehrer mit sAMAccountName " + samAccountName + " wurde in LDAP nicht gefunden."));
     }
 
+    private static Betreuer neuerBetreuer(String samAccountName) {
+        Betreuer neuerBetreuer = new Betreuer();
+        neuerBetreuer.setSamAccountName(samAccountName);
+        neuerBetreuer.setStatus("verfügbar");
+        neuerBetreuer.setMaxProjekte(3);
+        neuerBetreuer.setVergebeneProjekte(0);
+        return neuerBetreuer;
+    }
+
     public List<Betreuer> searchBetreuer(String search, String sortField, String sortDirection, String statusFilter) {
         List<Betreuer> all = betreuerRepository.findAll();
         all = all.stream().filter(b -> b.getMaxProjekte() != null).collect(Collectors.toList());
@@ -0,0 +1,67 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.entity.LdapSyncState;
+import at.ac.tgm.repository.LdapSyncStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Service zur Verwaltung der uSNChanged-Marken für die inkrementelle LDAP-Synchronisation.
+ */
+@Service
+public class LdapSyncService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LdapSyncService.class);
+
+    @Autowired
+    private LdapSyncStateRepository syncStateRepository;
+
+    /**
+     * Liefert die zuletzt gespeicherte uSNChanged-Marke eines Jobs.
+     *
+     * @param syncKey Der Name des Refresh-Jobs.
+     * @return Die Marke oder leer, falls noch nie synchronisiert wurde (dann ist eine vollständige Synchronisation nötig).
+     */
+    public Optional<Long> getHighWaterMark(String syncKey) {
+        return syncStateRepository.findById(syncKey).map(LdapSyncState::getHighestUsn);
+    }
+
+    /**
+     * Wie {@link #getHighWaterMark(String)}, liefert aber auch dann leer, wenn die letzte vollständige Synchronisation
+     * länger als {@code fullSyncInterval} zurückliegt. Inkrementelle Läufe sehen nur geänderte Benutzer, nicht aber
+     * geänderte Gruppenmitgliedschaften (uSNChanged ändert sich dabei nur an der Gruppe), daher muss regelmäßig
+     * vollständig abgeglichen werden.
+     */
+    public Optional<Long> getHighWaterMark(String syncKey, Duration fullSyncInterval) {
+        LocalDateTime fullSyncDue = LocalDateTime.now().minus(fullSyncInterval);
+        return syncStateRepository.findById(syncKey)
+                .filter(state -> state.getLastFullSyncAt() != null && state.getLastFullSyncAt().isAfter(fullSyncDue))
+                .map(LdapSyncState::getHighestUsn);
+    }
+
+    /**
+     * Speichert die neue uSNChanged-Marke eines Jobs nach einem erfolgreichen Lauf.
+     *
+     * @param syncKey    Der Name des Refresh-Jobs.
+     * @param highestUsn Der vor der Suche gelesene highestCommittedUSN, ab dem der nächste Lauf sucht.
+     * @param full       true, falls es sich um eine vollständige Synchronisation gehandelt hat.
+     */
+    public void saveHighWaterMark(String syncKey, long highestUsn, boolean full) {
+        LocalDateTime now = LocalDateTime.now();
+        LdapSyncState state = syncStateRepository.findById(syncKey)
+                .orElseGet(() -> LdapSyncState.builder().syncKey(syncKey).build());
+        state.setHighestUsn(highestUsn);
+        state.setLastSyncAt(now);
+        if (full) {
+            state.setLastFullSyncAt(now);
+        }
+        syncStateRepository.save(state);
+        LOGGER.debug("LDAP-Sync-Stand für {} gespeichert: uSNChanged={}", syncKey, highestUsn);
+    }
+}
@@ -67,7 +67,7 @@ public class ProjektBewerbungService {
         }
 
         // Überprüfe, ob der LDAP-Benutzer existiert
-        userService.findBysAMAccountName(bewerbung.getSamAccountName())
+        userService.findIdentityBysAMAccountName(bewerbung.getSamAccountName())
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "LDAP-User nicht gefunden mit samAccountName=" + bewerbung.getSamAccountName()));
 
@@ -153,8 +153,8 @@ public class ProjektBewerbungService {
         // Sortiere die Bewerbungen entweder anhand des DisplayNames (aus LDAP) oder standardmäßig nach der Bewerbung-ID
         if ("displayName".equalsIgnoreCase(sortBy)) {
             all.sort(Comparator.comparing(b -> {
-                return userService.findBysAMAccountName(b.getSamAccountName())
-                        .map(u -> u.getDisplayName() != null ? u.getDisplayName() : u.getCn())
+                return userService.findIdentityBysAMAccountName(b.getSamAccountName())
+                        .map(u -> u.displayName() != null ? u.displayName() : u.cn())
                         .orElse(b.getSamAccountName());
             }, String.CASE_INSENSITIVE_ORDER));
         } else {
@@ -197,9 +197,9 @@ public class ProjektBewerbungService {
 
             // Ermittele den DisplayName aus LDAP (falls vorhanden)
             String displayName = sam;
-            var ldapOpt = userService.findBysAMAccountName(sam);
-            if (ldapOpt.isPresent() && ldapOpt.get().getDisplayName() != null) {
-                displayName = ldapOpt.get().getDisplayName();
+            var ldapOpt = userService.findIdentityBysAMAccountName(sam);
+            if (ldapOpt.isPresent() && ldapOpt.get().displayName() != null) {
+                displayName = ldapOpt.get().displayName();
             }
 
             UserBewerbungOverviewDTO dto = new UserBewerbungOverviewDTO();
@@ -1,20 +1,26 @@
 package at.ac.tgm.service;
 
+import at.ac.tgm.ad.entry.UserContact;
 import at.ac.tgm.ad.service.UserService;
 import at.ac.tgm.entity.Schueler;
 import at.ac.tgm.repository.SchuelerRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Service-Klasse zur Verwaltung der Schülerdaten.
- * Diese Klasse ermöglicht den Import von Schülerdaten aus dem LDAP (Clean Slate)
+ * Diese Klasse ermöglicht den Import von Schülerdaten aus dem LDAP
  * und das Abrufen der Schülerliste mit optionalen Filter- und Sortierkriterien.
  */
 @Service
@@ -24,6 +30,7 @@ public class SchuelerService {
      * Logger zur Protokollierung von Ereignissen in dieser Klasse.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(SchuelerService.class);
+    private static final String SYNC_KEY_PREFIX = "schueler-";
 
     @Autowired
     private SchuelerRepository schuelerRepository;
@@ -31,41 +38,66 @@ public class SchuelerService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LdapSyncService ldapSyncService;
+
+    @Value("${diplomdb.ldap-sync.full-interval:24h}")
+    private Duration fullSyncInterval;
+
     /**
      * Aktualisiert die Schülerliste für einen bestimmten Jahrgang (4 oder 5) aus dem LDAP.
-     * Dabei werden zunächst alle vorhandenen Schülerdaten gelöscht (Clean Slate) und anschließend
-     * die aktuellen Schülerdaten aus dem LDAP importiert.
+     * Bei einer vollständigen Synchronisation werden alle Schüler des Jahrgangs übernommen und anschließend die Schüler
+     * dieses Jahrgangs gelöscht, die dabei nicht mehr gefunden wurden. Die anderen Jahrgänge bleiben unberührt.
+     * Ansonsten werden nur die seit dem letzten Lauf geänderten Einträge geladen und aktualisiert bzw. neu angelegt.
+     * Existiert für den Jahrgang noch kein Synchronisationsstand oder liegt die letzte vollständige Synchronisation
+     * länger als {@code diplomdb.ldap-sync.full-interval} zurück, erfolgt immer eine vollständige Synchronisation.
      *
      * @param year Der Jahrgang, für den die Schülerdaten importiert werden sollen ("4" oder "5").
+     * @param full true, um unabhängig vom gespeicherten Stand eine vollständige Synchronisation durchzuführen.
      */
-    public void refreshSchuelerListFromLDAP(String year) {
-        LOGGER.info("Aktualisiere Schülerliste aus LDAP für Jahrgang {}", year);
-
-        // 1) Lösche alle vorhandenen Schülerdaten
-        schuelerRepository.deleteAll();
-
-        // 2) Erzeuge den LDAP-Filter basierend auf dem Jahrgang
+    public void refreshSchuelerListFromLDAP(String year, boolean full) {
+        String syncKey = SYNC_KEY_PREFIX + year;
+        Optional<Long> highWaterMark = full ? Optional.empty() : ldapSyncService.getHighWaterMark(syncKey, fullSyncInterval);
+        LOGGER.info("Aktualisiere Schülerliste aus LDAP für Jahrgang {} ({})", year,
+                highWaterMark.map(usn -> "inkrementell ab uSNChanged " + usn).orElse("vollständig"));
+        LocalDateTime syncStart = LocalDateTime.now();
+
+        // 1) Erzeuge den LDAP-Filter basierend auf dem Jahrgang
         String filter = createHITSchuelerGroupFilter(year);
 
-        // 3) Sammle alle sAMAccountNames, die dem Filter entsprechen, mithilfe der Paging-Methode
-        List<String> allSAMs = userService.collectAllSAMAccountNamesPaged(filter);
-
-        // 4) Für jeden sAMAccountName: Hole die LDAP-Daten und speichere einen neuen Schülereintrag
-        int count = 0;
-        for (String sam : allSAMs) {
-            userService.findBysAMAccountNameWithGroups(sam).ifPresent(user -> {
-                Schueler s = Schueler.builder()
-                        .samAccountName(sam)
-                        .vorname(user.getGivenName())
-                        .nachname(user.getSn())
-                        .email(user.getMail())
-                        .displayName(user.getDisplayName())
-                        .build();
-                schuelerRepository.save(s);
-            });
-            count++;
+        // 2) Lade alle (geänderten) Schüler, die dem Filter entsprechen, seitenweise inkl. Attributen
+        //    und speichere jede Seite gesammelt (save per sAMAccountName entspricht einem Upsert)
+        // Neue Marke vor der Suche lesen: Was sich währenddessen ändert, liefert dann der nächste Lauf.
+        // Ohne highestCommittedUSN (kein AD) bleibt die bisherige Marke, damit keine Änderung verloren geht.
+        long newHighWaterMark = userService.findHighestCommittedUsn().orElse(highWaterMark.orElse(0L));
+        Consumer<List<UserContact>> pageConsumer = page -> {
+            List<Schueler> schueler = page.stream()
+                    .map(UserContact::identity)
+                    .map(user -> Schueler.builder()
+                            .samAccountName(user.sAMAccountName())
+                            .vorname(user.givenName())
+                            .nachname(user.sn())
+                            .email(user.mail())
+                            .displayName(user.displayName())
+                            .jahrgang(year)
+                            .lastSeenAt(syncStart)
+                            .build())
+                    .toList();
+            schuelerRepository.saveAll(schueler);
+        };
+        int count = highWaterMark.isPresent()
+                ? userService.streamUsersChangedSincePaged(filter, highWaterMark.get(), pageConsumer)
+                : userService.streamUsersPaged(filter, pageConsumer);
+
+        // 3) Bei vollständiger Synchronisation: Schüler des Jahrgangs löschen, die nicht mehr gefunden wurden
+        int deleted = 0;
+        if (highWaterMark.isEmpty()) {
+            deleted = schuelerRepository.deleteByJahrgangNotSeenSince(year, syncStart);
         }
-        LOGGER.info("Schüler-Refresh abgeschlossen. Gesamt gefundene sAMs={}, gespeichert={}", allSAMs.size(), count);
+
+        // 4) Neuen Synchronisationsstand speichern
+        ldapSyncService.saveHighWaterMark(syncKey, newHighWaterMark, highWaterMark.isEmpty());
+        LOGGER.info("Schüler-Refresh abgeschlossen. Gespeichert={}, Gelöscht={}", count, deleted);
     }
 
     /**
@@ -8,8 +8,16 @@ import at.ac.tgm.model.Lesson;
 import at.ac.tgm.model.Student;
 import at.ac.tgm.model.Teacher;
 import at.ac.tgm.repository.*;
+import at.ac.tgm.service.AdminListService;
+import at.ac.tgm.service.AmpelChangeFeed;
+import at.ac.tgm.service.AmpelStatsService;
 import at.ac.tgm.service.DatabaseService;
-import at.ac.tgm.service.ImportService;
+import at.ac.tgm.service.ImportJobService;
+import at.ac.tgm.service.TeacherIdentityService;
+import at.ac.tgm.versioning.ConditionalGet;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +26,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -26,33 +35,47 @@ import java.util.stream.Collectors;
 @RequestMapping(Consts.EIS_PATH_PREFIX + "/api/admin")
 public class AdminRestController {
 
-    private final ImportService importService;
+    private final ImportJobService importJobService;
     private final DatabaseService databaseService;
     private final HitclassRepository hitclassRepository;
     private final TeacherRepository teacherRepository;
     private final LessonRepository lessonRepository;
     private final StudentRepository studentRepository;
     private final AmpelRepository ampelRepository;
-
-    public AdminRestController(ImportService importService, DatabaseService databaseService, HitclassRepository hitclassRepository, TeacherRepository teacherRepository, LessonRepository lessonRepository, StudentRepository studentRepository, AmpelRepository ampelRepository) {
-        this.importService = importService;
+    private final TeacherAccountRepository teacherAccountRepository;
+    private final TeacherIdentityService teacherIdentityService;
+    private final AmpelStatsService ampelStatsService;
+    private final AmpelChangeFeed ampelChangeFeed;
+    private final AdminListService adminListService;
+
+    public AdminRestController(ImportJobService importJobService, DatabaseService databaseService, HitclassRepository hitclassRepository, TeacherRepository teacherRepository, LessonRepository lessonRepository, StudentRepository studentRepository, AmpelRepository ampelRepository, TeacherAccountRepository teacherAccountRepository, TeacherIdentityService teacherIdentityService, AmpelStatsService ampelStatsService, AmpelChangeFeed ampelChangeFeed, AdminListService adminListService) {
+        this.importJobService = importJobService;
         this.databaseService = databaseService;
         this.hitclassRepository = hitclassRepository;
         this.teacherRepository = teacherRepository;
         this.lessonRepository = lessonRepository;
         this.studentRepository = studentRepository;
         this.ampelRepository = ampelRepository;
+        this.teacherAccountRepository = teacherAccountRepository;
+        this.teacherIdentityService = teacherIdentityService;
+        this.ampelStatsService = ampelStatsService;
+        this.ampelChangeFeed = ampelChangeFeed;
+        this.adminListService = adminListService;
     }
 
     /**
-     * Nimmt das hochgeladene CSV-File entgegen und ruft den ImportService auf.
+     * Nimmt das hochgeladene CSV-File entgegen und startet den Import im Hintergrund.
+     * Der Fortschritt ist unter {@code /import/{jobId}} abrufbar.
      */
     @Secured(Roles.ADMIN)
     @PostMapping("/upload")
-    public ResponseEntity<Map<String, String>> handleFileUpload(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> handleFileUpload(@RequestParam("file") MultipartFile file) {
         try {
-            importService.importCsv(file);
-            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(Map.of("message", "File uploaded and processed successfully!"));
+            ImportJobDto job = importJobService.submit(file);
+            return ResponseEntity.accepted()
+                    .location(URI.create(Consts.EIS_PATH_PREFIX + "/api/admin/import/" + job.getJobId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("message", "File uploaded, import started", "jobId", job.getJobId(), "job", job));
 
         } catch (Exception e) {
             return ResponseEntity.status(500)
@@ -61,14 +84,47 @@ public class AdminRestController {
 
         }
     }
+
+    /**
+     * Status eines CSV-Imports: verarbeitete Zeilen, Zeilen pro Sekunde, Fehler und nach Abschluss die Zusammenfassung.
+     */
+    @Secured(Roles.ADMIN)
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobDto> getImportJob(@PathVariable String jobId) {
+        return importJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    /**
+     * Gleicht die hochgeladene CSV im Hintergrund mit dem aktuellen Stand ab, statt alles zu löschen und neu zu importieren.
+     * Bestehende Ampeln bleiben erhalten. Mit {@code dryRun=true} wird nur der Bericht erstellt.
+     * Der Bericht steht nach Abschluss unter {@code /import/{jobId}}.
+     */
+    @Secured(Roles.ADMIN)
+    @PostMapping("/import/delta")
+    public ResponseEntity<Map<String, Object>> handleDeltaImport(@RequestParam("file") MultipartFile file,
+                                                                 @RequestParam(defaultValue = "false") boolean dryRun) {
+        try {
+            ImportJobDto job = importJobService.submitDelta(file, dryRun);
+            return ResponseEntity.accepted()
+                    .location(URI.create(Consts.EIS_PATH_PREFIX + "/api/admin/import/" + job.getJobId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("message", "File uploaded, delta import started", "jobId", job.getJobId(), "job", job));
+        } catch (Exception e) {
+            return ResponseEntity.status(500)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", "Failed to apply delta import", "details", String.valueOf(e.getMessage())));
+        }
+    }
+
     @Secured(Roles.ADMIN)
     @DeleteMapping("/deleteAll")
-    public ResponseEntity<String> deleteAllData() {
+    public ResponseEntity<Map<String, Object>> deleteAllData() {
         try {
-            databaseService.deleteAllData();
-            return ResponseEntity.ok("Alle Daten wurden erfolgreich gelöscht.");
+            Map<String, Integer> deleted = databaseService.deleteAllData();
+            return ResponseEntity.ok(Map.of("message", "Alle Daten wurden erfolgreich gelöscht.", "deleted", deleted));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body("Fehler beim Löschen der Daten: " + e.getMessage());
+            return ResponseEntity.status(500).body(Map.of("error", "Fehler beim Löschen der Daten: " + e.getMessage()));
         }
     }
     @Secured(Roles.ADMIN)
@@ -93,36 +149,15 @@ public class AdminRestController {
         return ResponseEntity.ok("Klassenvorstand wurde gesetzt!");
     }
 
+    /**
+     * Klassen mit Klassenvorstand und allen dort unterrichtenden Lehrern, seitenweise ({@code page}, {@code size}, {@code sort}).
+     * Optional gefiltert nach Teil des Klassennamens ({@code name}).
+     */
     @Secured(Roles.ADMIN)
     @GetMapping("/hitclasses/with-teachers")
-    public ResponseEntity<List<HitclassWithTeacherDto>> getHitclassWithTeachers() {
-        List<Hitclass> hitclasses = hitclassRepository.findAll();
-
-        List<HitclassWithTeacherDto> dtoList = hitclasses.stream().map(hitclass -> {
-            // Alle Lektionen der Klasse abrufen
-            List<Lesson> lessons = lessonRepository.findByHitclassId(hitclass.getId());
-
-            // Einzigartige Lehrer aus den Lektionen extrahieren
-            List<TeacherDto> teacherDtos = lessons.stream()
-                    .flatMap(lesson -> lesson.getTeachers().stream())
-                    .distinct()
-                    .map(teacher -> new TeacherDto(teacher.getId(), teacher.getName()))
-                    .collect(Collectors.toList());
-
-            // Klassenvorstand Name abrufen
-            String klassenvorstandName = (hitclass.getKlassenvorstand() != null)
-                    ? hitclass.getKlassenvorstand().getName()
-                    : null;
-
-            return new HitclassWithTeacherDto(
-                    hitclass.getId(),
-                    hitclass.getName(),
-                    klassenvorstandName,
-                    teacherDtos
-            );
-        }).collect(Collectors.toList());
-
-        return ResponseEntity.ok(dtoList);
+    public ResponseEntity<PagedModel<HitclassWithTeacherDto>> getHitclassWithTeachers(@RequestParam(required = false) String name,
+                                                                                      @PageableDefault(size = 50, sort = "name") Pageable pageable) {
+        return ResponseEntity.ok(new PagedModel<>(adminListService.getHitclassesWithTeachers(name, pageable)));
     }
 
     @Secured(Roles.ADMIN)
@@ -161,6 +196,7 @@ public class AdminRestController {
     }
 
     @Secured(Roles.ADMIN)
+    @ConditionalGet(Hitclass.class)
     @GetMapping("/hitclasses")
     public ResponseEntity<List<Map<String, Object>>> getAllHitclasses() {
         List<Hitclass> hitclasses = hitclassRepository.findAll();
@@ -188,32 +224,39 @@ public class AdminRestController {
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * Schüler seitenweise ({@code page}, {@code size}, {@code sort}, z.B. {@code sort=h.name,nachname}),
+     * optional gefiltert nach Klasse ({@code klasse}) und Teil des Namens ({@code name}).
+     */
     @Secured(Roles.ADMIN)
     @GetMapping("/getAllStudents")
-    public ResponseEntity<?> getKVStudents() {
-        List<Student> students = studentRepository.findAll();
-        List<StudentDto> dtos = students.stream()
-                .map(t -> new StudentDto(t.getVorname(), t.getNachname(), t.getStudentKennzahl(), t.getHitclass().getName(), t.getId()))
-                .toList();
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<PagedModel<StudentDto>> getKVStudents(@RequestParam(required = false) String klasse,
+                                                                @RequestParam(required = false) String name,
+                                                                @PageableDefault(size = 50, sort = {"nachname", "vorname"}) Pageable pageable) {
+        return ResponseEntity.ok(new PagedModel<>(adminListService.getStudents(klasse, name, pageable)));
     }
 
+    /**
+     * Unterrichte seitenweise, optional gefiltert nach Klasse ({@code klasse}) und Gegenstand ({@code name}).
+     */
     @Secured(Roles.ADMIN)
     @GetMapping("/getAllLessons")
-    public ResponseEntity<?> getAllLessons() {
-        List<Lesson> lessons = lessonRepository.findAll();
-        List<LessonsDto> dtos = lessons.stream()
-                .map(t -> new LessonsDto(t.getId(), t.getSubject().getLangbezeichnung(),t.getHitclass().getName()))
-                .toList();
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<PagedModel<LessonsDto>> getAllLessons(@RequestParam(required = false) String klasse,
+                                                                @RequestParam(required = false) String name,
+                                                                @PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        return ResponseEntity.ok(new PagedModel<>(adminListService.getLessons(klasse, name, pageable)));
     }
 
     @Secured(Roles.ADMIN)
     @DeleteMapping("/deleteStudent/{studentKennzahl}")
     @Transactional
     public ResponseEntity<String> deleteStudent(@PathVariable String studentKennzahl) {
+        // Nur die Ampeln dieses Schülers aus der Statistik austragen, statt sie ganz neu zu berechnen
+        studentRepository.findByStudentKennzahl(studentKennzahl).ifPresent(student ->
+                ampelStatsService.removeStudent(student.getId(), ampelRepository.findForUpdateByStudentId(student.getId())));
         ampelRepository.deleteByStudentStudentKennzahl(studentKennzahl);
         studentRepository.deleteByStudentKennzahl(studentKennzahl);
+        ampelChangeFeed.publishReset();
         return ResponseEntity.ok("Student mit Kennzahl " + studentKennzahl + " erfolgreich gelöscht.");
     }
 
@@ -232,11 +275,46 @@ public class AdminRestController {
         teacher.getLessons().clear();
         teacherRepository.save(teacher);
 
+        teacherIdentityService.removeTeacher(teacherid);
+
         // Jetzt kann der Teacher gefahrlos gelöscht werden
         teacherRepository.delete(teacher);
         return ResponseEntity.ok("Lehrer mit ID " + teacherid + " erfolgreich gelöscht.");
     }
 
+    /**
+     * Alle gespeicherten Zuordnungen von AD-Benutzern zu EIS-Lehrern.
+     */
+    @Secured(Roles.ADMIN)
+    @GetMapping("/teacher-accounts")
+    public ResponseEntity<List<TeacherAccountDto>> getTeacherAccounts() {
+        return ResponseEntity.ok(teacherAccountRepository.findAllAsDto());
+    }
+
+    /**
+     * Korrigiert eine falsche oder fehlende Zuordnung eines AD-Benutzers zu einem EIS-Lehrer.
+     */
+    @Secured(Roles.ADMIN)
+    @PutMapping("/teacher-accounts/{samAccountName}")
+    public ResponseEntity<String> assignTeacherAccount(@PathVariable String samAccountName, @RequestParam Long teacherId) {
+        try {
+            teacherIdentityService.assign(samAccountName, teacherId);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        return ResponseEntity.ok("Zuordnung gespeichert.");
+    }
+
+    /**
+     * Entfernt eine Zuordnung, beim nächsten Zugriff wird wieder über den Namen abgeglichen.
+     */
+    @Secured(Roles.ADMIN)
+    @DeleteMapping("/teacher-accounts/{samAccountName}")
+    public ResponseEntity<String> deleteTeacherAccount(@PathVariable String samAccountName) {
+        teacherIdentityService.unassign(samAccountName);
+        return ResponseEntity.ok("Zuordnung entfernt.");
+    }
+
     @Secured(Roles.ADMIN)
     @PostMapping("/newTeacher")
     public ResponseEntity<String> createTeacher(@RequestBody CreateTeacherDto dto) {
@@ -293,9 +371,9 @@ public class AdminRestController {
 
     @Secured(Roles.ADMIN)
     @DeleteMapping("/deleteAllAmpel")
-    public ResponseEntity<String> deleteAllAmpel() {
-        ampelRepository.deleteAll();
-        return ResponseEntity.ok("Alle Ampel erfolgreich gelöscht.");
+    public ResponseEntity<Map<String, Object>> deleteAllAmpel() {
+        int deleted = databaseService.deleteAllAmpel();
+        return ResponseEntity.ok(Map.of("message", "Alle Ampel erfolgreich gelöscht.", "deleted", Map.of("ampel", deleted)));
     }
     @Secured(Roles.ADMIN)
     @Transactional // Wichtig: sorgt für einen Transaktionskontext
@@ -351,24 +429,15 @@ public class AdminRestController {
     }
 
 
+    /**
+     * Lehrer mit den IDs ihrer Unterrichte seitenweise, optional gefiltert nach Klasse, in der sie unterrichten
+     * ({@code klasse}), und Teil des Namens ({@code name}).
+     */
     @Secured(Roles.ADMIN)
     @GetMapping("/getAllTeachersWithLessons")
-    public ResponseEntity<List<TeacherWithLessonsDto>> getAllTeachersWithLessons() {
-        List<Teacher> teacherList = teacherRepository.findAll();
-
-        List<TeacherWithLessonsDto> dtoList = teacherList.stream()
-                .map(teacher -> {
-                    List<Long> lessonIds = teacher.getLessons().stream()
-                            .map(Lesson::getId)
-                            .collect(Collectors.toList());
-                    return new TeacherWithLessonsDto(
-                            teacher.getId(),
-                            teacher.getName(),
-                            lessonIds
-                    );
-                })
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(dtoList);
+    public ResponseEntity<PagedModel<TeacherWithLessonsDto>> getAllTeachersWithLessons(@RequestParam(required = false) String klasse,
+                                                                                      @RequestParam(required = false) String name,
+                                                                                      @PageableDefault(size = 50, sort = "name") Pageable pageable) {
+        return ResponseEntity.ok(new PagedModel<>(adminListService.getTeachersWithLessons(klasse, name, pageable)));
     }
 }
\ No newline at end of file
@@ -8,9 +8,11 @@ import at.ac.tgm.repository.AmpelRepository;
 import at.ac.tgm.repository.LessonRepository;
 import at.ac.tgm.repository.StudentRepository;
 import at.ac.tgm.repository.TeacherRepository;
+import at.ac.tgm.service.AmpelStatsService;
 import at.ac.tgm.service.TeacherAmpelService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -24,17 +26,20 @@ public class AmpelController {
     private final StudentRepository studentRepository;
     private final TeacherRepository teacherRepository;
     private final TeacherAmpelService teacherAmpelService;
+    private final AmpelStatsService ampelStatsService;
 
     public AmpelController(AmpelRepository ampelRepository,
                            LessonRepository lessonRepository,
                            StudentRepository studentRepository,
                            TeacherRepository teacherRepository,
-                           TeacherAmpelService teacherAmpelService) {
+                           TeacherAmpelService teacherAmpelService,
+                           AmpelStatsService ampelStatsService) {
         this.ampelRepository = ampelRepository;
         this.lessonRepository = lessonRepository;
         this.studentRepository = studentRepository;
         this.teacherRepository = teacherRepository;
         this.teacherAmpelService = teacherAmpelService;
+        this.ampelStatsService = ampelStatsService;
     }
 
     /**
@@ -43,6 +48,7 @@ public class AmpelController {
      */
     @Secured(Roles.TEACHER)
     @PostMapping
+    @Transactional
     public Ampel createAmpel(@RequestBody AmpelRequestDto dto) {
         // 1) Lesson laden
         Lesson lesson = lessonRepository.findById(dto.getLessonId())
@@ -65,8 +71,10 @@ public class AmpelController {
         ampel.setBemerkung(dto.getBemerkung());
         ampel.setUpdatedAt(LocalDateTime.now());
 
-        // 5) Speichern & zurückgeben
-        return ampelRepository.save(ampel);
+        // 5) Speichern, Statistik fortschreiben & zurückgeben
+        Ampel saved = ampelRepository.save(ampel);
+        ampelStatsService.apply(new AmpelStatsService.Changes().change(lesson, student.getId(), null, saved.getFarbe()));
+        return saved;
     }
 
     /**
@@ -76,10 +84,14 @@ public class AmpelController {
 
     @Secured(Roles.TEACHER)
     @PutMapping("/{ampelId}")
+    @Transactional
     public Ampel updateAmpel(@PathVariable Long ampelId, @RequestBody AmpelRequestDto dto) {
-        // 1) Vorhandenes Ampel-Objekt laden
-        Ampel ampel = ampelRepository.findById(ampelId)
+        // 1) Vorhandenes Ampel-Objekt gesperrt laden, sonst stimmt die bisherige Farbe bei gleichzeitigen Änderungen nicht
+        Ampel ampel = ampelRepository.findByIdForUpdate(ampelId)
                 .orElseThrow(() -> new RuntimeException("Ampel not found with id=" + ampelId));
+        // Bisherigen Stand aus der Statistik austragen, der neue wird unten eingetragen
+        AmpelStatsService.Changes changes = new AmpelStatsService.Changes()
+                .change(ampel.getLesson(), ampel.getStudent().getId(), ampel.getFarbe(), null);
 
         // 2) Felder aktualisieren (wenn gewünscht)
         if (dto.getFarbe() != null) {
@@ -108,8 +120,10 @@ public class AmpelController {
         // 3) updatedAt neu setzen
         ampel.setUpdatedAt(LocalDateTime.now());
 
-        // 4) Speichern & zurückgeben
-        return ampelRepository.save(ampel);
+        // 4) Speichern, Statistik fortschreiben & zurückgeben
+        Ampel saved = ampelRepository.save(ampel);
+        ampelStatsService.apply(changes.change(saved.getLesson(), saved.getStudent().getId(), null, saved.getFarbe()));
+        return saved;
     }
     @Secured(Roles.TEACHER)
     @DeleteMapping
@@ -0,0 +1,61 @@
+package at.ac.tgm.controller;
+
+import at.ac.tgm.Consts;
+import at.ac.tgm.ad.Roles;
+import at.ac.tgm.dto.AmpelStatsDto;
+import at.ac.tgm.service.AmpelStatsService;
+import at.ac.tgm.service.TeacherIdentityService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Vorberechnete Ampel-Statistik: Anzahl je Klasse, Gegenstand und Farbe sowie je Schüler und Farbe.
+ */
+@RestController
+@RequestMapping(Consts.EIS_PATH_PREFIX + "/api/stats")
+public class AmpelStatsController {
+
+    private final AmpelStatsService ampelStatsService;
+    private final TeacherIdentityService teacherIdentityService;
+
+    public AmpelStatsController(AmpelStatsService ampelStatsService, TeacherIdentityService teacherIdentityService) {
+        this.ampelStatsService = ampelStatsService;
+        this.teacherIdentityService = teacherIdentityService;
+    }
+
+    /**
+     * Alle Klassen oder, mit {@code hitclassId}, nur die angegebenen.
+     */
+    @Secured(Roles.ADMIN)
+    @GetMapping
+    public ResponseEntity<AmpelStatsDto> getStats(@RequestParam(required = false) List<Long> hitclassId) {
+        return ResponseEntity.ok(hitclassId == null ? ampelStatsService.getStats() : ampelStatsService.getStats(hitclassId));
+    }
+
+    /**
+     * Die Klassen, deren Klassenvorstand der angemeldete Lehrer ist.
+     */
+    @Secured(Roles.TEACHER)
+    @GetMapping("/kv")
+    public ResponseEntity<AmpelStatsDto> getKvStats(Authentication authentication) {
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer in der Datenbank nicht gefunden."));
+
+        return ResponseEntity.ok(ampelStatsService.getKvStats(teacherId));
+    }
+
+    /**
+     * Berechnet die Statistik aus den Ampeln neu, z.B. nach direkten Änderungen in der Datenbank.
+     */
+    @Secured(Roles.ADMIN)
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, String>> rebuild() {
+        ampelStatsService.rebuild();
+        return ResponseEntity.ok(Map.of("message", "Ampel-Statistik neu berechnet."));
+    }
+}
@@ -2,13 +2,16 @@ package at.ac.tgm.controller;
 
 import at.ac.tgm.Consts;
 import at.ac.tgm.ad.Roles;
-import at.ac.tgm.ad.entry.UserEntry;
+import at.ac.tgm.ad.SessionAttributes;
+import at.ac.tgm.ad.entry.UserIdentity;
 import at.ac.tgm.ad.service.UserService;
 import at.ac.tgm.dto.AmpelDto;
 import at.ac.tgm.dto.ErrorResponseDto;
 import at.ac.tgm.model.*;
 import at.ac.tgm.repository.AmpelRepository;
 import at.ac.tgm.repository.StudentRepository;
+import at.ac.tgm.versioning.ConditionalGet;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
@@ -18,7 +21,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping(Consts.EIS_PATH_PREFIX + "/api/student-ampel")
@@ -36,54 +38,42 @@ public class StudentAmpelController {
 
 
     @Secured(Roles.STUDENT)
+    @ConditionalGet({Ampel.class, Lesson.class, Student.class, Hitclass.class, Subject.class, Teacher.class})
     @GetMapping("/getSchueler")
-    public ResponseEntity<?> getAmpelForStudent(Authentication authentication) {
-        String sAMAccountName = authentication.getName();
-
-        // 1) Prüfen, ob wir überhaupt einen gültigen Login haben
-        Optional<UserEntry> userEntryOptional = userService.findBysAMAccountName(sAMAccountName);
-
-        // 2) Mitarbeiter- / Schülerkennung holen
-        UserEntry userEntry = userEntryOptional.get();
-        String employeeID = userEntry.getEmployeeID();
-
-        // 3) Student in DB suchen
-        Optional<Student> studentOptional = studentRepository.findByStudentKennzahl(employeeID);
-        if (studentOptional.isEmpty()) {
-            // Student nicht gefunden → 404 zurückgeben
+    public ResponseEntity<?> getAmpelForStudent(Authentication authentication, HttpSession session) {
+        // 1) Schülerkennung aus der Session (beim Login gesetzt), sonst aus dem AD
+        String employeeID = employeeID(authentication, session);
+        if (employeeID == null) {
             return ResponseEntity.status(404).body(new ErrorResponseDto("User not found in local Database", 404));
         }
-        Student student = studentOptional.get();
-        // 4) Ampeln abfragen
-        List<Ampel> ampelList = ampelRepository.findByStudentStudentKennzahl(employeeID);
 
-        // 5) Mapping in Dtos
-        List<AmpelDto> dtoList = ampelList.stream().map(ampel -> {
-            Subject subject = ampel.getLesson().getSubject();
-            Teacher teacher = ampel.getTeacher();
-            Lesson lesson = ampel.getLesson();
-            Hitclass hitclass = lesson.getHitclass();
-            String hitclassName = (hitclass != null) ? hitclass.getName() : null;
+        // 2) Ampeln direkt als Dtos abfragen
+        List<AmpelDto> dtoList = ampelRepository.findDtosByStudentKennzahl(employeeID);
 
-            return AmpelDto.builder()
-                    .ampelId(ampel.getId())
-                    .studentId(student.getId())
-                    .studentName(student.getNachname() + " " + student.getVorname())
-                    .teacherId((teacher != null) ? teacher.getId() : null)
-                    .teacherName((teacher != null) ? teacher.getName() : null)
-                    .subjectKurzbezeichnung(subject.getKurzbezeichnung())
-                    .subjectLangbezeichnung(subject.getLangbezeichnung())
-                    .gegenstandsart(subject.getGegenstandsart())
-                    .farbe((ampel.getFarbe() != null) ? ampel.getFarbe().name() : null)
-                    .bemerkung(ampel.getBemerkung())
-                    .updatedAt(ampel.getUpdatedAt())
-                    .hitclassName(hitclassName)
-                    .lessonId(lesson.getId())
-                    .build();
-        }).toList();
+        // 3) Ohne Ampeln prüfen, ob es den Schüler überhaupt gibt
+        if (dtoList.isEmpty() && !studentRepository.existsByStudentKennzahl(employeeID)) {
+            return ResponseEntity.status(404).body(new ErrorResponseDto("User not found in local Database", 404));
+        }
 
-        // 6) Erfolgreiche Antwort mit 200 OK
+        // 4) Erfolgreiche Antwort mit 200 OK
         return ResponseEntity.ok(dtoList);
     }
 
+    /**
+     * Sitzungen, die vor dem Setzen des Attributs angemeldet wurden, holen die Kennung einmal aus dem AD und merken sie sich.
+     */
+    private String employeeID(Authentication authentication, HttpSession session) {
+        Object cached = session.getAttribute(SessionAttributes.EMPLOYEE_ID);
+        if (cached instanceof String employeeID) {
+            return employeeID;
+        }
+        String employeeID = userService.findIdentityBysAMAccountName(authentication.getName())
+                .map(UserIdentity::employeeID)
+                .orElse(null);
+        if (employeeID != null) {
+            session.setAttribute(SessionAttributes.EMPLOYEE_ID, employeeID);
+        }
+        return employeeID;
+    }
+
 }
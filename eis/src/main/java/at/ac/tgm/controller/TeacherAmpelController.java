@@ -2,70 +2,59 @@ package at.ac.tgm.controller;
 
 import at.ac.tgm.Consts;
 import at.ac.tgm.ad.Roles;
-import at.ac.tgm.ad.entry.UserEntry;
-import at.ac.tgm.ad.service.UserService;
 import at.ac.tgm.dto.AmpelDto;
 import at.ac.tgm.dto.AmpelRequestDto;
 import at.ac.tgm.dto.ErrorResponseDto;
 import at.ac.tgm.dto.TeacherKVAmpelDto;
-import at.ac.tgm.model.Ampel;
-import at.ac.tgm.model.Hitclass;
-import at.ac.tgm.model.Student;
-import at.ac.tgm.model.Teacher;
-import at.ac.tgm.repository.AmpelRepository;
+import at.ac.tgm.model.*;
 import at.ac.tgm.repository.HitclassRepository;
-import at.ac.tgm.repository.TeacherRepository;
+import at.ac.tgm.service.AmpelChangeFeed;
 import at.ac.tgm.service.TeacherAmpelService;
-import org.springframework.beans.factory.annotation.Autowired;
+import at.ac.tgm.service.TeacherIdentityService;
+import at.ac.tgm.versioning.ConditionalGet;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(Consts.EIS_PATH_PREFIX + "/api/teacher-ampel")
 public class TeacherAmpelController {
 
     private final TeacherAmpelService teacherAmpelService;
-    private final TeacherRepository teacherRepository;
+    private final TeacherIdentityService teacherIdentityService;
+    private final AmpelChangeFeed ampelChangeFeed;
     private final HitclassRepository hitclassRepository;
-    private final AmpelRepository ampelRepository;
-    @Autowired
-    private UserService userService;
 
-    public TeacherAmpelController(TeacherAmpelService teacherAmpelService, TeacherRepository teacherRepository, HitclassRepository hitclassRepository, AmpelRepository ampelRepository) {
+    public TeacherAmpelController(TeacherAmpelService teacherAmpelService, TeacherIdentityService teacherIdentityService,
+                                  AmpelChangeFeed ampelChangeFeed, HitclassRepository hitclassRepository) {
         this.teacherAmpelService = teacherAmpelService;
-        this.teacherRepository = teacherRepository;
+        this.teacherIdentityService = teacherIdentityService;
+        this.ampelChangeFeed = ampelChangeFeed;
         this.hitclassRepository = hitclassRepository;
-        this.ampelRepository = ampelRepository;
     }
 
     @Secured(Roles.TEACHER)
+    @ConditionalGet({Ampel.class, Lesson.class, Student.class, Hitclass.class, Subject.class, Teacher.class, TeacherAccount.class})
     @GetMapping("/getLehrer")
     public ResponseEntity<?> getAmpelForTeacher(Authentication authentication) {
-        String sAMAccountName = authentication.getName();
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer in der Datenbank nicht gefunden."));
 
-        UserEntry userEntry = userService.findBysAMAccountName(sAMAccountName).orElseThrow();
-        
-        Teacher teacher = teacherAmpelService.getTeacherByUserEntry(userEntry).orElseThrow(() -> new NoSuchElementException("Lehrer in der Datenbank nicht gefunden."));
-
-        return ResponseEntity.ok(teacherAmpelService.getAllAmpelForTeacher(teacher.getId()));
+        return ResponseEntity.ok(teacherAmpelService.getAllAmpelForTeacher(teacherId));
     }
 
     @Secured(Roles.TEACHER)
     @PostMapping
     public ResponseEntity<?> createAmpelForTeacher(@RequestBody AmpelRequestDto dto, Authentication authentication) {
-        String sAMAccountName = authentication.getName();
-
-        Teacher teacher = teacherAmpelService.getTeacherBySAMAccountName(sAMAccountName).orElseThrow(() -> new NoSuchElementException("Lehrer nicht gefunden"));
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer nicht gefunden"));
 
-        dto.setTeacherId(teacher.getId());
+        dto.setTeacherId(teacherId);
 
         try {
             AmpelDto createdAmpel = teacherAmpelService.createOrUpdateAmpel(dto);
@@ -77,19 +66,31 @@ public class TeacherAmpelController {
         }
     }
 
+    /**
+     * Speichert viele Ampeln des aktuell authentifizierten Lehrers in einer Anfrage, z.B. eine ganze Klasse.
+     * Die {@code teacherId} der Einträge wird ignoriert, jede Zeile bekommt ein eigenes Ergebnis.
+     */
+    @Secured(Roles.TEACHER)
+    @PostMapping("/bulk")
+    public ResponseEntity<?> bulkCreateOrUpdateAmpel(@RequestBody List<AmpelRequestDto> dtos, Authentication authentication) {
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer nicht gefunden"));
+
+        try {
+            return ResponseEntity.ok(teacherAmpelService.bulkCreateOrUpdateAmpel(teacherId, dtos));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(new ErrorResponseDto("Interner Serverfehler.", 500));
+        }
+    }
+
     /**
      * Ändert einen bestehenden Ampel-Eintrag für den aktuell authentifizierten Lehrer.
      */
     @Secured(Roles.TEACHER)
     @PutMapping
     public ResponseEntity<?> updateAmpelForTeacher(@RequestBody AmpelRequestDto dto, Authentication authentication) {
-        String sAMAccountName = authentication.getName();
-
-        Optional<Teacher> teacherOptional = teacherAmpelService.getTeacherBySAMAccountName(sAMAccountName);
-
-        Teacher teacher = teacherOptional.get();
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer nicht gefunden"));
 
-        if (dto.getTeacherId() == null || !dto.getTeacherId().equals(teacher.getId())) {
+        if (dto.getTeacherId() == null || !dto.getTeacherId().equals(teacherId)) {
             return ResponseEntity.status(403).body(new ErrorResponseDto("Zugriff auf diesen Ampel-Eintrag verweigert.", 403));
         }
 
@@ -105,49 +106,34 @@ public class TeacherAmpelController {
     @Secured(Roles.TEACHER)
     @GetMapping("/kv/getStudents")
     public ResponseEntity<List<TeacherKVAmpelDto>> getKvStudents(Authentication authentication) {
-        String sAMAccountName = authentication.getName();
-        UserEntry userEntry = userService.findBysAMAccountName(sAMAccountName).orElseThrow();
-        
-        Teacher teacher = teacherAmpelService.getTeacherByUserEntry(userEntry).orElseThrow(() -> new NoSuchElementException("Lehrer in der Datenbank nicht gefunden."));
-
-        // 2) Alle Klassen, die diesen Teacher als Klassenvorstand haben
-        List<Hitclass> kvHitclasses = hitclassRepository.findAllByKlassenvorstand(teacher);
-
-        // 3) Alle Schüler sammeln
-        List<TeacherKVAmpelDto> result = new ArrayList<>();
-        for (Hitclass c : kvHitclasses) {
-            for (Student s : c.getStudents()) {
-                // 3a) Ampel-Liste für *diesen* Schüler (alle Teacher, alle Fächer)
-                List<Ampel> ampelList = ampelRepository.findAllByStudentId(s.getId());
-
-                // 3b) Erzeugen der AmpelDto-Liste
-                List<AmpelDto> ampelDtos = ampelList.stream().map(a -> {
-                    AmpelDto dto = new AmpelDto();
-                    dto.setTeacherId(a.getTeacher().getId());
-                    dto.setTeacherName(a.getTeacher().getName());
-                    dto.setSubjectKurzbezeichnung(a.getLesson().getSubject().getKurzbezeichnung());
-                    dto.setSubjectLangbezeichnung(a.getLesson().getSubject().getLangbezeichnung());
-                    dto.setUpdatedAt(a.getUpdatedAt());
-                    if (a.getFarbe() != null) {
-                        dto.setFarbe(a.getFarbe().name());
-                    }
-                    dto.setBemerkung(a.getBemerkung());
-                    return dto;
-                }).collect(Collectors.toList());
-
-                // 3c) KvStudentAmpelDto füllen
-                TeacherKVAmpelDto studentDto = new TeacherKVAmpelDto();
-                studentDto.setStudentId(s.getId());
-                studentDto.setStudentName(s.getNachname() + " " + s.getVorname());
-                studentDto.setStudentKennzahl(s.getStudentKennzahl());
-                studentDto.setAmpelEntries(ampelDtos);
-
-                result.add(studentDto);
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer in der Datenbank nicht gefunden."));
+
+        // Alle Schüler der KV-Klassen samt Ampeln in einer Abfrage
+        return ResponseEntity.ok(teacherAmpelService.getKvStudents(teacherId));
+    }
+
+    /**
+     * Änderungen an Ampeln der KV-Klassen als Server-Sent Events (Event {@code ampel}), statt {@code /kv/getStudents} neu zu laden.
+     * Nach einem Verbindungsabbruch schickt der Browser die {@code Last-Event-ID} mit, dann werden verpasste Änderungen
+     * nachgeliefert; alternativ als Parameter {@code lastEventId}. Bei einem {@code reset}-Event muss die Übersicht neu geladen werden.
+     */
+    @Secured(Roles.TEACHER)
+    @GetMapping(value = "/kv/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getKvEvents(Authentication authentication,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                  @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        Long teacherId = teacherIdentityService.findTeacherId(authentication.getName()).orElseThrow(() -> new NoSuchElementException("Lehrer in der Datenbank nicht gefunden."));
+
+        String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        Long parsed = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                parsed = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                parsed = -1L; // unbekannte ID -> reset
             }
         }
-
-        // 4) return
-        return ResponseEntity.ok(result);
+        return ampelChangeFeed.subscribe(new HashSet<>(hitclassRepository.findIdsByKlassenvorstandId(teacherId)), parsed);
     }
 
 }
@@ -0,0 +1,23 @@
+package at.ac.tgm.dto;
+
+import lombok.*;
+
+/**
+ * Ergebnis einer einzelnen Zeile beim gesammelten Speichern von Ampeln, in der Reihenfolge der Anfrage.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AmpelBulkResultDto {
+    private int index;
+    private Long lessonId;
+    private Long studentId;
+    private Status status;
+    private String message;  // nur bei REJECTED
+    private AmpelDto ampel;  // nicht bei REJECTED
+
+    public enum Status {
+        CREATED, UPDATED, REJECTED
+    }
+}
@@ -0,0 +1,15 @@
+package at.ac.tgm.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Eine Änderung an einer Ampel, wie sie über den Change-Feed verschickt wird.
+ * Bei {@link Type#DELETED} ist {@code ampel} {@code null}, die Ampel ist dann über Unterricht, Schüler und Lehrer bestimmt.
+ */
+public record AmpelChangeEventDto(long id, Type type, Long hitclassId, Long lessonId, Long studentId, Long teacherId,
+                                  AmpelDto ampel, LocalDateTime timestamp) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
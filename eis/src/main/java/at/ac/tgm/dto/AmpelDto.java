@@ -1,5 +1,6 @@
 package at.ac.tgm.dto;
 
+import at.ac.tgm.model.AmpelFarbe;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -22,4 +23,14 @@ public class AmpelDto {
     private String bemerkung;
     private LocalDateTime updatedAt;
     private Long lessonId;
+
+    /**
+     * Für JPQL-Konstruktorausdrücke, die die Farbe als Enum liefern.
+     */
+    public AmpelDto(Long ampelId, Long teacherId, String teacherName, Long studentId, String studentName,
+                    String subjectKurzbezeichnung, String subjectLangbezeichnung, String gegenstandsart, String hitclassName,
+                    AmpelFarbe farbe, String bemerkung, LocalDateTime updatedAt, Long lessonId) {
+        this(ampelId, teacherId, teacherName, studentId, studentName, subjectKurzbezeichnung, subjectLangbezeichnung,
+                gegenstandsart, hitclassName, farbe != null ? farbe.name() : null, bemerkung, updatedAt, lessonId);
+    }
 }
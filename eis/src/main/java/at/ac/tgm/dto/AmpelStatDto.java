@@ -0,0 +1,7 @@
+package at.ac.tgm.dto;
+
+import at.ac.tgm.model.AmpelFarbe;
+
+public record AmpelStatDto(Long hitclassId, String hitclassName, Long subjectId, String subjectKurzbezeichnung,
+                           String subjectLangbezeichnung, AmpelFarbe farbe, long anzahl) {
+}
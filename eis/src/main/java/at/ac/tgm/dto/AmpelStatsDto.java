@@ -0,0 +1,10 @@
+package at.ac.tgm.dto;
+
+import java.util.List;
+
+/**
+ * Ampel-Statistik einer oder mehrerer Klassen: Anzahl je Gegenstand und Farbe sowie je Schüler und Farbe.
+ * Farben ohne Ampel fehlen in den Listen.
+ */
+public record AmpelStatsDto(List<AmpelStatDto> subjects, List<AmpelStudentStatDto> students) {
+}
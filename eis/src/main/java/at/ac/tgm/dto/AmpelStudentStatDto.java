@@ -0,0 +1,7 @@
+package at.ac.tgm.dto;
+
+import at.ac.tgm.model.AmpelFarbe;
+
+public record AmpelStudentStatDto(Long hitclassId, String hitclassName, Long studentId, String studentName,
+                                  String studentKennzahl, AmpelFarbe farbe, long anzahl) {
+}
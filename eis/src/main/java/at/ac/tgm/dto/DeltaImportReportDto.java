@@ -0,0 +1,28 @@
+package at.ac.tgm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ergebnis eines Delta-Imports: Anlegen und Ändern wie beim normalen Import, dazu die Löschungen
+ * und eine lesbare Liste aller Änderungen. Bei {@code dryRun} wurde nichts gespeichert.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeltaImportReportDto {
+    private boolean dryRun;
+    private ImportSummaryDto summary;
+    private int lessonTeachersAdded;
+    private int lessonTeachersRemoved;
+    private int klassenvorstaendeChanged;
+    private int studentsDeleted;
+    private int lessonsDeleted;
+    private int hitclassesDeleted;
+    private int ampelnDeleted;
+    private List<String> changes = new ArrayList<>();
+}
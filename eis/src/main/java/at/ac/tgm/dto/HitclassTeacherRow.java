@@ -0,0 +1,7 @@
+package at.ac.tgm.dto;
+
+/**
+ * Ein Lehrer, der in einer Klasse unterrichtet, für das Zusammensetzen von {@link HitclassWithTeacherDto} ohne Nachladen.
+ */
+public record HitclassTeacherRow(Long hitclassId, Long teacherId, String teacherName) {
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -14,4 +15,11 @@ public class HitclassWithTeacherDto {
     private String name;
     private String klassenvorstand; // Name des Klassenvorstands
     private List<TeacherDto> teachers; // Liste der Lehrer
+
+    /**
+     * Für JPQL-Konstruktorausdrücke, die Lehrer werden danach ergänzt.
+     */
+    public HitclassWithTeacherDto(Long id, String name, String klassenvorstand) {
+        this(id, name, klassenvorstand, new ArrayList<>());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package at.ac.tgm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Momentaufnahme eines im Hintergrund laufenden CSV- oder Delta-Imports.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDto {
+    private String jobId;
+    private Status status;
+    private String fileName;
+    private int rowsProcessed;
+    private double rowsPerSecond;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<String> errors;
+    private ImportSummaryDto summary; // erst nach Abschluss gesetzt
+    private DeltaImportReportDto delta; // nur beim Delta-Import, erst nach Abschluss gesetzt
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,25 @@
+package at.ac.tgm.dto;
+
+import lombok.*;
+
+/**
+ * Ergebnis eines CSV-Imports: gelesene, importierte und übersprungene Zeilen sowie die Anzahl
+ * der angelegten bzw. geänderten Datensätze je Tabelle.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportSummaryDto {
+    private int rowsRead;
+    private int rowsImported;
+    private int rowsSkipped;
+    private int hitclassesCreated;
+    private int hitclassesUpdated;
+    private int studentsCreated;
+    private int studentsUpdated;
+    private int subjectsCreated;
+    private int teachersCreated;
+    private int lessonsCreated;
+    private int lessonsUpdated;
+    private long durationMillis;
+}
@@ -0,0 +1,15 @@
+package at.ac.tgm.dto;
+
+import at.ac.tgm.model.AmpelFarbe;
+
+import java.time.LocalDateTime;
+
+/**
+ * Eine Zeile der Klassenvorstands-Übersicht: ein Schüler mit einer seiner Ampeln.
+ * Hat ein Schüler keine Ampel, sind alle Ampel-Felder {@code null}.
+ */
+public record KvAmpelRow(Long studentId, String nachname, String vorname, String studentKennzahl, String hitclassName,
+                         Long ampelId, Long lessonId, Long teacherId, String teacherName,
+                         String subjectKurzbezeichnung, String subjectLangbezeichnung, String gegenstandsart,
+                         AmpelFarbe farbe, String bemerkung, LocalDateTime updatedAt) {
+}
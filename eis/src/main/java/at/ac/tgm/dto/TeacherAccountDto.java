@@ -0,0 +1,6 @@
+package at.ac.tgm.dto;
+
+import java.time.LocalDateTime;
+
+public record TeacherAccountDto(String samAccountName, Long teacherId, String teacherName, boolean manual, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,7 @@
+package at.ac.tgm.dto;
+
+/**
+ * Ein Unterricht eines Lehrers, für das Zusammensetzen von {@link TeacherWithLessonsDto} ohne Nachladen.
+ */
+public record TeacherLessonRow(Long teacherId, Long lessonId) {
+}
@@ -10,10 +10,17 @@ import java.time.LocalDateTime;
 @Setter
 @Getter
 @Entity
-@Table(name = Consts.EIS_TABLE_PREFIX + "AMPELEIS")
+// Pro Unterricht, Schüler und Lehrer höchstens eine Ampel, darauf baut auch das native Anlegen im AmpelRepository auf
+@Table(name = Consts.EIS_TABLE_PREFIX + "AMPELEIS",
+        uniqueConstraints = @UniqueConstraint(name = "uk_eis_ampel_lesson_student_teacher", columnNames = {"lesson_id", "student_id", "teacher_id"}),
+        indexes = {
+                @Index(name = "idx_eis_ampel_student", columnList = "student_id"),
+                @Index(name = "idx_eis_ampel_teacher", columnList = "teacher_id")
+        })
 public class Ampel {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eis_ampel_seq")
+    @SequenceGenerator(name = "eis_ampel_seq", sequenceName = Consts.EIS_TABLE_PREFIX + "AMPELEIS_SEQ", allocationSize = Consts.EIS_ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne
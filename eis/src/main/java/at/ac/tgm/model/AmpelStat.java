@@ -0,0 +1,43 @@
+package at.ac.tgm.model;
+
+import at.ac.tgm.Consts;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Vorberechnete Anzahl an Ampeln je Klasse, Gegenstand und Farbe. Wird bei jeder Änderung einer Ampel um die
+ * Differenz fortgeschrieben, siehe {@link at.ac.tgm.service.AmpelStatsService}. Die IDs sind bewusst keine
+ * Fremdschlüssel, damit das Löschen von Klassen und Gegenständen nicht davon abhängt.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(AmpelStat.Key.class)
+@Table(name = Consts.EIS_TABLE_PREFIX + "AMPELSTAT")
+public class AmpelStat {
+
+    @Id
+    private Long hitclassId;
+
+    @Id
+    private Long subjectId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private AmpelFarbe farbe;
+
+    private long anzahl;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long hitclassId;
+        private Long subjectId;
+        private AmpelFarbe farbe;
+    }
+}
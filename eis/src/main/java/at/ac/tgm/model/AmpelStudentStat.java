@@ -0,0 +1,42 @@
+package at.ac.tgm.model;
+
+import at.ac.tgm.Consts;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Vorberechnete Anzahl an Ampeln je Schüler und Farbe, die Klasse ist die des Unterrichts.
+ * Gegenstück zu {@link AmpelStat} auf Schülerebene.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(AmpelStudentStat.Key.class)
+@Table(name = Consts.EIS_TABLE_PREFIX + "AMPELSTUDENTSTAT")
+public class AmpelStudentStat {
+
+    @Id
+    private Long hitclassId;
+
+    @Id
+    private Long studentId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private AmpelFarbe farbe;
+
+    private long anzahl;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long hitclassId;
+        private Long studentId;
+        private AmpelFarbe farbe;
+    }
+}
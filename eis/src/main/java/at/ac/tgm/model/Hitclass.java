@@ -17,7 +17,8 @@ import java.util.Set;
 public class Hitclass {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eis_hitclass_seq")
+    @SequenceGenerator(name = "eis_hitclass_seq", sequenceName = Consts.EIS_TABLE_PREFIX + "HITCLASSEIS_SEQ", allocationSize = Consts.EIS_ID_ALLOCATION_SIZE)
     private Long id;
 
     private String name;  // z.B. "5CHITM"
@@ -17,7 +17,8 @@ import java.util.Set;
 public class Lesson {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eis_lesson_seq")
+    @SequenceGenerator(name = "eis_lesson_seq", sequenceName = Consts.EIS_TABLE_PREFIX + "LESSONEIS_SEQ", allocationSize = Consts.EIS_ID_ALLOCATION_SIZE)
     private Long id;
 
     // Referenz auf Subject
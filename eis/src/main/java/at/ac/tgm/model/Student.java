@@ -10,11 +10,12 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = Consts.EIS_TABLE_PREFIX + "EISSTUDENT")
+@Table(name = Consts.EIS_TABLE_PREFIX + "EISSTUDENT", indexes = @Index(name = "idx_eis_student_kennzahl", columnList = "studentKennzahl"))
 public class Student {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eis_student_seq")
+    @SequenceGenerator(name = "eis_student_seq", sequenceName = Consts.EIS_TABLE_PREFIX + "EISSTUDENT_SEQ", allocationSize = Consts.EIS_ID_ALLOCATION_SIZE)
     private Long id;
     private String vorname;
     private String nachname;
@@ -14,7 +14,8 @@ import lombok.*;
 public class Subject {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eis_subject_seq")
+    @SequenceGenerator(name = "eis_subject_seq", sequenceName = Consts.EIS_TABLE_PREFIX + "SUBJECTEIS_SEQ", allocationSize = Consts.EIS_ID_ALLOCATION_SIZE)
     private Long id;
 
     private String kurzbezeichnung;  // Spalte 14 (z.B. "BPG_AM")
@@ -17,7 +17,8 @@ import java.util.Set;
 public class Teacher {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eis_teacher_seq")
+    @SequenceGenerator(name = "eis_teacher_seq", sequenceName = Consts.EIS_TABLE_PREFIX + "TEACHEREIS_SEQ", allocationSize = Consts.EIS_ID_ALLOCATION_SIZE)
     private Long id;
 
     private String name;
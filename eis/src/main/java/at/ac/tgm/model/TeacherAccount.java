@@ -0,0 +1,31 @@
+package at.ac.tgm.model;
+
+import at.ac.tgm.Consts;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Zuordnung eines AD-Benutzers zum EIS-Lehrer. Wird beim ersten erfolgreichen Namensabgleich angelegt
+ * oder von einem Admin gesetzt ({@code manual}), danach entfällt der Abgleich über den Namen.
+ * Von Hand gesetzte Zuordnungen überstehen das Löschen aller Daten und neue Importe, automatische werden dabei neu abgeglichen.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = Consts.EIS_TABLE_PREFIX + "TEACHERACCOUNT", indexes = @Index(name = "idx_eis_teacheraccount_teacher", columnList = "teacher_id"))
+public class TeacherAccount {
+
+    @Id
+    private String samAccountName; // immer klein geschrieben
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private Teacher teacher;
+
+    private boolean manual;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,20 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.model.AmpelFarbe;
+
+import java.time.LocalDateTime;
+
+/**
+ * Legt eine Ampel mit einer einzigen Anweisung an, abgesichert durch den eindeutigen Index auf
+ * (Unterricht, Schüler, Lehrer). Implementiert in {@link AmpelInsertRepositoryImpl}.
+ */
+public interface AmpelInsertRepository {
+
+    /**
+     * Legt die Ampel an. Gibt es sie bereits (z.B. gleichzeitig angelegt), schlägt das Einfügen mit einer
+     * {@link org.springframework.dao.DuplicateKeyException} fehl, die Transaktion bleibt aber verwendbar.
+     *
+     * @return {@code false}, wenn die Datenbank das native Einfügen nicht unterstützt und nichts geschrieben wurde.
+     */
+    boolean insert(Long lessonId, Long studentId, Long teacherId, AmpelFarbe farbe, String bemerkung, LocalDateTime updatedAt);
+}
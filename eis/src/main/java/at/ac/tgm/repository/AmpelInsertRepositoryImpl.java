@@ -0,0 +1,93 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.Consts;
+import at.ac.tgm.model.Ampel;
+import at.ac.tgm.model.AmpelFarbe;
+import at.ac.tgm.versioning.EntityVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Natives Einfügen für MariaDB und H2, die neue Zeile bekommt ihre ID direkt aus der Sequenz der Ampel-Tabelle.
+ * Ohne den eindeutigen Schlüssel {@value #UNIQUE_KEY} würde ein gleichzeitiges Anlegen Duplikate erzeugen statt
+ * fehlzuschlagen, es wird dann nicht verwendet.
+ */
+public class AmpelInsertRepositoryImpl implements AmpelInsertRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmpelInsertRepositoryImpl.class);
+
+    public static final String TABLE = (Consts.EIS_TABLE_PREFIX + "AMPELEIS").toLowerCase();
+    public static final String UNIQUE_KEY = "uk_eis_ampel_lesson_student_teacher";
+    private static final Set<String> UNIQUE_KEY_COLUMNS = Set.of("lesson_id", "student_id", "teacher_id");
+    private static final String SEQUENCE = TABLE + "_seq";
+
+    private static final String INSERT = "INSERT INTO " + TABLE
+            + " (id, lesson_id, student_id, teacher_id, farbe, bemerkung, updated_at) VALUES (NEXT VALUE FOR " + SEQUENCE + ", ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityVersions entityVersions;
+    private volatile Boolean supported;
+
+    public AmpelInsertRepositoryImpl(JdbcTemplate jdbcTemplate, EntityVersions entityVersions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityVersions = entityVersions;
+    }
+
+    @Override
+    public boolean insert(Long lessonId, Long studentId, Long teacherId, AmpelFarbe farbe, String bemerkung, LocalDateTime updatedAt) {
+        if (!supported()) {
+            return false;
+        }
+        jdbcTemplate.update(INSERT, lessonId, studentId, teacherId, farbe != null ? farbe.name() : null, bemerkung, Timestamp.valueOf(updatedAt));
+        // Am EntityManager vorbei, daher sieht der Hibernate-Listener die Änderung nicht
+        entityVersions.markChanged(Ampel.class);
+        return true;
+    }
+
+    private boolean supported() {
+        if (supported == null) {
+            boolean sequences = switch (DatabaseProduct.of(jdbcTemplate)) {
+                case "mariadb", "h2" -> true;
+                default -> false;
+            };
+            if (sequences && !hasUniqueKey(jdbcTemplate)) {
+                logger.warn("Eindeutiger Schlüssel {} auf {} fehlt, Ampeln werden über JPA angelegt", UNIQUE_KEY, TABLE);
+                sequences = false;
+            }
+            supported = sequences;
+        }
+        return supported;
+    }
+
+    /**
+     * Prüft über die Metadaten, ob es auf der Ampel-Tabelle einen eindeutigen Index über genau (Unterricht, Schüler, Lehrer) gibt.
+     */
+    public static boolean hasUniqueKey(JdbcTemplate jdbcTemplate) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), metaData -> {
+                String table = metaData.storesUpperCaseIdentifiers() ? TABLE.toUpperCase() : TABLE;
+                Map<String, Set<String>> columnsByIndex = new HashMap<>();
+                try (ResultSet indexes = metaData.getIndexInfo(null, null, table, true, true)) {
+                    while (indexes.next()) {
+                        String column = indexes.getString("COLUMN_NAME");
+                        if (column != null) {
+                            columnsByIndex.computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new HashSet<>())
+                                    .add(column.toLowerCase());
+                        }
+                    }
+                }
+                return columnsByIndex.containsValue(UNIQUE_KEY_COLUMNS);
+            });
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -1,22 +1,77 @@
 package at.ac.tgm.repository;
 
 
+import at.ac.tgm.dto.AmpelDto;
 import at.ac.tgm.model.Ampel;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AmpelRepository extends JpaRepository<Ampel, Long> {
+public interface AmpelRepository extends JpaRepository<Ampel, Long>, AmpelInsertRepository {
 
     List<Ampel> findByStudentId(Long studentId);
     Optional<Ampel> findByLessonIdAndStudentIdAndTeacherId(Long lessonId, Long studentId, Long teacherId);
+
+    /**
+     * Wie {@link #findByLessonIdAndStudentIdAndTeacherId}, sperrt die Zeile aber bis zum Ende der Transaktion
+     * ({@code SELECT ... FOR UPDATE}). So ist die bisherige Farbe für die Statistik auch bei gleichzeitigen Änderungen korrekt.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Ampel a WHERE a.lesson.id = :lessonId AND a.student.id = :studentId AND a.teacher.id = :teacherId")
+    Optional<Ampel> findForUpdate(@Param("lessonId") Long lessonId, @Param("studentId") Long studentId, @Param("teacherId") Long teacherId);
     List<Ampel> findByStudentStudentKennzahl(String studentKennzahl);
+
+    /**
+     * Die Ampeln eines Schülers direkt als fertige {@link AmpelDto}s, in einer Abfrage.
+     */
+    @Query("SELECT new at.ac.tgm.dto.AmpelDto(a.id, t.id, t.name, s.id, CONCAT(s.nachname, ' ', s.vorname), "
+            + "subj.kurzbezeichnung, subj.langbezeichnung, subj.gegenstandsart, h.name, a.farbe, a.bemerkung, a.updatedAt, l.id) "
+            + "FROM Ampel a JOIN a.student s JOIN a.lesson l JOIN l.subject subj LEFT JOIN l.hitclass h LEFT JOIN a.teacher t "
+            + "WHERE s.studentKennzahl = :studentKennzahl ORDER BY subj.kurzbezeichnung, t.name, a.id")
+    List<AmpelDto> findDtosByStudentKennzahl(@Param("studentKennzahl") String studentKennzahl);
     List<Ampel> findByTeacherId(Long teacherId);
+
+    /**
+     * Alle Ampeln eines Lehrers in einer Abfrage, inklusive aller Beziehungen, die für das {@code AmpelDto} gebraucht werden.
+     */
+    @Query("SELECT a FROM Ampel a JOIN FETCH a.lesson l JOIN FETCH l.subject JOIN FETCH l.hitclass h LEFT JOIN FETCH h.klassenvorstand "
+            + "JOIN FETCH a.student s LEFT JOIN FETCH s.hitclass JOIN FETCH a.teacher WHERE a.teacher.id = :teacherId")
+    List<Ampel> findAllWithDetailsByTeacherId(@Param("teacherId") Long teacherId);
+
+    /**
+     * Eine Ampel in einer Abfrage, inklusive aller Beziehungen, die für {@code AmpelDto} und Statistik gebraucht werden.
+     */
+    @Query("SELECT a FROM Ampel a JOIN FETCH a.lesson l JOIN FETCH l.subject LEFT JOIN FETCH l.hitclass h LEFT JOIN FETCH h.klassenvorstand "
+            + "JOIN FETCH a.student s LEFT JOIN FETCH s.hitclass JOIN FETCH a.teacher "
+            + "WHERE l.id = :lessonId AND s.id = :studentId AND a.teacher.id = :teacherId")
+    Optional<Ampel> findWithDetails(@Param("lessonId") Long lessonId, @Param("studentId") Long studentId, @Param("teacherId") Long teacherId);
+
+    /**
+     * Sperrt die Ampeln eines Lehrers in den Unterrichten ({@code SELECT ... FOR UPDATE}), damit die bisherige Farbe für die
+     * Statistik auch bei gleichzeitigen Änderungen stimmt. Ohne JOIN FETCH, damit nur die Ampeln gesperrt werden:
+     * Unterrichte, Schüler und Lehrer sind beim Aufrufer bereits geladen.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Ampel a WHERE a.teacher.id = :teacherId AND a.lesson.id IN :lessonIds")
+    List<Ampel> findForUpdateByTeacherIdAndLessonIdIn(@Param("teacherId") Long teacherId, @Param("lessonIds") Collection<Long> lessonIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Ampel a WHERE a.id = :id")
+    Optional<Ampel> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Ampel a WHERE a.student.id = :studentId")
+    List<Ampel> findForUpdateByStudentId(@Param("studentId") Long studentId);
     Optional<Ampel> findByTeacherIdAndStudentId(Long teacherId, Long studentId);
     List<Ampel> findAllByStudentId(Long studentId);
 
@@ -24,4 +79,18 @@ public interface AmpelRepository extends JpaRepository<Ampel, Long> {
     @Transactional
     void deleteByStudentStudentKennzahl(String studentKennzahl);
 
+    @Modifying
+    @Query("DELETE FROM Ampel a WHERE a.student.id IN :studentIds")
+    int deleteByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    @Modifying
+    @Query("DELETE FROM Ampel a WHERE a.lesson.id IN :lessonIds")
+    int deleteByLessonIdIn(@Param("lessonIds") Collection<Long> lessonIds);
+
+    /**
+     * Anzahl der Ampeln, die {@link #deleteByStudentIdIn} und {@link #deleteByLessonIdIn} zusammen löschen würden.
+     */
+    @Query("SELECT COUNT(a) FROM Ampel a WHERE a.student.id IN :studentIds OR a.lesson.id IN :lessonIds")
+    long countByStudentIdInOrLessonIdIn(@Param("studentIds") Collection<Long> studentIds, @Param("lessonIds") Collection<Long> lessonIds);
+
 }
@@ -0,0 +1,23 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.model.AmpelStat;
+import at.ac.tgm.model.AmpelStudentStat;
+
+import java.util.Map;
+
+/**
+ * Schreibt die Zähler in {@link AmpelStat} und {@link AmpelStudentStat} direkt per SQL fort.
+ * Implementiert in {@link AmpelStatCounterRepositoryImpl}.
+ */
+public interface AmpelStatCounterRepository {
+
+    /**
+     * Addiert die Differenzen auf die Zähler, fehlende Zeilen werden angelegt.
+     */
+    void add(Map<AmpelStat.Key, Long> subjectDeltas, Map<AmpelStudentStat.Key, Long> studentDeltas);
+
+    /**
+     * Berechnet beide Tabellen vollständig aus den Ampeln neu.
+     */
+    void rebuild();
+}
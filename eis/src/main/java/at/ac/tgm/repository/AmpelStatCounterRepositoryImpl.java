@@ -0,0 +1,94 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.Consts;
+import at.ac.tgm.model.AmpelStat;
+import at.ac.tgm.model.AmpelStudentStat;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fortschreiben per nativem Upsert für MariaDB/MySQL ({@code INSERT ... ON DUPLICATE KEY UPDATE}) und H2
+ * ({@code MERGE ... USING}), damit gleichzeitige Änderungen in derselben Klasse sich nicht gegenseitig überschreiben.
+ * Auf anderen Datenbanken wird zuerst aktualisiert und nur bei fehlender Zeile eingefügt.
+ */
+public class AmpelStatCounterRepositoryImpl implements AmpelStatCounterRepository {
+
+    private static final String SUBJECT_TABLE = (Consts.EIS_TABLE_PREFIX + "AMPELSTAT").toLowerCase();
+    private static final String STUDENT_TABLE = (Consts.EIS_TABLE_PREFIX + "AMPELSTUDENTSTAT").toLowerCase();
+    private static final String AMPEL_TABLE = (Consts.EIS_TABLE_PREFIX + "AMPELEIS").toLowerCase();
+    private static final String LESSON_TABLE = (Consts.EIS_TABLE_PREFIX + "LESSONEIS").toLowerCase();
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String product;
+
+    public AmpelStatCounterRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void add(Map<AmpelStat.Key, Long> subjectDeltas, Map<AmpelStudentStat.Key, Long> studentDeltas) {
+        List<Object[]> subjectRows = new ArrayList<>();
+        subjectDeltas.forEach((key, delta) -> {
+            if (delta != 0) {
+                subjectRows.add(new Object[]{key.getHitclassId(), key.getSubjectId(), key.getFarbe().name(), delta});
+            }
+        });
+        List<Object[]> studentRows = new ArrayList<>();
+        studentDeltas.forEach((key, delta) -> {
+            if (delta != 0) {
+                studentRows.add(new Object[]{key.getHitclassId(), key.getStudentId(), key.getFarbe().name(), delta});
+            }
+        });
+        add(SUBJECT_TABLE, "subject_id", subjectRows);
+        add(STUDENT_TABLE, "student_id", studentRows);
+    }
+
+    private void add(String table, String idColumn, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        switch (product()) {
+            case "mariadb", "mysql" -> jdbcTemplate.batchUpdate("INSERT INTO " + table + " (hitclass_id, " + idColumn + ", farbe, anzahl)"
+                    + " VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE anzahl = anzahl + VALUES(anzahl)", rows);
+            case "h2" -> jdbcTemplate.batchUpdate("MERGE INTO " + table + " t USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT),"
+                    + " CAST(? AS VARCHAR), CAST(? AS BIGINT))) s(hitclass_id, " + idColumn + ", farbe, anzahl)"
+                    + " ON t.hitclass_id = s.hitclass_id AND t." + idColumn + " = s." + idColumn + " AND t.farbe = s.farbe"
+                    + " WHEN MATCHED THEN UPDATE SET anzahl = t.anzahl + s.anzahl"
+                    + " WHEN NOT MATCHED THEN INSERT (hitclass_id, " + idColumn + ", farbe, anzahl)"
+                    + " VALUES (s.hitclass_id, s." + idColumn + ", s.farbe, s.anzahl)", rows);
+            default -> {
+                for (Object[] row : rows) {
+                    int updated = jdbcTemplate.update("UPDATE " + table + " SET anzahl = anzahl + ?"
+                            + " WHERE hitclass_id = ? AND " + idColumn + " = ? AND farbe = ?", row[3], row[0], row[1], row[2]);
+                    if (updated == 0) {
+                        jdbcTemplate.update("INSERT INTO " + table + " (hitclass_id, " + idColumn + ", farbe, anzahl) VALUES (?, ?, ?, ?)", row);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM " + SUBJECT_TABLE);
+        jdbcTemplate.update("DELETE FROM " + STUDENT_TABLE);
+        jdbcTemplate.update("INSERT INTO " + SUBJECT_TABLE + " (hitclass_id, subject_id, farbe, anzahl)"
+                + " SELECT l.hitclass_id, l.subject_id, a.farbe, COUNT(*) FROM " + AMPEL_TABLE + " a JOIN " + LESSON_TABLE + " l ON l.id = a.lesson_id"
+                + " WHERE a.farbe IS NOT NULL AND l.hitclass_id IS NOT NULL AND l.subject_id IS NOT NULL"
+                + " GROUP BY l.hitclass_id, l.subject_id, a.farbe");
+        jdbcTemplate.update("INSERT INTO " + STUDENT_TABLE + " (hitclass_id, student_id, farbe, anzahl)"
+                + " SELECT l.hitclass_id, a.student_id, a.farbe, COUNT(*) FROM " + AMPEL_TABLE + " a JOIN " + LESSON_TABLE + " l ON l.id = a.lesson_id"
+                + " WHERE a.farbe IS NOT NULL AND l.hitclass_id IS NOT NULL AND a.student_id IS NOT NULL"
+                + " GROUP BY l.hitclass_id, a.student_id, a.farbe");
+    }
+
+    private String product() {
+        if (product == null) {
+            product = DatabaseProduct.of(jdbcTemplate);
+        }
+        return product;
+    }
+}
@@ -0,0 +1,25 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.dto.AmpelStatDto;
+import at.ac.tgm.model.AmpelStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AmpelStatRepository extends JpaRepository<AmpelStat, AmpelStat.Key>, AmpelStatCounterRepository {
+
+    @Query("SELECT new at.ac.tgm.dto.AmpelStatDto(h.id, h.name, subj.id, subj.kurzbezeichnung, subj.langbezeichnung, s.farbe, s.anzahl) "
+            + "FROM AmpelStat s JOIN Hitclass h ON h.id = s.hitclassId JOIN Subject subj ON subj.id = s.subjectId "
+            + "WHERE s.anzahl > 0 ORDER BY h.name, subj.kurzbezeichnung, s.farbe")
+    List<AmpelStatDto> findAllDtos();
+
+    @Query("SELECT new at.ac.tgm.dto.AmpelStatDto(h.id, h.name, subj.id, subj.kurzbezeichnung, subj.langbezeichnung, s.farbe, s.anzahl) "
+            + "FROM AmpelStat s JOIN Hitclass h ON h.id = s.hitclassId JOIN Subject subj ON subj.id = s.subjectId "
+            + "WHERE s.anzahl > 0 AND s.hitclassId IN :hitclassIds ORDER BY h.name, subj.kurzbezeichnung, s.farbe")
+    List<AmpelStatDto> findDtosByHitclassIdIn(@Param("hitclassIds") Collection<Long> hitclassIds);
+}
@@ -0,0 +1,30 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.dto.AmpelStudentStatDto;
+import at.ac.tgm.model.AmpelStudentStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AmpelStudentStatRepository extends JpaRepository<AmpelStudentStat, AmpelStudentStat.Key> {
+
+    @Query("SELECT new at.ac.tgm.dto.AmpelStudentStatDto(h.id, h.name, st.id, CONCAT(st.nachname, ' ', st.vorname), st.studentKennzahl, s.farbe, s.anzahl) "
+            + "FROM AmpelStudentStat s JOIN Hitclass h ON h.id = s.hitclassId JOIN Student st ON st.id = s.studentId "
+            + "WHERE s.anzahl > 0 ORDER BY h.name, st.nachname, st.vorname, st.id, s.farbe")
+    List<AmpelStudentStatDto> findAllDtos();
+
+    @Query("SELECT new at.ac.tgm.dto.AmpelStudentStatDto(h.id, h.name, st.id, CONCAT(st.nachname, ' ', st.vorname), st.studentKennzahl, s.farbe, s.anzahl) "
+            + "FROM AmpelStudentStat s JOIN Hitclass h ON h.id = s.hitclassId JOIN Student st ON st.id = s.studentId "
+            + "WHERE s.anzahl > 0 AND s.hitclassId IN :hitclassIds ORDER BY h.name, st.nachname, st.vorname, st.id, s.farbe")
+    List<AmpelStudentStatDto> findDtosByHitclassIdIn(@Param("hitclassIds") Collection<Long> hitclassIds);
+
+    @Modifying
+    @Query("DELETE FROM AmpelStudentStat s WHERE s.studentId = :studentId")
+    int deleteByStudentId(@Param("studentId") Long studentId);
+}
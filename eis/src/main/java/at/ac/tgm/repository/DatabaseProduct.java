@@ -0,0 +1,29 @@
+package at.ac.tgm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.sql.DatabaseMetaData;
+
+/**
+ * Erkennt die Datenbank für natives SQL, das es je nach Datenbank in eigenen Varianten gibt.
+ */
+public final class DatabaseProduct {
+
+    private DatabaseProduct() {
+    }
+
+    /**
+     * @return Der Produktname aus den JDBC-Metadaten in Kleinbuchstaben (z.B. {@code "mariadb"}, {@code "mysql"}, {@code "h2"}),
+     * oder {@code ""}, wenn er nicht lesbar ist.
+     */
+    public static String of(JdbcTemplate jdbcTemplate) {
+        try {
+            String name = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+            return name == null ? "" : name.toLowerCase();
+        } catch (MetaDataAccessException e) {
+            return "";
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package at.ac.tgm.repository;
+import at.ac.tgm.dto.HitclassWithTeacherDto;
 import at.ac.tgm.model.Hitclass;
 import at.ac.tgm.model.Teacher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +18,23 @@ import java.util.Optional;
 public interface HitclassRepository extends JpaRepository<Hitclass, Long> {
     Optional<Hitclass> findByName(String name);
     List<Hitclass> findAllByKlassenvorstand(Teacher teacher);
-}
\ No newline at end of file
+
+    @Query("SELECT h.id FROM Hitclass h WHERE h.klassenvorstand.id = :teacherId")
+    List<Long> findIdsByKlassenvorstandId(@Param("teacherId") Long teacherId);
+
+    /**
+     * Klassen mit dem Namen des Klassenvorstands, noch ohne Lehrerliste. Optional gefiltert nach Teil des Klassennamens.
+     */
+    @Query(value = "SELECT new at.ac.tgm.dto.HitclassWithTeacherDto(h.id, h.name, kv.name) FROM Hitclass h LEFT JOIN h.klassenvorstand kv "
+            + "WHERE (:name IS NULL OR LOWER(h.name) LIKE LOWER(CONCAT('%', :name, '%')))",
+            countQuery = "SELECT COUNT(h) FROM Hitclass h WHERE (:name IS NULL OR LOWER(h.name) LIKE LOWER(CONCAT('%', :name, '%')))")
+    Page<HitclassWithTeacherDto> findDtos(@Param("name") String name, Pageable pageable);
+
+    /**
+     * Löscht Klassen direkt per Abfrage, ohne die Kaskaden auf Klassenvorstand, Schüler und Unterrichte auszulösen.
+     * Ausstehende Änderungen werden vorher geschrieben, danach wird der Persistence Context geleert.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Hitclass h WHERE h.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
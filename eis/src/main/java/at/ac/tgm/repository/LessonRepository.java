@@ -1,9 +1,16 @@
 package at.ac.tgm.repository;
 
+import at.ac.tgm.dto.HitclassTeacherRow;
+import at.ac.tgm.dto.LessonsDto;
 import at.ac.tgm.model.Lesson;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +19,43 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     Optional<Lesson> findBySubjectIdAndHitclassId(Long subjectId, Long hitclassId);
     List<Lesson> findByHitclassId(Long hitclass);
 
-}
\ No newline at end of file
+    /**
+     * Alle Unterrichte eines Lehrers mit Gegenstand, Klasse und den Schülern der Klasse in einer Abfrage.
+     */
+    @Query("SELECT DISTINCT l FROM Lesson l JOIN l.teachers t JOIN FETCH l.subject JOIN FETCH l.hitclass h "
+            + "LEFT JOIN FETCH h.klassenvorstand LEFT JOIN FETCH h.students WHERE t.id = :teacherId")
+    List<Lesson> findRosterByTeacherId(@Param("teacherId") Long teacherId);
+
+    /**
+     * Alle Unterrichte mit Gegenstand, Klasse und Lehrern in einer Abfrage, z.B. als Ausgangsstand für den CSV-Import.
+     */
+    @Query("SELECT DISTINCT l FROM Lesson l JOIN FETCH l.subject JOIN FETCH l.hitclass LEFT JOIN FETCH l.teachers")
+    List<Lesson> findAllWithTeachers();
+
+    /**
+     * Die Unterrichte mit den angegebenen IDs, sofern der Lehrer sie unterrichtet, mit den Schülern der Klasse.
+     */
+    @Query("SELECT DISTINCT l FROM Lesson l JOIN l.teachers t JOIN FETCH l.subject JOIN FETCH l.hitclass h "
+            + "LEFT JOIN FETCH h.klassenvorstand LEFT JOIN FETCH h.students WHERE t.id = :teacherId AND l.id IN :lessonIds")
+    List<Lesson> findRosterByTeacherIdAndIdIn(@Param("teacherId") Long teacherId, @Param("lessonIds") Collection<Long> lessonIds);
+
+    /**
+     * Unterrichte als {@link LessonsDto}, optional gefiltert nach Klasse (genauer Name) und Gegenstand (Teil der Kurz- oder Langbezeichnung).
+     * Sortierbar nach den Feldern von {@link Lesson} sowie {@code subj.*} und {@code h.name}.
+     */
+    @Query(value = "SELECT new at.ac.tgm.dto.LessonsDto(l.id, subj.langbezeichnung, h.name) "
+            + "FROM Lesson l LEFT JOIN l.subject subj LEFT JOIN l.hitclass h "
+            + "WHERE (:klasse IS NULL OR LOWER(h.name) = LOWER(:klasse)) "
+            + "AND (:name IS NULL OR LOWER(subj.langbezeichnung) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(subj.kurzbezeichnung) = LOWER(:name))",
+            countQuery = "SELECT COUNT(l) FROM Lesson l LEFT JOIN l.subject subj LEFT JOIN l.hitclass h "
+                    + "WHERE (:klasse IS NULL OR LOWER(h.name) = LOWER(:klasse)) "
+                    + "AND (:name IS NULL OR LOWER(subj.langbezeichnung) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(subj.kurzbezeichnung) = LOWER(:name))")
+    Page<LessonsDto> findDtos(@Param("klasse") String klasse, @Param("name") String name, Pageable pageable);
+
+    /**
+     * Die Lehrer der angegebenen Klassen (über ihre Unterrichte), je Klasse und Lehrer eine Zeile.
+     */
+    @Query("SELECT DISTINCT new at.ac.tgm.dto.HitclassTeacherRow(h.id, t.id, t.name) "
+            + "FROM Lesson l JOIN l.hitclass h JOIN l.teachers t WHERE h.id IN :hitclassIds ORDER BY t.name")
+    List<HitclassTeacherRow> findTeacherRowsByHitclassIdIn(@Param("hitclassIds") Collection<Long> hitclassIds);
+}
@@ -1,9 +1,16 @@
 package at.ac.tgm.repository;
 
+import at.ac.tgm.dto.KvAmpelRow;
+import at.ac.tgm.dto.StudentDto;
 import at.ac.tgm.model.Student;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +21,29 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     Optional<Student> findByStudentKennzahl(String studentKennzahl);
     void deleteByStudentKennzahl(String studentKennzahl);
     boolean existsByStudentKennzahl(String studentKennzahl);
+
+    /**
+     * Alle Schüler der Klassen, in denen der Lehrer Klassenvorstand ist, jeweils mit allen ihren Ampeln (Schüler × Gegenstand × Lehrer)
+     * in einer Abfrage. Schüler ohne Ampel liefern genau eine Zeile ohne Ampel-Felder.
+     */
+    @Query("SELECT new at.ac.tgm.dto.KvAmpelRow(s.id, s.nachname, s.vorname, s.studentKennzahl, h.name, "
+            + "a.id, l.id, t.id, t.name, subj.kurzbezeichnung, subj.langbezeichnung, subj.gegenstandsart, a.farbe, a.bemerkung, a.updatedAt) "
+            + "FROM Student s JOIN s.hitclass h "
+            + "LEFT JOIN Ampel a ON a.student = s LEFT JOIN a.lesson l LEFT JOIN l.subject subj LEFT JOIN a.teacher t "
+            + "WHERE h.klassenvorstand.id = :teacherId "
+            + "ORDER BY h.name, s.nachname, s.vorname, s.id, subj.kurzbezeichnung, a.id")
+    List<KvAmpelRow> findKvMatrixByKlassenvorstandId(@Param("teacherId") Long teacherId);
+
+    /**
+     * Schüler als {@link StudentDto}, optional gefiltert nach Klasse (genauer Name) und Name (Teil von Vor- oder Nachname).
+     * Sortierbar nach den Feldern von {@link Student} sowie {@code h.name}.
+     */
+    @Query(value = "SELECT new at.ac.tgm.dto.StudentDto(s.vorname, s.nachname, s.studentKennzahl, h.name, s.id) "
+            + "FROM Student s LEFT JOIN s.hitclass h "
+            + "WHERE (:klasse IS NULL OR LOWER(h.name) = LOWER(:klasse)) "
+            + "AND (:name IS NULL OR LOWER(CONCAT(s.nachname, ' ', s.vorname)) LIKE LOWER(CONCAT('%', :name, '%')))",
+            countQuery = "SELECT COUNT(s) FROM Student s LEFT JOIN s.hitclass h "
+                    + "WHERE (:klasse IS NULL OR LOWER(h.name) = LOWER(:klasse)) "
+                    + "AND (:name IS NULL OR LOWER(CONCAT(s.nachname, ' ', s.vorname)) LIKE LOWER(CONCAT('%', :name, '%')))")
+    Page<StudentDto> findDtos(@Param("klasse") String klasse, @Param("name") String name, Pageable pageable);
 }
\ No newline at end of file
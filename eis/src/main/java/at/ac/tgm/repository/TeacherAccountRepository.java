@@ -0,0 +1,31 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.dto.TeacherAccountDto;
+import at.ac.tgm.model.TeacherAccount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TeacherAccountRepository extends JpaRepository<TeacherAccount, String> {
+
+    @Query("SELECT a.teacher.id FROM TeacherAccount a WHERE a.samAccountName = :samAccountName")
+    Optional<Long> findTeacherIdBySamAccountName(@Param("samAccountName") String samAccountName);
+
+    @Query("SELECT new at.ac.tgm.dto.TeacherAccountDto(a.samAccountName, t.id, t.name, a.manual, a.updatedAt) "
+            + "FROM TeacherAccount a JOIN a.teacher t ORDER BY a.samAccountName")
+    List<TeacherAccountDto> findAllAsDto();
+
+    @Modifying
+    @Query("DELETE FROM TeacherAccount a WHERE a.teacher.id = :teacherId")
+    int deleteByTeacherId(@Param("teacherId") Long teacherId);
+
+    @Modifying
+    @Query("DELETE FROM TeacherAccount a WHERE a.manual = false")
+    int deleteByManualFalse();
+}
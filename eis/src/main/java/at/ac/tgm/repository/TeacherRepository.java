@@ -1,9 +1,17 @@
 package at.ac.tgm.repository;
 
+import at.ac.tgm.dto.TeacherDto;
+import at.ac.tgm.dto.TeacherLessonRow;
 import at.ac.tgm.model.Teacher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +19,18 @@ public interface TeacherRepository extends JpaRepository<Teacher, Long> {
     Optional<Teacher> findByNameIgnoreCase(String name);
     Optional<Teacher> findByNameContainingIgnoreCaseAndNameContainingIgnoreCase(String firstname, String lastname);
     boolean existsByNameIgnoreCase(String name);
+
+    /**
+     * Lehrer als {@link TeacherDto}, optional gefiltert nach Klasse (unterrichtet dort) und Name (Teil des Namens).
+     */
+    @Query(value = "SELECT new at.ac.tgm.dto.TeacherDto(t.id, t.name) FROM Teacher t "
+            + "WHERE (:klasse IS NULL OR EXISTS (SELECT 1 FROM Lesson l JOIN l.teachers lt WHERE lt = t AND LOWER(l.hitclass.name) = LOWER(:klasse))) "
+            + "AND (:name IS NULL OR LOWER(t.name) LIKE LOWER(CONCAT('%', :name, '%')))",
+            countQuery = "SELECT COUNT(t) FROM Teacher t "
+                    + "WHERE (:klasse IS NULL OR EXISTS (SELECT 1 FROM Lesson l JOIN l.teachers lt WHERE lt = t AND LOWER(l.hitclass.name) = LOWER(:klasse))) "
+                    + "AND (:name IS NULL OR LOWER(t.name) LIKE LOWER(CONCAT('%', :name, '%')))")
+    Page<TeacherDto> findDtos(@Param("klasse") String klasse, @Param("name") String name, Pageable pageable);
+
+    @Query("SELECT new at.ac.tgm.dto.TeacherLessonRow(t.id, l.id) FROM Teacher t JOIN t.lessons l WHERE t.id IN :teacherIds ORDER BY l.id")
+    List<TeacherLessonRow> findLessonRowsByTeacherIdIn(@Param("teacherIds") Collection<Long> teacherIds);
 }
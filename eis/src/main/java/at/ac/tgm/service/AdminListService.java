@@ -0,0 +1,76 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.*;
+import at.ac.tgm.repository.HitclassRepository;
+import at.ac.tgm.repository.LessonRepository;
+import at.ac.tgm.repository.StudentRepository;
+import at.ac.tgm.repository.TeacherRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Die Listen der Admin-Oberfläche, seitenweise und direkt als DTOs abgefragt.
+ * Jede Seite braucht unabhängig von ihrer Größe eine feste Anzahl an Abfragen: die Seite selbst, die Gesamtanzahl
+ * und bei Lehrern bzw. Klassen eine weitere für die zugehörigen Unterrichte bzw. Lehrer. Die Sammlungen werden bewusst
+ * nicht per Fetch-Join geladen, da Hibernate sonst alle Zeilen lädt und erst im Speicher blättert.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AdminListService {
+
+    private final StudentRepository studentRepository;
+    private final LessonRepository lessonRepository;
+    private final TeacherRepository teacherRepository;
+    private final HitclassRepository hitclassRepository;
+
+    public AdminListService(StudentRepository studentRepository, LessonRepository lessonRepository,
+                            TeacherRepository teacherRepository, HitclassRepository hitclassRepository) {
+        this.studentRepository = studentRepository;
+        this.lessonRepository = lessonRepository;
+        this.teacherRepository = teacherRepository;
+        this.hitclassRepository = hitclassRepository;
+    }
+
+    public Page<StudentDto> getStudents(String klasse, String name, Pageable pageable) {
+        return studentRepository.findDtos(blankToNull(klasse), blankToNull(name), pageable);
+    }
+
+    public Page<LessonsDto> getLessons(String klasse, String name, Pageable pageable) {
+        return lessonRepository.findDtos(blankToNull(klasse), blankToNull(name), pageable);
+    }
+
+    public Page<TeacherWithLessonsDto> getTeachersWithLessons(String klasse, String name, Pageable pageable) {
+        Page<TeacherDto> teachers = teacherRepository.findDtos(blankToNull(klasse), blankToNull(name), pageable);
+        Map<Long, List<Long>> lessonIds = new HashMap<>();
+        if (teachers.hasContent()) {
+            for (TeacherLessonRow row : teacherRepository.findLessonRowsByTeacherIdIn(teachers.map(TeacherDto::getId).getContent())) {
+                lessonIds.computeIfAbsent(row.teacherId(), id -> new ArrayList<>()).add(row.lessonId());
+            }
+        }
+        return teachers.map(teacher -> new TeacherWithLessonsDto(teacher.getId(), teacher.getName(),
+                lessonIds.getOrDefault(teacher.getId(), new ArrayList<>())));
+    }
+
+    public Page<HitclassWithTeacherDto> getHitclassesWithTeachers(String name, Pageable pageable) {
+        Page<HitclassWithTeacherDto> hitclasses = hitclassRepository.findDtos(blankToNull(name), pageable);
+        if (hitclasses.hasContent()) {
+            Map<Long, HitclassWithTeacherDto> byId = new HashMap<>();
+            hitclasses.forEach(hitclass -> byId.put(hitclass.getId(), hitclass));
+            for (HitclassTeacherRow row : lessonRepository.findTeacherRowsByHitclassIdIn(byId.keySet())) {
+                byId.get(row.hitclassId()).getTeachers().add(new TeacherDto(row.teacherId(), row.teacherName()));
+            }
+        }
+        return hitclasses;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
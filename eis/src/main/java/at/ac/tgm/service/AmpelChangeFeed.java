@@ -0,0 +1,309 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.AmpelChangeEventDto;
+import at.ac.tgm.dto.AmpelChangeEventDto.Type;
+import at.ac.tgm.dto.AmpelDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Verteilt Ampel-Änderungen per Server-Sent Events an Klassenvorstände, gefiltert auf ihre Klassen.
+ * <p>
+ * Änderungen werden erst nach dem Commit verschickt. Die letzten {@code eis.ampel-feed.buffer-size} Änderungen bleiben
+ * im Speicher, damit ein Client nach einem Verbindungsabbruch ab seiner {@code Last-Event-ID} weitermachen kann.
+ * Ist die ID nicht mehr im Puffer (oder von vor einem Neustart), bekommt er ein {@code reset}-Event und lädt neu.
+ * Massenänderungen ohne einzelne Events (Löschen, Delta-Import) melden sich über {@link #publishReset()}, danach laden alle Clients neu.
+ * <p>
+ * Puffer und Abonnenten werden auf einem einzigen Thread verwaltet, daher ohne Sperren und in ID-Reihenfolge. Geschrieben wird
+ * je Abonnent aus einer eigenen, begrenzten Warteschlange auf einem eigenen Sende-Thread, ein hängender Client hält die anderen
+ * also nicht auf. Läuft seine Warteschlange über oder hängt ein Senden länger als {@code eis.ampel-feed.send-timeout}, wird er getrennt.
+ */
+@Service
+public class AmpelChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmpelChangeFeed.class);
+
+    static final String EVENT_NAME = "ampel";
+    static final String RESET_EVENT_NAME = "reset";
+
+    private final ScheduledExecutorService executor;
+    private final ExecutorService sender;
+    private final int bufferSize;
+    private final int queueSize;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final Deque<AmpelChangeEventDto> buffer = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    // IDs beginnen beim Startzeitpunkt, damit IDs von vor einem Neustart nie als aktuell gelten
+    private long nextId = System.currentTimeMillis() * 1000;
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Long> hitclassIds;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // Beginn des laufenden Sendens, 0 wenn gerade nichts gesendet wird
+        private volatile long sendingSince;
+
+        private Subscriber(SseEmitter emitter, Set<Long> hitclassIds) {
+            this.emitter = emitter;
+            this.hitclassIds = hitclassIds;
+        }
+
+        /**
+         * Stellt das Event in die Warteschlange und startet bei Bedarf das Senden.
+         *
+         * @return {@code false}, wenn die Warteschlange voll ist.
+         */
+        private boolean enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed || !queue.offer(event)) {
+                return false;
+            }
+            if (draining.compareAndSet(false, true)) {
+                onSender(this::drain);
+            }
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event = queue.poll();
+                if (event == null) {
+                    draining.set(false);
+                    // Ein gleichzeitig eingereihtes Event hat kein weiteres Senden gestartet
+                    if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                if (closed) {
+                    continue;
+                }
+                sendingSince = System.currentTimeMillis();
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Ampel-Feed-Client getrennt: {}", e.getMessage());
+                    closed = true;
+                    emitter.completeWithError(e);
+                    onFeedThread(() -> subscribers.remove(this));
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+    }
+
+    public AmpelChangeFeed(@Value("${eis.ampel-feed.buffer-size:1000}") int bufferSize,
+                           @Value("${eis.ampel-feed.timeout:30m}") Duration timeout,
+                           @Value("${eis.ampel-feed.heartbeat:25s}") Duration heartbeat,
+                           @Value("${eis.ampel-feed.queue-size:256}") int queueSize,
+                           @Value("${eis.ampel-feed.send-timeout:10s}") Duration sendTimeout) {
+        this.bufferSize = bufferSize;
+        this.queueSize = queueSize;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eis-ampel-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Ein hängender Client blockiert einen Sende-Thread, bis der Container den Schreibvorgang abbricht
+        this.sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "eis-ampel-feed-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Kommentare halten die Verbindung durch Proxies offen und entfernen abgebrochene Clients
+        executor.scheduleAtFixedRate(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleAtFixedRate(this::dropStalled, sendTimeout.toMillis(), sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Meldet eine Änderung. Innerhalb einer Transaktion wird sie erst nach dem Commit verschickt, bei Rollback gar nicht.
+     */
+    public void publish(Type type, Long hitclassId, Long lessonId, Long studentId, Long teacherId, AmpelDto ampel) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        afterCommit(() -> dispatch(type, hitclassId, lessonId, studentId, teacherId, ampel, timestamp));
+    }
+
+    /**
+     * Meldet eine Massenänderung: Alle Clients bekommen ein {@code reset}-Event, der Puffer wird geleert, sodass auch ein später
+     * wiederverbindender Client mit einer älteren {@code Last-Event-ID} neu lädt. Wie {@link #publish} erst nach dem Commit.
+     */
+    public void publishReset() {
+        afterCommit(this::dispatchReset);
+    }
+
+    /**
+     * Neuer Abonnent für die angegebenen Klassen.
+     *
+     * @param lastEventId Zuletzt empfangene ID, dann werden die seitdem gepufferten Änderungen nachgeschickt.
+     */
+    public SseEmitter subscribe(Set<Long> hitclassIds, Long lastEventId) {
+        SseEmitter emitter = newEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(hitclassIds));
+        Runnable remove = () -> {
+            subscriber.closed = true;
+            onFeedThread(() -> subscribers.remove(subscriber));
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        onFeedThread(() -> {
+            if (lastEventId != null && !replay(subscriber, lastEventId)) {
+                return;
+            }
+            subscribers.add(subscriber);
+        });
+        return emitter;
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onFeedThread(task);
+                }
+            });
+        } else {
+            onFeedThread(task);
+        }
+    }
+
+    /**
+     * Nach {@link #shutdown()} (z.B. beim Beenden noch schließende Verbindungen) wird die Aufgabe verworfen.
+     */
+    private void onFeedThread(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Ampel-Feed bereits beendet, Aufgabe verworfen");
+        }
+    }
+
+    private void dispatch(Type type, Long hitclassId, Long lessonId, Long studentId, Long teacherId, AmpelDto ampel, LocalDateTime timestamp) {
+        AmpelChangeEventDto event = new AmpelChangeEventDto(nextId++, type, hitclassId, lessonId, studentId, teacherId, ampel, timestamp);
+        buffer.addLast(event);
+        while (buffer.size() > bufferSize) {
+            buffer.removeFirst();
+        }
+        subscribers.removeIf(subscriber -> subscribedTo(subscriber, event) && !enqueue(subscriber, event(event)));
+    }
+
+    private void dispatchReset() {
+        // Die ID des Resets wird nicht gepuffert: Wer sie hat, ist aktuell, wer eine ältere hat, bekommt beim Verbinden ein Reset
+        long id = nextId++;
+        buffer.clear();
+        subscribers.removeIf(subscriber -> !enqueue(subscriber, reset(id)));
+    }
+
+    /**
+     * @return {@code false}, wenn der Client dabei getrennt wurde.
+     */
+    private boolean replay(Subscriber subscriber, long lastEventId) {
+        long oldest = buffer.isEmpty() ? nextId : buffer.getFirst().id();
+        if (lastEventId + 1 < oldest || lastEventId >= nextId) {
+            return enqueue(subscriber, reset(nextId - 1));
+        }
+        List<AmpelChangeEventDto> missed = buffer.stream()
+                .filter(event -> event.id() > lastEventId && subscribedTo(subscriber, event))
+                .toList();
+        // Mehr als in die Warteschlange passt: neu laden ist billiger als nachschicken
+        if (missed.size() > queueSize) {
+            return enqueue(subscriber, reset(nextId - 1));
+        }
+        for (AmpelChangeEventDto event : missed) {
+            if (!enqueue(subscriber, event(event))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean subscribedTo(Subscriber subscriber, AmpelChangeEventDto event) {
+        return event.hitclassId() != null && subscriber.hitclassIds.contains(event.hitclassId());
+    }
+
+    private void heartbeat() {
+        subscribers.removeIf(subscriber -> !enqueue(subscriber, SseEmitter.event().comment("heartbeat")));
+    }
+
+    private void dropStalled() {
+        long now = System.currentTimeMillis();
+        subscribers.removeIf(subscriber -> {
+            long since = subscriber.sendingSince;
+            if (since == 0 || now - since <= sendTimeout.toMillis()) {
+                return false;
+            }
+            logger.debug("Ampel-Feed-Client hängt seit {} ms, wird getrennt", now - since);
+            close(subscriber);
+            return true;
+        });
+    }
+
+    /**
+     * @return {@code false}, wenn der Client getrennt wurde (Verbindung zu oder Warteschlange voll).
+     */
+    private boolean enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed) {
+            return false;
+        }
+        if (!subscriber.enqueue(event)) {
+            logger.debug("Warteschlange eines Ampel-Feed-Clients voll, wird getrennt");
+            close(subscriber);
+            return false;
+        }
+        return true;
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscriber.queue.clear();
+        // Blockiert, solange das hängende Senden läuft, daher nicht auf dem Feed-Thread
+        onSender(subscriber.emitter::complete);
+    }
+
+    private void onSender(Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Ampel-Feed bereits beendet, Senden verworfen");
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(AmpelChangeEventDto event) {
+        return SseEmitter.event().id(String.valueOf(event.id())).name(EVENT_NAME).data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private static SseEmitter.SseEventBuilder reset(long id) {
+        return SseEmitter.event().name(RESET_EVENT_NAME).id(String.valueOf(id)).data("");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        onFeedThread(() -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        executor.shutdown();
+        sender.shutdown();
+    }
+}
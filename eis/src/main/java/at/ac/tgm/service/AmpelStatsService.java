@@ -0,0 +1,157 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.AmpelStatsDto;
+import at.ac.tgm.model.Ampel;
+import at.ac.tgm.model.AmpelFarbe;
+import at.ac.tgm.model.AmpelStat;
+import at.ac.tgm.model.AmpelStudentStat;
+import at.ac.tgm.model.Lesson;
+import at.ac.tgm.repository.AmpelRepository;
+import at.ac.tgm.repository.AmpelStatRepository;
+import at.ac.tgm.repository.AmpelStudentStatRepository;
+import at.ac.tgm.repository.HitclassRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Ampel-Statistik je Klasse × Gegenstand × Farbe und je Schüler × Farbe.
+ * <p>
+ * Einzelne Änderungen ({@link TeacherAmpelService}) schreiben die Zähler um die Differenz fort, sodass das Lesen
+ * unabhängig von der Anzahl der Ampeln ist. Die bisherige Farbe muss dafür gesperrt gelesen werden, sonst zählen
+ * gleichzeitige Änderungen derselben Ampel doppelt. Massenlöschungen (Import, Admin) berechnen die Tabellen mit
+ * {@link #rebuild()} neu.
+ */
+@Service
+public class AmpelStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmpelStatsService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AmpelStatRepository ampelStatRepository;
+    private final AmpelStudentStatRepository ampelStudentStatRepository;
+    private final AmpelRepository ampelRepository;
+    private final HitclassRepository hitclassRepository;
+
+    public AmpelStatsService(AmpelStatRepository ampelStatRepository, AmpelStudentStatRepository ampelStudentStatRepository,
+                             AmpelRepository ampelRepository, HitclassRepository hitclassRepository) {
+        this.ampelStatRepository = ampelStatRepository;
+        this.ampelStudentStatRepository = ampelStudentStatRepository;
+        this.ampelRepository = ampelRepository;
+        this.hitclassRepository = hitclassRepository;
+    }
+
+    /**
+     * Sammelt die Farbwechsel einer Transaktion, damit jeder Zähler nur einmal geschrieben wird.
+     */
+    public static class Changes {
+        private final Map<AmpelStat.Key, Long> subjects = new HashMap<>();
+        private final Map<AmpelStudentStat.Key, Long> students = new HashMap<>();
+
+        /**
+         * @param alt Farbe vor der Änderung, {@code null} wenn die Ampel neu ist.
+         * @param neu Farbe nach der Änderung, {@code null} wenn die Ampel gelöscht wurde.
+         */
+        public Changes change(Lesson lesson, Long studentId, AmpelFarbe alt, AmpelFarbe neu) {
+            if (alt == neu || lesson.getHitclass() == null || lesson.getSubject() == null) {
+                return this;
+            }
+            count(lesson, studentId, alt, -1);
+            count(lesson, studentId, neu, 1);
+            return this;
+        }
+
+        private void count(Lesson lesson, Long studentId, AmpelFarbe farbe, long delta) {
+            if (farbe == null) {
+                return;
+            }
+            Long hitclassId = lesson.getHitclass().getId();
+            subjects.merge(new AmpelStat.Key(hitclassId, lesson.getSubject().getId(), farbe), delta, Long::sum);
+            students.merge(new AmpelStudentStat.Key(hitclassId, studentId, farbe), delta, Long::sum);
+        }
+
+        public boolean isEmpty() {
+            return subjects.values().stream().allMatch(delta -> delta == 0) && students.values().stream().allMatch(delta -> delta == 0);
+        }
+    }
+
+    /**
+     * Schreibt die gesammelten Änderungen in der laufenden Transaktion fort.
+     */
+    @Transactional
+    public void apply(Changes changes) {
+        if (!changes.isEmpty()) {
+            ampelStatRepository.add(changes.subjects, changes.students);
+        }
+    }
+
+    /**
+     * Trägt die Ampeln eines Schülers vor dessen Löschen aus der Statistik aus, statt sie neu zu berechnen.
+     *
+     * @param ampeln Alle Ampeln des Schülers, gesperrt gelesen.
+     */
+    @Transactional
+    public void removeStudent(Long studentId, Collection<Ampel> ampeln) {
+        Changes changes = new Changes();
+        ampeln.forEach(ampel -> changes.change(ampel.getLesson(), studentId, ampel.getFarbe(), null));
+        apply(changes);
+        ampelStudentStatRepository.deleteByStudentId(studentId);
+    }
+
+    /**
+     * Berechnet die Statistik aus den Ampeln neu. Noch nicht geschriebene Änderungen werden vorher geschrieben,
+     * da die Neuberechnung direkt per SQL läuft.
+     */
+    @Transactional
+    public void rebuild() {
+        entityManager.flush();
+        ampelStatRepository.rebuild();
+    }
+
+    /**
+     * Füllt die Tabellen beim ersten Start mit bestehenden Ampeln.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (ampelStatRepository.count() == 0 && ampelRepository.count() > 0) {
+            ampelStatRepository.rebuild();
+            logger.info("Ampel-Statistik aus {} Ampeln berechnet.", ampelRepository.count());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public AmpelStatsDto getStats() {
+        return new AmpelStatsDto(ampelStatRepository.findAllDtos(), ampelStudentStatRepository.findAllDtos());
+    }
+
+    @Transactional(readOnly = true)
+    public AmpelStatsDto getStats(Collection<Long> hitclassIds) {
+        if (hitclassIds.isEmpty()) {
+            return new AmpelStatsDto(List.of(), List.of());
+        }
+        return new AmpelStatsDto(ampelStatRepository.findDtosByHitclassIdIn(hitclassIds),
+                ampelStudentStatRepository.findDtosByHitclassIdIn(hitclassIds));
+    }
+
+    /**
+     * Die Statistik der Klassen, deren Klassenvorstand der Lehrer ist.
+     */
+    @Transactional(readOnly = true)
+    public AmpelStatsDto getKvStats(Long teacherId) {
+        return getStats(hitclassRepository.findIdsByKlassenvorstandId(Objects.requireNonNull(teacherId)));
+    }
+}
@@ -0,0 +1,63 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.Consts;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import static at.ac.tgm.repository.AmpelInsertRepositoryImpl.*;
+
+/**
+ * Der eindeutige Schlüssel auf (Unterricht, Schüler, Lehrer) kam erst nachträglich dazu. Solange es doppelte Ampeln gibt,
+ * kann das Schema-Update ihn nicht anlegen und protokolliert nur eine Warnung. Beim Start werden daher doppelte Ampeln
+ * entfernt (die mit der höchsten ID, also die zuletzt angelegte, bleibt; die übrigen werden mit Farbe und Bemerkung protokolliert)
+ * und der Schlüssel danach angelegt.
+ * Die Statistik wird in dem Fall geleert und beim Start aus den verbliebenen Ampeln neu berechnet.
+ * Hängt von der {@link EntityManagerFactory} ab, damit die Tabellen zu diesem Zeitpunkt bereits angelegt sind.
+ */
+@Component
+public class AmpelUniqueKeyInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmpelUniqueKeyInitializer.class);
+
+    private static final String STAT_TABLE = (Consts.EIS_TABLE_PREFIX + "AMPELSTAT").toLowerCase();
+    private static final String STUDENT_STAT_TABLE = (Consts.EIS_TABLE_PREFIX + "AMPELSTUDENTSTAT").toLowerCase();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AmpelUniqueKeyInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void ensureUniqueKey() {
+        if (hasUniqueKey(jdbcTemplate)) {
+            return;
+        }
+        // Zeilen mit NULL in einer der Spalten verletzen den Schlüssel nicht und bleiben daher erhalten
+        String duplicates = " FROM " + TABLE + " WHERE lesson_id IS NOT NULL AND student_id IS NOT NULL AND teacher_id IS NOT NULL"
+                + " AND id NOT IN (SELECT id FROM (SELECT MAX(id) AS id FROM " + TABLE + " GROUP BY lesson_id, student_id, teacher_id) newest)";
+        // Die entfernten Einträge (v.a. Bemerkungen) sollen sich aus dem Log wiederherstellen lassen
+        jdbcTemplate.query("SELECT id, lesson_id, student_id, teacher_id, farbe, bemerkung, updated_at" + duplicates + " ORDER BY id",
+                (RowCallbackHandler) row -> logger.warn("Entferne doppelte Ampel id={} (Unterricht {}, Schüler {}, Lehrer {}): farbe={}, bemerkung={}, geändert {}",
+                        row.getLong("id"), row.getLong("lesson_id"), row.getLong("student_id"), row.getLong("teacher_id"),
+                        row.getString("farbe"), row.getString("bemerkung"), row.getTimestamp("updated_at")));
+        int removed = jdbcTemplate.update("DELETE" + duplicates);
+        if (removed > 0) {
+            logger.warn("{} doppelte Ampeln entfernt", removed);
+            jdbcTemplate.update("DELETE FROM " + STAT_TABLE);
+            jdbcTemplate.update("DELETE FROM " + STUDENT_STAT_TABLE);
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + UNIQUE_KEY + " UNIQUE (lesson_id, student_id, teacher_id)");
+            logger.info("Eindeutiger Schlüssel {} auf {} angelegt", UNIQUE_KEY, TABLE);
+        } catch (DataAccessException e) {
+            logger.error("Eindeutiger Schlüssel {} auf {} konnte nicht angelegt werden, Ampeln werden über JPA angelegt", UNIQUE_KEY, TABLE, e);
+        }
+    }
+}
@@ -1,83 +1,97 @@
 package at.ac.tgm.service;
 
-import at.ac.tgm.repository.*;
+import at.ac.tgm.model.*;
+import at.ac.tgm.versioning.EntityVersions;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Service
 public class DatabaseService {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseService.class);
 
-    private final AmpelRepository ampelRepository;
-    private final LessonRepository lessonRepository;
-    private final StudentRepository studentRepository;
-    private final TeacherRepository teacherRepository;
-    private final SubjectRepository subjectRepository;
-    private final HitclassRepository hitclassRepository;
-    // Füge weitere Repositories hinzu, falls notwendig
+    // Tabelle der Lehrerzuteilung, siehe Lesson.teachers
+    private static final String LESSON_TEACHER_TABLE = "lesson_teacher";
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    @Autowired
-    public DatabaseService(
-            AmpelRepository ampelRepository,
-            LessonRepository lessonRepository,
-            StudentRepository studentRepository,
-            TeacherRepository teacherRepository,
-            SubjectRepository subjectRepository,
-            HitclassRepository hitclassRepository
-            // Initialisiere weitere Repositories
-    ) {
-        this.ampelRepository = ampelRepository;
-        this.lessonRepository = lessonRepository;
-        this.studentRepository = studentRepository;
-        this.teacherRepository = teacherRepository;
-        this.subjectRepository = subjectRepository;
-        this.hitclassRepository = hitclassRepository;
-        // Initialisiere weitere Repositories
+    private final TeacherIdentityService teacherIdentityService;
+    private final AmpelChangeFeed ampelChangeFeed;
+    private final EntityVersions entityVersions;
+
+    public DatabaseService(TeacherIdentityService teacherIdentityService, AmpelChangeFeed ampelChangeFeed, EntityVersions entityVersions) {
+        this.teacherIdentityService = teacherIdentityService;
+        this.ampelChangeFeed = ampelChangeFeed;
+        this.entityVersions = entityVersions;
     }
 
     /**
      * Löscht alle Daten aus der Datenbank.
-     * Die Löschreihenfolge muss den Foreign-Key-Beschränkungen entsprechen.
+     * Die Löschreihenfolge muss den Foreign-Key-Beschränkungen entsprechen. Gelöscht wird je Tabelle mit einer
+     * einzigen DELETE-Anweisung, ohne die Entitäten zu laden und ohne Kaskaden. Von Hand gesetzte Lehrerzuordnungen
+     * bleiben samt ihren Lehrern erhalten, der nächste Import findet die Lehrer über den Namen wieder.
+     *
+     * @return Anzahl der gelöschten Zeilen je Tabelle, in Löschreihenfolge.
      */
     @Transactional
-    public void deleteAllData() {
+    public Map<String, Integer> deleteAllData() {
         logger.info("Beginne mit dem Löschen aller Daten in der Datenbank.");
+        Map<String, Integer> deleted = new LinkedHashMap<>();
 
         try {
-            // 1. Ampel löschen
-            ampelRepository.deleteAll();
-            logger.info("Alle Ampel-Daten gelöscht.");
-
-            // 2. Lektion löschen
-            lessonRepository.deleteAll();
-            logger.info("Alle Lektion-Daten gelöscht.");
-
+            // 1. Ampel samt Statistik löschen
+            deleted.put("ampel", entityManager.createQuery("DELETE FROM Ampel").executeUpdate());
+            deleted.put("ampel_stat", entityManager.createQuery("DELETE FROM AmpelStat").executeUpdate());
+            deleted.put("ampel_student_stat", entityManager.createQuery("DELETE FROM AmpelStudentStat").executeUpdate());
+            // 2. Lehrerzuteilungen und Lektionen löschen
+            deleted.put(LESSON_TEACHER_TABLE, entityManager.createNativeQuery("DELETE FROM " + LESSON_TEACHER_TABLE).executeUpdate());
+            deleted.put("lesson", entityManager.createQuery("DELETE FROM Lesson").executeUpdate());
             // 3. Schüler löschen
-            studentRepository.deleteAll();
-            logger.info("Alle Schüler-Daten gelöscht.");
-
-            // 4. Lehrer löschen
-            teacherRepository.deleteAll();
-            logger.info("Alle Lehrer-Daten gelöscht.");
-
-            // 5. Fach löschen
-            subjectRepository.deleteAll();
-            logger.info("Alle Fach-Daten gelöscht.");
-
-            // 6. Klasse löschen
-            hitclassRepository.deleteAll();
-            logger.info("Alle Klassen-Daten gelöscht.");
+            deleted.put("student", entityManager.createQuery("DELETE FROM Student").executeUpdate());
+            // 4. Klasse löschen (verweist auf den Klassenvorstand)
+            deleted.put("hitclass", entityManager.createQuery("DELETE FROM Hitclass").executeUpdate());
+            // 5. Lehrer samt automatischer AD-Zuordnung löschen, Lehrer mit manueller Zuordnung bleiben
+            deleted.put("teacher_account", entityManager.createQuery("DELETE FROM TeacherAccount a WHERE a.manual = false").executeUpdate());
+            deleted.put("teacher", entityManager.createQuery("DELETE FROM Teacher t WHERE t.id NOT IN (SELECT a.teacher.id FROM TeacherAccount a)")
+                    .executeUpdate());
+            // 6. Fach löschen
+            deleted.put("subject", entityManager.createQuery("DELETE FROM Subject").executeUpdate());
 
             // Füge hier weitere Entitäten entsprechend hinzu
         } catch (Exception e) {
             logger.error("Fehler beim Löschen der Datenbank: ", e);
             throw e; // Löst die Transaktion zurück
         }
+        entityManager.clear();
+        teacherIdentityService.clearCache();
+        entityVersions.markChanged(Ampel.class, Lesson.class, Student.class, Hitclass.class, TeacherAccount.class, Teacher.class, Subject.class);
+        ampelChangeFeed.publishReset();
+
+        logger.info("Alle Daten wurden erfolgreich gelöscht: {}", deleted);
+        return deleted;
+    }
 
-        logger.info("Alle Daten wurden erfolgreich gelöscht.");
+    /**
+     * Löscht alle Ampeln und die Ampel-Statistik mit je einer DELETE-Anweisung.
+     *
+     * @return Anzahl der gelöschten Ampeln.
+     */
+    @Transactional
+    public int deleteAllAmpel() {
+        int deleted = entityManager.createQuery("DELETE FROM Ampel").executeUpdate();
+        entityManager.createQuery("DELETE FROM AmpelStat").executeUpdate();
+        entityManager.createQuery("DELETE FROM AmpelStudentStat").executeUpdate();
+        entityVersions.markChanged(Ampel.class);
+        ampelChangeFeed.publishReset();
+        logger.info("{} Ampeln gelöscht.", deleted);
+        return deleted;
     }
 }
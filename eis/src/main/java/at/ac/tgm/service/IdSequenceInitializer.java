@@ -0,0 +1,70 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.Consts;
+import at.ac.tgm.repository.DatabaseProduct;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Die EIS-Tabellen haben ihre IDs früher per IDENTITY bekommen, jetzt über Sequenzen (damit Hibernate Inserts bündeln kann).
+ * Beim Start wird jede Sequenz, deren nächster Wert nicht hinter der größten vorhandenen ID liegt, dorthin gesetzt,
+ * sonst würden neue Datensätze mit bestehenden kollidieren. Im Normalfall (nur einmal nach der Umstellung) bleibt die Sequenz unverändert.
+ * Hängt von der {@link EntityManagerFactory} ab, damit Tabellen und Sequenzen zu diesem Zeitpunkt bereits angelegt sind.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    private static final List<String> TABLES = List.of("TEACHEREIS", "EISSTUDENT", "LESSONEIS", "SUBJECTEIS", "HITCLASSEIS", "AMPELEIS");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        String product = DatabaseProduct.of(jdbcTemplate);
+        for (String table : TABLES) {
+            String tableName = (Consts.EIS_TABLE_PREFIX + table).toLowerCase();
+            String sequenceName = tableName + "_seq";
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tableName, Long.class);
+            // Der pooled-Optimizer vergibt nach "nextval = n" die IDs n - allocationSize + 1 bis n
+            long restart = (maxId == null ? 0 : maxId) + Consts.EIS_ID_ALLOCATION_SIZE;
+            Long next = nextValue(product, sequenceName);
+            if (next != null && next >= restart) {
+                logger.debug("Sequenz {} steht bei {}, größte ID ist {}", sequenceName, next, maxId);
+                continue;
+            }
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequenceName + " RESTART WITH " + restart);
+            logger.info("Sequenz {} von {} auf {} gesetzt", sequenceName, next, restart);
+        }
+    }
+
+    /**
+     * Nächster Wert der Sequenz, ohne ihn zu verbrauchen. Bei MariaDB ist das der erste nicht zwischengespeicherte Wert,
+     * alle bisher vergebenen IDs liegen darunter. {@code null}, wenn die Datenbank nicht unterstützt wird.
+     */
+    Long nextValue(String product, String sequenceName) {
+        try {
+            return switch (product) {
+                case "h2" -> jdbcTemplate.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = ?",
+                        Long.class, sequenceName.toUpperCase());
+                case "mariadb" -> jdbcTemplate.queryForObject("SELECT next_not_cached_value FROM " + sequenceName, Long.class);
+                default -> null;
+            };
+        } catch (DataAccessException e) {
+            logger.warn("Stand der Sequenz {} nicht lesbar: {}", sequenceName, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.DeltaImportReportDto;
+import at.ac.tgm.dto.ImportJobDto;
+import at.ac.tgm.dto.ImportJobDto.Status;
+import at.ac.tgm.dto.ImportSummaryDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Führt CSV-Importe (normal und Delta) im Hintergrund aus: Der Upload wird in eine temporäre Datei geschrieben, der Import läuft auf einem
+ * eigenen Executor und ist über die Job-ID abfragbar. So blockiert auch ein schulweiter Export keinen Servlet-Thread.
+ * <p>
+ * Abgeschlossene Jobs werden nach {@code eis.import.job-retention} verworfen, geprüft wird alle
+ * {@code eis.import.job-eviction-interval}. Die temporäre Datei wird in jedem Fall gelöscht, auch wenn der Job nicht mehr eingereiht werden kann.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final ImportService importService;
+    private final ScheduledExecutorService executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Duration retention;
+    // Nur für Tests änderbar
+    Path spoolDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+
+    public ImportJobService(ImportService importService,
+                            @Value("${eis.import.threads:1}") int threads,
+                            @Value("${eis.import.job-retention:1h}") Duration retention,
+                            @Value("${eis.import.job-eviction-interval:1m}") Duration evictionInterval) {
+        this.importService = importService;
+        this.retention = retention;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "eis-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::evictFinishedJobs, evictionInterval.toMillis(), evictionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Speichert den Upload zwischen und reiht den Import ein.
+     *
+     * @return Der Job im Zustand {@link Status#QUEUED}.
+     */
+    public ImportJobDto submit(MultipartFile file) throws IOException {
+        return submit(file, (reader, job) -> job.summary = importService.importCsv(reader, job.rowsProcessed::set));
+    }
+
+    /**
+     * Wie {@link #submit(MultipartFile)}, aber als {@link ImportService#importDelta Delta-Import}. Der Bericht steht nach
+     * Abschluss im Job.
+     */
+    public ImportJobDto submitDelta(MultipartFile file, boolean dryRun) throws IOException {
+        return submit(file, (reader, job) -> {
+            job.delta = importService.importDelta(reader, dryRun, job.rowsProcessed::set);
+            job.summary = job.delta.getSummary();
+        });
+    }
+
+    private ImportJobDto submit(MultipartFile file, ImportTask task) throws IOException {
+        Path spool = Files.createTempFile(spoolDirectory, "eis-import-", ".csv");
+        boolean queued = false;
+        try {
+            file.transferTo(spool);
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+            jobs.put(job.id, job);
+            try {
+                executor.execute(() -> run(job, spool, task));
+            } catch (RuntimeException e) {
+                jobs.remove(job.id);
+                throw e;
+            }
+            queued = true;
+            return job.toDto();
+        } finally {
+            // Ab dem Einreihen löscht der Job die Datei selbst
+            if (!queued) {
+                Files.deleteIfExists(spool);
+            }
+        }
+    }
+
+    public Optional<ImportJobDto> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ImportJob::toDto);
+    }
+
+    private void run(ImportJob job, Path spool, ImportTask task) {
+        job.startNanos = System.nanoTime();
+        job.startedAt = LocalDateTime.now();
+        job.status = Status.RUNNING;
+        try (Reader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            task.run(reader, job);
+            job.status = Status.COMPLETED;
+        } catch (Exception e) {
+            logger.error("CSV-Import {} fehlgeschlagen", job.id, e);
+            job.errors.add(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            job.status = Status.FAILED;
+        } finally {
+            job.endNanos = System.nanoTime();
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                logger.warn("Temporäre Importdatei {} konnte nicht gelöscht werden", spool, e);
+            }
+        }
+    }
+
+    void evictFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private interface ImportTask {
+        void run(Reader reader, ImportJob job) throws IOException;
+    }
+
+    private static class ImportJob {
+        private final String id;
+        private final String fileName;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicInteger rowsProcessed = new AtomicInteger();
+        private final List<String> errors = new CopyOnWriteArrayList<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile ImportSummaryDto summary;
+        private volatile DeltaImportReportDto delta;
+
+        ImportJob(String id, String fileName) {
+            this.id = id;
+            this.fileName = fileName;
+        }
+
+        ImportJobDto toDto() {
+            int rows = rowsProcessed.get();
+            double rowsPerSecond = 0;
+            if (startedAt != null) {
+                long end = finishedAt != null ? endNanos : System.nanoTime();
+                double seconds = (end - startNanos) / 1e9;
+                rowsPerSecond = seconds > 0 ? rows / seconds : 0;
+            }
+            return new ImportJobDto(id, status, fileName, rows, rowsPerSecond, submittedAt, startedAt, finishedAt,
+                    List.copyOf(errors), summary, delta);
+        }
+    }
+}
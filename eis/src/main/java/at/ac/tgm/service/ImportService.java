@@ -1,63 +1,437 @@
 package at.ac.tgm.service;
 
+import at.ac.tgm.dto.DeltaImportReportDto;
+import at.ac.tgm.dto.ImportSummaryDto;
 import at.ac.tgm.model.*;
 import at.ac.tgm.repository.*;
+import at.ac.tgm.versioning.EntityVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 @Service
 public class ImportService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+
     private final TeacherRepository teacherRepository;
     private final HitclassRepository hitclassRepository;
     private final StudentRepository studentRepository;
     private final SubjectRepository subjectRepository;
     private final LessonRepository lessonRepository;
+    private final AmpelRepository ampelRepository;
 
-    // Eine einzige Liste aller unerwünschten Titel
-    private static final List<String> KNOWN_TITLES = Arrays.asList(
-            "Mag.a", "MMag", "Mag.", "MSc", "DI", "(FH)", "Dipl.-Ing.",
-            "BED", "BEd", "Bed", "BSc", "Dr", "Ing", "Bakk.techn",
-            "Prof", "MA", "MEd", "rer.nat.", "PhD", "FL", "FOL",
-            "BA", "Dipl.-Päd.", "techn.", "Mag.rer.nat.", "Ing.Mag.", "DI(FH)", "Dr.techn.",
-            "Mag.Dr.", "Ing.Dipl.-Päd.", "MMag.Dr.", "Dipl.-Ing.(FH)", "Dipl.-Ing.Dr.", "MAS", "BSc(WU)", "Mag.phil.", "Ing.DI", "Ing.Dr.", "Mag.(FH)"
-    );
+    private final TeacherNameNormalizer teacherNameNormalizer;
+    private final AmpelStatsService ampelStatsService;
+    private final TeacherIdentityService teacherIdentityService;
+    private final AmpelChangeFeed ampelChangeFeed;
+    private final EntityVersions entityVersions;
 
     @Autowired
     public ImportService(TeacherRepository teacherRepository,
                          HitclassRepository hitclassRepository,
                          StudentRepository studentRepository,
                          SubjectRepository subjectRepository,
-                         LessonRepository lessonRepository) {
+                         LessonRepository lessonRepository,
+                         AmpelRepository ampelRepository,
+                         TeacherNameNormalizer teacherNameNormalizer,
+                         AmpelStatsService ampelStatsService,
+                         TeacherIdentityService teacherIdentityService,
+                         AmpelChangeFeed ampelChangeFeed,
+                         EntityVersions entityVersions) {
         this.teacherRepository = teacherRepository;
         this.hitclassRepository = hitclassRepository;
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
         this.lessonRepository = lessonRepository;
+        this.ampelRepository = ampelRepository;
+        this.teacherNameNormalizer = teacherNameNormalizer;
+        this.ampelStatsService = ampelStatsService;
+        this.teacherIdentityService = teacherIdentityService;
+        this.ampelChangeFeed = ampelChangeFeed;
+        this.entityVersions = entityVersions;
     }
 
     /**
      * Methode, um ein ganzes CSV-File (MultipartFile) einzulesen.
      */
     @Transactional
-    public void importCsv(MultipartFile file) throws Exception {
-        System.out.println("Daten werden vearbeitet...");
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)
-        )) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                importCsvLine(line);
+    public ImportSummaryDto importCsv(MultipartFile file) throws IOException {
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return importCsv(reader);
+        }
+    }
+
+    /**
+     * Liest die CSV zeilenweise ein. Bestehende Klassen, Schüler, Gegenstände, Lehrer und Unterrichte werden vorab
+     * mit je einer Abfrage in Maps geladen, danach kommt der Import ohne weitere Abfragen aus. Bereits vorhandene Schüler
+     * behalten Namen und Klasse, das übernimmt nur der {@link #importDelta(Reader, boolean) Delta-Import}. Neue Datensätze
+     * bekommen ihre ID aus der Sequenz und werden erst beim Commit gebündelt eingefügt ({@code hibernate.jdbc.batch_size}).
+     */
+    @Transactional
+    public ImportSummaryDto importCsv(Reader reader) throws IOException {
+        return importCsv(reader, rows -> {
+        });
+    }
+
+    /**
+     * Wie {@link #importCsv(Reader)}, meldet nach jeder Zeile die Anzahl der bisher gelesenen Zeilen an {@code progress}.
+     */
+    @Transactional
+    public ImportSummaryDto importCsv(Reader reader, IntConsumer progress) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportRun run = new ImportRun();
+        BufferedReader br = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            run.importLine(line);
+            progress.accept(run.summary.getRowsRead());
+        }
+        run.resetTeacherMappings();
+        run.summary.setDurationMillis(System.currentTimeMillis() - start);
+        logger.info("CSV-Import abgeschlossen: {}", run.summary);
+        return run.summary;
+    }
+
+    /**
+     * Delta-Import: Gleicht den aktuellen Stand mit der CSV ab, statt alles zu löschen und neu zu importieren.
+     * Neue Datensätze werden angelegt, Schülernamen, Klassenwechsel, Lehrerzuteilungen und Klassenvorstände angepasst.
+     * Schüler und Unterrichte, die nicht mehr in der CSV stehen, werden samt ihren Ampeln gelöscht, ebenso Klassen ohne Zeilen.
+     * Alle übrigen Ampeln bleiben erhalten. Lehrer und Gegenstände werden nie gelöscht, da Ampeln bzw. Anmeldungen auf sie verweisen.
+     *
+     * @param dryRun Nur den Bericht erstellen: Es wird nichts angelegt, geändert oder gelöscht (auch keine Sequenzwerte verbraucht),
+     *               die zu löschenden Ampeln werden nur gezählt.
+     */
+    @Transactional
+    public DeltaImportReportDto importDelta(Reader reader, boolean dryRun) throws IOException {
+        return importDelta(reader, dryRun, rows -> {
+        });
+    }
+
+    /**
+     * Wie {@link #importDelta(Reader, boolean)}, meldet nach jeder Zeile die Anzahl der bisher gelesenen Zeilen an {@code progress}.
+     */
+    @Transactional
+    public DeltaImportReportDto importDelta(Reader reader, boolean dryRun, IntConsumer progress) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportRun run = new ImportRun(new DeltaImportReportDto(), dryRun);
+        BufferedReader br = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            run.importLine(line);
+            progress.accept(run.summary.getRowsRead());
+        }
+        run.applyDelta();
+        run.resetTeacherMappings();
+        DeltaImportReportDto report = run.delta;
+        report.setDryRun(dryRun);
+        report.setSummary(run.summary);
+        run.summary.setDurationMillis(System.currentTimeMillis() - start);
+        if (dryRun) {
+            // Nur zur Sicherheit, ein Probelauf ändert keine Entitäten
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        logger.info("Delta-Import{} abgeschlossen: {}", dryRun ? " (Probelauf)" : "", run.summary);
+        return report;
+    }
+
+    /**
+     * Zustand eines einzelnen Imports: bekannte Datensätze nach ihrem fachlichen Schlüssel und die Zusammenfassung.
+     * Beim Delta-Import werden zusätzlich die in der CSV vorkommenden Datensätze gesammelt und erst am Ende abgeglichen.
+     * Im Probelauf werden neue Datensätze nur im Speicher angelegt und bestehende nicht verändert.
+     */
+    private class ImportRun {
+        private final ImportSummaryDto summary = new ImportSummaryDto();
+        private final Map<String, Teacher> teachers = new HashMap<>();
+        private final Map<String, Subject> subjects = new HashMap<>();
+        private final Map<String, Hitclass> hitclasses = new HashMap<>();
+        private final Map<String, Student> students = new HashMap<>();
+        private final Map<String, Lesson> lessons = new HashMap<>();
+        // Bereits in diesem Import angelegt, Änderungen daran zählen nicht als Update
+        private final Set<Object> created = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // Nur beim Delta-Import
+        private final DeltaImportReportDto delta;
+        private final boolean dryRun;
+        private final Set<Hitclass> seenHitclasses = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Student> seenStudents = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Lesson, Set<Teacher>> lessonTeachers = new IdentityHashMap<>();
+        private final Map<Hitclass, Teacher> klassenvorstaende = new IdentityHashMap<>();
+
+        ImportRun() {
+            this(null, false);
+        }
+
+        ImportRun(DeltaImportReportDto delta, boolean dryRun) {
+            this.delta = delta;
+            this.dryRun = dryRun;
+            // Reihenfolge so gewählt, dass die eager geladenen Beziehungen bereits im Persistence Context liegen
+            teacherRepository.findAll().forEach(teacher -> teachers.putIfAbsent(teacherKey(teacher.getName()), teacher));
+            subjectRepository.findAll().forEach(subject -> subjects.putIfAbsent(
+                    subjectKey(subject.getKurzbezeichnung(), subject.getGegenstandsart(), subject.getLangbezeichnung()), subject));
+            hitclassRepository.findAll().forEach(hitclass -> hitclasses.putIfAbsent(hitclass.getName(), hitclass));
+            studentRepository.findAll().forEach(student -> students.putIfAbsent(student.getStudentKennzahl(), student));
+            lessonRepository.findAllWithTeachers().forEach(lesson -> lessons.putIfAbsent(
+                    lessonKey(lesson.getSubject(), lesson.getHitclass()), lesson));
+        }
+
+        void importLine(String csvLine) {
+            summary.setRowsRead(summary.getRowsRead() + 1);
+            String[] cols = csvLine.split(";");
+            if (cols.length < 16 || !cols[1].trim().contains("HIT")) {
+                summary.setRowsSkipped(summary.getRowsSkipped() + 1);
+                return;
+            }
+
+            String klasse = cols[1].trim();
+            String studentKennzahl = cols[4].trim();
+            String nachname = cols[5].trim();
+            String vorname = cols[6].trim();
+            String gegenstandsart = cols[11].trim();
+            String kurzbezeichnung = cols[13].trim();
+            String langbezeichnung = cols[14].trim();
+            String lehrerNamen = cols[15].trim();
+
+            Hitclass hitclass = hitclasses.computeIfAbsent(klasse, name -> {
+                summary.setHitclassesCreated(summary.getHitclassesCreated() + 1);
+                change("Klasse angelegt: " + name);
+                return persist(hitclassRepository, Hitclass.builder().name(name).build());
+            });
+
+            Student student = students.get(studentKennzahl);
+            if (student == null) {
+                student = persist(studentRepository, Student.builder()
+                        .vorname(vorname)
+                        .nachname(nachname)
+                        .studentKennzahl(studentKennzahl)
+                        .hitclass(hitclass)
+                        .build());
+                students.put(studentKennzahl, student);
+                summary.setStudentsCreated(summary.getStudentsCreated() + 1);
+                change("Schüler angelegt: " + describe(student));
+            } else if (delta != null && !created.contains(student) && (!Objects.equals(student.getVorname(), vorname)
+                    || !Objects.equals(student.getNachname(), nachname) || student.getHitclass() != hitclass)) {
+                // Namensänderung oder Klassenwechsel, z.B. im neuen Schuljahr. Der normale Import lässt bestehende Schüler unverändert.
+                change("Schüler geändert: " + describe(student) + " -> " + describe(studentKennzahl, nachname, vorname, hitclass));
+                if (!dryRun) {
+                    student.setVorname(vorname);
+                    student.setNachname(nachname);
+                    student.setHitclass(hitclass);
+                }
+                summary.setStudentsUpdated(summary.getStudentsUpdated() + 1);
+            }
+
+            Subject subject = subjects.computeIfAbsent(subjectKey(kurzbezeichnung, gegenstandsart, langbezeichnung), key -> {
+                summary.setSubjectsCreated(summary.getSubjectsCreated() + 1);
+                change("Gegenstand angelegt: " + kurzbezeichnung + " (" + langbezeichnung + ")");
+                return persist(subjectRepository, Subject.builder()
+                        .kurzbezeichnung(kurzbezeichnung)
+                        .gegenstandsart(gegenstandsart)
+                        .langbezeichnung(langbezeichnung)
+                        .build());
+            });
+
+            Lesson lesson = lessons.computeIfAbsent(lessonKey(subject, hitclass), key -> {
+                summary.setLessonsCreated(summary.getLessonsCreated() + 1);
+                change("Unterricht angelegt: " + hitclass.getName() + " " + subject.getKurzbezeichnung());
+                return persist(lessonRepository, Lesson.builder()
+                        .subject(subject)
+                        .hitclass(hitclass)
+                        .teachers(new HashSet<>())
+                        .build());
+            });
+
+            List<Teacher> rowTeachers = new ArrayList<>();
+            for (String lehrerName : lehrerNamen.split(",")) {
+                String name = removeTitles(lehrerName.trim());
+                if (!name.isEmpty()) {
+                    rowTeachers.add(teachers.computeIfAbsent(teacherKey(name), key -> {
+                        summary.setTeachersCreated(summary.getTeachersCreated() + 1);
+                        change("Lehrer angelegt: " + name);
+                        return persist(teacherRepository, Teacher.builder().name(name).build());
+                    }));
+                }
+            }
+            boolean allgemeines = gegenstandsart.equalsIgnoreCase("Allgemeines");
+
+            if (delta != null) {
+                // Abgleich erst nach der letzten Zeile, siehe applyDelta
+                seenHitclasses.add(hitclass);
+                seenStudents.add(student);
+                lessonTeachers.computeIfAbsent(lesson, l -> new HashSet<>()).addAll(rowTeachers);
+                if (allgemeines && !rowTeachers.isEmpty()) {
+                    klassenvorstaende.putIfAbsent(hitclass, rowTeachers.getFirst());
+                }
+            } else {
+                boolean lessonChanged = false;
+                for (Teacher teacher : rowTeachers) {
+                    lessonChanged |= lesson.getTeachers().add(teacher);
+
+                    // Klassenvorstand bei "Allgemeines"
+                    if (allgemeines && hitclass.getKlassenvorstand() == null) {
+                        hitclass.setKlassenvorstand(teacher);
+                        if (!created.contains(hitclass)) {
+                            summary.setHitclassesUpdated(summary.getHitclassesUpdated() + 1);
+                        }
+                    }
+                }
+                if (lessonChanged && !created.contains(lesson)) {
+                    summary.setLessonsUpdated(summary.getLessonsUpdated() + 1);
+                }
+            }
+            summary.setRowsImported(summary.getRowsImported() + 1);
+        }
+
+        /**
+         * Übernimmt Lehrerzuteilungen und Klassenvorstände aus der CSV und löscht, was darin nicht mehr vorkommt.
+         * Ampeln werden per Abfrage vor ihren Schülern bzw. Unterrichten gelöscht, die Klassen zuletzt.
+         * Nach dem Löschen von Klassen wird der Persistence Context geleert, da die per Abfrage gelöschten Klassen sonst weiter verwaltet würden.
+         * Im Probelauf wird nur gezählt.
+         */
+        void applyDelta() {
+            for (Map.Entry<Lesson, Set<Teacher>> entry : lessonTeachers.entrySet()) {
+                Lesson lesson = entry.getKey();
+                Set<Teacher> current = lesson.getTeachers();
+                Set<Teacher> added = new HashSet<>(entry.getValue());
+                added.removeAll(current);
+                Set<Teacher> removed = new HashSet<>(current);
+                removed.removeAll(entry.getValue());
+                if (added.isEmpty() && removed.isEmpty()) {
+                    continue;
+                }
+                if (!dryRun) {
+                    current.addAll(added);
+                    current.removeAll(removed);
+                }
+                if (!created.contains(lesson)) {
+                    summary.setLessonsUpdated(summary.getLessonsUpdated() + 1);
+                }
+                delta.setLessonTeachersAdded(delta.getLessonTeachersAdded() + added.size());
+                delta.setLessonTeachersRemoved(delta.getLessonTeachersRemoved() + removed.size());
+                added.forEach(teacher -> change("Lehrer zugeteilt: " + describe(lesson) + " " + teacher.getName()));
+                removed.forEach(teacher -> change("Lehrer entfernt: " + describe(lesson) + " " + teacher.getName()));
+            }
+
+            klassenvorstaende.forEach((hitclass, teacher) -> {
+                if (hitclass.getKlassenvorstand() != teacher) {
+                    change("Klassenvorstand " + hitclass.getName() + ": "
+                            + (hitclass.getKlassenvorstand() == null ? "-" : hitclass.getKlassenvorstand().getName()) + " -> " + teacher.getName());
+                    if (!dryRun) {
+                        hitclass.setKlassenvorstand(teacher);
+                    }
+                    delta.setKlassenvorstaendeChanged(delta.getKlassenvorstaendeChanged() + 1);
+                    if (!created.contains(hitclass)) {
+                        summary.setHitclassesUpdated(summary.getHitclassesUpdated() + 1);
+                    }
+                }
+            });
+
+            List<Student> goneStudents = students.values().stream().filter(student -> !seenStudents.contains(student)).toList();
+            List<Lesson> goneLessons = lessons.values().stream().filter(lesson -> !lessonTeachers.containsKey(lesson)).toList();
+            List<Hitclass> goneHitclasses = hitclasses.values().stream().filter(hitclass -> !seenHitclasses.contains(hitclass)).toList();
+            goneStudents.forEach(student -> change("Schüler gelöscht: " + describe(student)));
+            goneLessons.forEach(lesson -> change("Unterricht gelöscht: " + describe(lesson)));
+            goneHitclasses.forEach(hitclass -> change("Klasse gelöscht: " + hitclass.getName()));
+            delta.setStudentsDeleted(goneStudents.size());
+            delta.setLessonsDeleted(goneLessons.size());
+
+            if (dryRun) {
+                delta.setHitclassesDeleted(goneHitclasses.size());
+                if (!goneStudents.isEmpty() || !goneLessons.isEmpty()) {
+                    delta.setAmpelnDeleted((int) ampelRepository.countByStudentIdInOrLessonIdIn(
+                            idsOrNone(goneStudents.stream().map(Student::getId).toList()),
+                            idsOrNone(goneLessons.stream().map(Lesson::getId).toList())));
+                }
+                return;
+            }
+            if (!goneStudents.isEmpty()) {
+                delta.setAmpelnDeleted(delta.getAmpelnDeleted()
+                        + ampelRepository.deleteByStudentIdIn(goneStudents.stream().map(Student::getId).toList()));
+                studentRepository.deleteAll(goneStudents);
+            }
+            if (!goneLessons.isEmpty()) {
+                delta.setAmpelnDeleted(delta.getAmpelnDeleted()
+                        + ampelRepository.deleteByLessonIdIn(goneLessons.stream().map(Lesson::getId).toList()));
+                lessonRepository.deleteAll(goneLessons);
+            }
+            if (!goneHitclasses.isEmpty()) {
+                // Schreibt vorher alle Änderungen (auch gelöschte Schüler und Unterrichte) und leert danach den Persistence Context
+                delta.setHitclassesDeleted(hitclassRepository.deleteByIdIn(goneHitclasses.stream().map(Hitclass::getId).toList()));
+            }
+            if (delta.getAmpelnDeleted() > 0) {
+                ampelStatsService.rebuild();
+            }
+            // Die Massen-Deletes laufen am EntityManager vorbei
+            entityVersions.markChanged(Ampel.class, Hitclass.class);
+            if (!delta.getChanges().isEmpty()) {
+                // Gelöschte Ampeln und geänderte Klassen kommen nicht als einzelne Events, die Clients laden neu
+                ampelChangeFeed.publishReset();
+            }
+        }
+
+        /**
+         * Neue Lehrer können umbenannte sein, deren automatische AD-Zuordnung noch auf den alten Lehrer zeigt.
+         */
+        private void resetTeacherMappings() {
+            if (!dryRun && summary.getTeachersCreated() > 0) {
+                teacherIdentityService.resetAutomaticMappings();
             }
         }
-        System.out.println("Daten erfolgreich gespeichert.");
+
+        private void change(String change) {
+            if (delta != null) {
+                delta.getChanges().add(change);
+            }
+        }
+
+        private <T> T persist(JpaRepository<T, Long> repository, T entity) {
+            T saved = dryRun ? entity : repository.save(entity);
+            created.add(saved);
+            return saved;
+        }
+
+        // IN () ist nicht auf jeder Datenbank gültig, die ID 0 wird nie vergeben
+        private static List<Long> idsOrNone(List<Long> ids) {
+            return ids.isEmpty() ? List.of(0L) : ids;
+        }
+
+        private static String describe(Student student) {
+            return describe(student.getStudentKennzahl(), student.getNachname(), student.getVorname(), student.getHitclass());
+        }
+
+        private static String describe(String studentKennzahl, String nachname, String vorname, Hitclass hitclass) {
+            return studentKennzahl + " " + nachname + " " + vorname + " (" + (hitclass == null ? "-" : hitclass.getName()) + ")";
+        }
+
+        private static String describe(Lesson lesson) {
+            return lesson.getHitclass().getName() + " " + lesson.getSubject().getKurzbezeichnung();
+        }
+
+        private static String teacherKey(String name) {
+            return name == null ? "" : name.toLowerCase();
+        }
+
+        private static String subjectKey(String kurzbezeichnung, String gegenstandsart, String langbezeichnung) {
+            return kurzbezeichnung + "|" + gegenstandsart + "|" + langbezeichnung;
+        }
+
+        // Über die fachlichen Schlüssel, da neue Gegenstände und Klassen im Probelauf keine ID bekommen
+        private static String lessonKey(Subject subject, Hitclass hitclass) {
+            return subjectKey(subject.getKurzbezeichnung(), subject.getGegenstandsart(), subject.getLangbezeichnung()) + "|" + hitclass.getName();
+        }
     }
 
     /**
@@ -176,40 +550,7 @@ public class ImportService {
      * Entfernt bekannte Titel aus einem Lehrer-Namen,
      * z.B. "Mag.", "Dr.", usw., ohne Teile des eigentlichen Namens zu löschen.
      */
-    private String removeTitles(String fullName) {
-        // Split an Leerzeichen
-        String[] tokens = fullName.split("\\s+");
-        List<String> filtered = new ArrayList<>();
-
-        for (String token : tokens) {
-            // Entferne am Ende '.' oder ','
-            String cleaned = token.replaceAll("[.,]+$", "");
-
-            // Normalisieren: Punkte/Bindestriche raus, klein schreiben
-            String normalized = cleaned
-                    .replace(".", "")
-                    .replace("-", "")
-                    .toLowerCase();
-
-            boolean isTitle = false;
-            for (String title : KNOWN_TITLES) {
-                String titleNormalized = title
-                        .replace(".", "")
-                        .replace("-", "")
-                        .toLowerCase();
-
-                if (normalized.equals(titleNormalized)) {
-                    isTitle = true;
-                    break;
-                }
-            }
-            // Nur wenn es KEIN Titel ist, übernehmen wir das Token
-            if (!isTitle) {
-                filtered.add(token);
-            }
-        }
-
-        // Tokens wieder zusammenfügen
-        return String.join(" ", filtered).trim();
+    String removeTitles(String fullName) {
+        return teacherNameNormalizer.removeTitles(fullName);
     }
 }
@@ -1,22 +1,23 @@
 package at.ac.tgm.service;
 
-import at.ac.tgm.ad.entry.UserEntry;
-import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.dto.AmpelBulkResultDto;
+import at.ac.tgm.dto.AmpelChangeEventDto;
 import at.ac.tgm.dto.AmpelDto;
 import at.ac.tgm.dto.AmpelRequestDto;
+import at.ac.tgm.dto.KvAmpelRow;
+import at.ac.tgm.dto.TeacherKVAmpelDto;
 import at.ac.tgm.model.*;
 import at.ac.tgm.repository.AmpelRepository;
 import at.ac.tgm.repository.LessonRepository;
 import at.ac.tgm.repository.StudentRepository;
 import at.ac.tgm.repository.TeacherRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
 @Service
 public class TeacherAmpelService {
@@ -25,29 +26,56 @@ public class TeacherAmpelService {
     private final LessonRepository lessonRepository;
     private final AmpelRepository ampelRepository;
     private final StudentRepository studentRepository;
-    private final UserService userService;
+    private final AmpelStatsService ampelStatsService;
+    private final AmpelChangeFeed ampelChangeFeed;
     
     @Autowired
-    public TeacherAmpelService(TeacherRepository teacherRepository, LessonRepository lessonRepository, AmpelRepository ampelRepository, StudentRepository studentRepository, UserService userService) {
+    public TeacherAmpelService(TeacherRepository teacherRepository, LessonRepository lessonRepository, AmpelRepository ampelRepository, StudentRepository studentRepository, AmpelStatsService ampelStatsService, AmpelChangeFeed ampelChangeFeed) {
         this.teacherRepository = teacherRepository;
         this.lessonRepository = lessonRepository;
         this.ampelRepository = ampelRepository;
         this.studentRepository = studentRepository;
-        this.userService = userService;
+        this.ampelStatsService = ampelStatsService;
+        this.ampelChangeFeed = ampelChangeFeed;
     }
     
+    /**
+     * Legt die Ampel an oder ändert sie. Eine bestehende Ampel wird gesperrt gelesen ({@code SELECT ... FOR UPDATE}) und geändert,
+     * damit die bisherige Farbe für die Statistik auch bei gleichzeitigen Änderungen stimmt. Eine neue Ampel wird nativ eingefügt;
+     * hat sie eine gleichzeitige Anfrage schon angelegt, schlägt das am eindeutigen Schlüssel (Unterricht, Schüler, Lehrer) fehl
+     * und die Ampel wird stattdessen gesperrt gelesen und geändert.
+     */
+    @Transactional
     public AmpelDto createOrUpdateAmpel(AmpelRequestDto dto) {
         if (dto.getLessonId() == null || dto.getStudentId() == null || dto.getTeacherId() == null) {
             throw new RuntimeException("lessonId, studentId, teacherId must not be null");
         }
         
-        Optional<Ampel> existingOpt = ampelRepository.findByLessonIdAndStudentIdAndTeacherId(
-                dto.getLessonId(), dto.getStudentId(), dto.getTeacherId()
-        );
+        Optional<Ampel> existingOpt = ampelRepository.findForUpdate(dto.getLessonId(), dto.getStudentId(), dto.getTeacherId());
+        
+        // Ohne Farbe darf keine neue Ampel entstehen
+        if (existingOpt.isEmpty() && dto.getFarbe() != null) {
+            AmpelFarbe farbe = AmpelFarbe.valueOf(dto.getFarbe());
+            try {
+                if (ampelRepository.insert(dto.getLessonId(), dto.getStudentId(), dto.getTeacherId(), farbe, dto.getBemerkung(), LocalDateTime.now())) {
+                    // Liefert die Beziehungen für Antwort und Statistik, die sonst für das Anlegen geladen würden
+                    Ampel ampel = ampelRepository.findWithDetails(dto.getLessonId(), dto.getStudentId(), dto.getTeacherId())
+                            .orElseThrow(() -> new RuntimeException("Ampel not found after insert"));
+                    ampelStatsService.apply(new AmpelStatsService.Changes().change(ampel.getLesson(), dto.getStudentId(), null, ampel.getFarbe()));
+                    return publish(AmpelChangeEventDto.Type.CREATED, ampel);
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Gleichzeitig angelegt: Die Sperre wartet auf deren Commit, danach wird die Ampel wie eine bestehende geändert
+                existingOpt = Optional.of(ampelRepository.findForUpdate(dto.getLessonId(), dto.getStudentId(), dto.getTeacherId())
+                        .orElseThrow(() -> e));
+            }
+        }
         
         Ampel ampel;
+        AmpelFarbe alt = null;
         if (existingOpt.isPresent()) {
             ampel = existingOpt.get();
+            alt = ampel.getFarbe();
             if (dto.getFarbe() != null) {
                 ampel.setFarbe(AmpelFarbe.valueOf(dto.getFarbe()));
             }
@@ -75,17 +103,142 @@ public class TeacherAmpelService {
         }
         
         Ampel saved = ampelRepository.save(ampel);
-        return mapToDto(saved);
+        ampelStatsService.apply(new AmpelStatsService.Changes().change(saved.getLesson(), saved.getStudent().getId(), alt, saved.getFarbe()));
+        return publish(existingOpt.isPresent() ? AmpelChangeEventDto.Type.UPDATED : AmpelChangeEventDto.Type.CREATED, saved);
     }
     
+    /**
+     * Speichert viele Ampeln eines Lehrers auf einmal, z.B. eine ganze Klasse in einem Gegenstand.
+     * Die Unterrichte (nur eigene, samt Schülern) und die bestehenden Ampeln (gesperrt) werden mit je einer Abfrage geladen,
+     * neue und geänderte Ampeln beim Commit gebündelt geschrieben. Ungültige Zeilen werden abgelehnt,
+     * die übrigen trotzdem gespeichert.
+     *
+     * @return Ein Ergebnis pro Zeile, in der Reihenfolge der Anfrage.
+     */
+    @Transactional
+    public List<AmpelBulkResultDto> bulkCreateOrUpdateAmpel(Long teacherId, List<AmpelRequestDto> dtos) {
+        Teacher teacher = teacherRepository.findById(teacherId)
+                .orElseThrow(() -> new RuntimeException("Teacher not found with id=" + teacherId));
+        Set<Long> lessonIds = new HashSet<>();
+        for (AmpelRequestDto dto : dtos) {
+            if (dto.getLessonId() != null) {
+                lessonIds.add(dto.getLessonId());
+            }
+        }
+        Map<Long, Lesson> ownLessons = new HashMap<>();
+        // lessonId -> studentId -> Ampel
+        Map<Long, Map<Long, Ampel>> existing = new HashMap<>();
+        if (!lessonIds.isEmpty()) {
+            lessonRepository.findRosterByTeacherIdAndIdIn(teacher.getId(), lessonIds).forEach(lesson -> ownLessons.put(lesson.getId(), lesson));
+        }
+        if (!ownLessons.isEmpty()) {
+            for (Ampel ampel : ampelRepository.findForUpdateByTeacherIdAndLessonIdIn(teacher.getId(), ownLessons.keySet())) {
+                existing.computeIfAbsent(ampel.getLesson().getId(), id -> new HashMap<>()).putIfAbsent(ampel.getStudent().getId(), ampel);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<AmpelBulkResultDto> results = new ArrayList<>(dtos.size());
+        List<Ampel> created = new ArrayList<>();
+        AmpelStatsService.Changes changes = new AmpelStatsService.Changes();
+        for (int i = 0; i < dtos.size(); i++) {
+            AmpelRequestDto dto = dtos.get(i);
+            AmpelBulkResultDto result = AmpelBulkResultDto.builder().index(i).lessonId(dto.getLessonId()).studentId(dto.getStudentId()).build();
+            results.add(result);
+
+            Lesson lesson = ownLessons.get(dto.getLessonId());
+            if (lesson == null) {
+                reject(result, "Unterricht nicht gefunden oder nicht vom Lehrer unterrichtet");
+                continue;
+            }
+            Student student = lesson.getHitclass().getStudents().stream()
+                    .filter(s -> s.getId().equals(dto.getStudentId()))
+                    .findFirst().orElse(null);
+            if (student == null) {
+                reject(result, "Schüler nicht in der Klasse des Unterrichts");
+                continue;
+            }
+            AmpelFarbe farbe;
+            try {
+                farbe = dto.getFarbe() != null ? AmpelFarbe.valueOf(dto.getFarbe()) : null;
+            } catch (IllegalArgumentException e) {
+                reject(result, "Ungültige Farbe: " + dto.getFarbe());
+                continue;
+            }
+
+            Ampel ampel = existing.computeIfAbsent(lesson.getId(), id -> new HashMap<>()).get(student.getId());
+            if (ampel == null) {
+                if (farbe == null) {
+                    reject(result, "Farbe fehlt");
+                    continue;
+                }
+                ampel = new Ampel();
+                ampel.setLesson(lesson);
+                ampel.setTeacher(teacher);
+                ampel.setStudent(student);
+                ampel.setFarbe(farbe);
+                ampel.setBemerkung(dto.getBemerkung());
+                existing.get(lesson.getId()).put(student.getId(), ampel);
+                created.add(ampel);
+                changes.change(lesson, student.getId(), null, farbe);
+                result.setStatus(AmpelBulkResultDto.Status.CREATED);
+            } else {
+                if (farbe != null) {
+                    changes.change(lesson, student.getId(), ampel.getFarbe(), farbe);
+                    ampel.setFarbe(farbe);
+                }
+                if (dto.getBemerkung() != null) {
+                    ampel.setBemerkung(dto.getBemerkung());
+                }
+                result.setStatus(AmpelBulkResultDto.Status.UPDATED);
+            }
+            ampel.setUpdatedAt(now);
+        }
+        // Vergibt die IDs aus der Sequenz, die Inserts selbst passieren gebündelt beim Commit
+        ampelRepository.saveAll(created);
+        ampelStatsService.apply(changes);
+
+        for (int i = 0; i < dtos.size(); i++) {
+            AmpelBulkResultDto result = results.get(i);
+            if (result.getStatus() != AmpelBulkResultDto.Status.REJECTED) {
+                result.setAmpel(publish(result.getStatus() == AmpelBulkResultDto.Status.CREATED ? AmpelChangeEventDto.Type.CREATED : AmpelChangeEventDto.Type.UPDATED,
+                        existing.get(result.getLessonId()).get(result.getStudentId())));
+            }
+        }
+        return results;
+    }
+
+    private static void reject(AmpelBulkResultDto result, String message) {
+        result.setStatus(AmpelBulkResultDto.Status.REJECTED);
+        result.setMessage(message);
+    }
+
+    /**
+     * Löscht die Ampel, gesperrt gelesen wie in {@link #createOrUpdateAmpel(AmpelRequestDto)}.
+     */
+    @Transactional
     public void deleteAmpel(Long lessonId, Long studentId, Long teacherId) {
-        Optional<Ampel> existingOpt = ampelRepository.findByLessonIdAndStudentIdAndTeacherId(
-                lessonId, studentId, teacherId
-        );
+        Optional<Ampel> existingOpt = ampelRepository.findForUpdate(lessonId, studentId, teacherId);
         if (existingOpt.isPresent()) {
-            ampelRepository.delete(existingOpt.get());
+            Ampel ampel = existingOpt.get();
+            ampelRepository.delete(ampel);
+            ampelStatsService.apply(new AmpelStatsService.Changes().change(ampel.getLesson(), studentId, ampel.getFarbe(), null));
+            ampelChangeFeed.publish(AmpelChangeEventDto.Type.DELETED, hitclassId(ampel.getLesson()), lessonId, studentId, teacherId, null);
         }
     }
+
+    /**
+     * Meldet die Änderung an den Change-Feed (verschickt nach dem Commit) und liefert das DTO.
+     */
+    private AmpelDto publish(AmpelChangeEventDto.Type type, Ampel ampel) {
+        AmpelDto dto = mapToDto(ampel);
+        ampelChangeFeed.publish(type, hitclassId(ampel.getLesson()), dto.getLessonId(), dto.getStudentId(), dto.getTeacherId(), dto);
+        return dto;
+    }
+
+    private static Long hitclassId(Lesson lesson) {
+        return lesson.getHitclass() != null ? lesson.getHitclass().getId() : null;
+    }
     
     
     // Hilfsmethode
@@ -113,19 +266,6 @@ public class TeacherAmpelService {
                 .build();
     }
     
-    public Optional<Teacher> getTeacherBySAMAccountName(String sAMAccountName) {
-        return userService.findBysAMAccountName(sAMAccountName).map(this::getTeacherByUserEntry).orElseThrow();
-    }
-    
-    public Optional<Teacher> getTeacherByUserEntry(UserEntry userEntry) {
-        String cleanedLdapName = userEntry.getName().replaceAll(" [A-Z]\\.", "").trim().replace("Smriti SHRIDAR", "Smriti SHRIDHAR");
-        String[] parts = cleanedLdapName.split(" ");
-        if (parts.length < 2) {
-            throw new IllegalStateException("Ldap name muss aus zwei mindestens 2 Teilen bestehen: " + cleanedLdapName);
-        }
-        return teacherRepository.findByNameContainingIgnoreCaseAndNameContainingIgnoreCase(parts[0], parts[parts.length - 1]);
-    }
-    
     private AmpelDto mapEmptyToDto(Lesson lesson, Student student, Teacher teacher) {
         return AmpelDto.builder()
                 .ampelId(null)                        // null, weil kein Ampel-Datensatz existiert
@@ -144,40 +284,75 @@ public class TeacherAmpelService {
                 .build();
     }
     
+    /**
+     * Liefert für jeden Unterricht des Lehrers und jeden Schüler der Klasse genau einen Eintrag:
+     * die vorhandene Ampel oder einen leeren Platzhalter.
+     * <p>
+     * Unabhängig von der Anzahl der Klassen und Schüler sind das drei Abfragen (Lehrer, Unterrichte mit Schülern,
+     * Ampeln des Lehrers), die Zuordnung passiert im Speicher.
+     */
+    @Transactional(readOnly = true)
     public List<AmpelDto> getAllAmpelForTeacher(Long teacherId) {
-        // 1) Teacher laden
         Teacher teacher = teacherRepository.findById(teacherId)
                 .orElseThrow(() -> new RuntimeException("Teacher not found with id=" + teacherId));
         
-        // 2) Alle Lessons laden, wo dieser Teacher beteiligt ist
-        //    (Je nach Modell: teacher.getLessons() oder via lessonRepository.findAll() und filtern)
-        //    Hier mal teacher.getLessons() als Beispiel:
-        Set<Lesson> lessons = teacher.getLessons();
+        List<Lesson> lessons = new ArrayList<>(lessonRepository.findRosterByTeacherId(teacherId));
+        lessons.sort(Comparator.comparing((Lesson lesson) -> lesson.getHitclass().getName())
+                .thenComparing(lesson -> lesson.getSubject().getKurzbezeichnung())
+                .thenComparing(Lesson::getId));
+        
+        // lessonId -> studentId -> Ampel
+        Map<Long, Map<Long, Ampel>> ampelByLessonAndStudent = new HashMap<>();
+        for (Ampel ampel : ampelRepository.findAllWithDetailsByTeacherId(teacherId)) {
+            ampelByLessonAndStudent.computeIfAbsent(ampel.getLesson().getId(), id -> new HashMap<>())
+                    .putIfAbsent(ampel.getStudent().getId(), ampel);
+        }
         
-        // 3) Pro Lesson alle Students => lesson.getHitclass().getStudents()
-        //    => Ampel-Eintrag suchen oder leeres DTO
         List<AmpelDto> result = new ArrayList<>();
         for (Lesson lesson : lessons) {
-            // Alle Schüler in der Klasse
-            Set<Student> students = lesson.getHitclass().getStudents();
+            Map<Long, Ampel> ampelByStudent = ampelByLessonAndStudent.getOrDefault(lesson.getId(), Map.of());
+            List<Student> students = new ArrayList<>(lesson.getHitclass().getStudents());
+            students.sort(Comparator.comparing(Student::getNachname, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Student::getVorname, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Student::getId));
             for (Student student : students) {
-                // Ampel-Eintrag suchen
-                Optional<Ampel> existing = ampelRepository.findByLessonIdAndStudentIdAndTeacherId(
-                        lesson.getId(),
-                        student.getId(),
-                        teacherId
-                );
-                if (existing.isPresent()) {
-                    // vorhandenen Ampel-Datensatz -> DTO
-                    result.add(mapToDto(existing.get()));
-                } else {
-                    // kein Ampel-Eintrag -> leeres DTO (oder keins, je nach Wunsch)
-                    // Du kannst dem Frontend einen "noch-nicht-vorhanden"-Eintrag zeigen:
-                    result.add(mapEmptyToDto(lesson, student, teacher));
-                }
+                Ampel existing = ampelByStudent.get(student.getId());
+                // Kein Ampel-Eintrag -> leeres DTO, damit das Frontend den "noch-nicht-vorhanden"-Eintrag zeigen kann
+                result.add(existing != null ? mapToDto(existing) : mapEmptyToDto(lesson, student, teacher));
             }
         }
         return result;
     }
     
+    /**
+     * Die Klassenvorstands-Übersicht: alle Schüler der Klassen des Lehrers mit allen ihren Ampeln (aller Lehrer, aller Gegenstände).
+     * Die Matrix wird mit einer einzigen Abfrage geladen und im Speicher pro Schüler gruppiert.
+     */
+    @Transactional(readOnly = true)
+    public List<TeacherKVAmpelDto> getKvStudents(Long teacherId) {
+        Map<Long, TeacherKVAmpelDto> byStudent = new LinkedHashMap<>();
+        for (KvAmpelRow row : studentRepository.findKvMatrixByKlassenvorstandId(teacherId)) {
+            TeacherKVAmpelDto studentDto = byStudent.computeIfAbsent(row.studentId(), id -> new TeacherKVAmpelDto(
+                    id, row.nachname() + " " + row.vorname(), row.studentKennzahl(), new ArrayList<>()));
+            if (row.ampelId() != null) {
+                studentDto.getAmpelEntries().add(AmpelDto.builder()
+                        .ampelId(row.ampelId())
+                        .studentId(row.studentId())
+                        .studentName(studentDto.getStudentName())
+                        .teacherId(row.teacherId())
+                        .teacherName(row.teacherName())
+                        .subjectKurzbezeichnung(row.subjectKurzbezeichnung())
+                        .subjectLangbezeichnung(row.subjectLangbezeichnung())
+                        .gegenstandsart(row.gegenstandsart())
+                        .farbe(row.farbe() != null ? row.farbe().name() : null)
+                        .bemerkung(row.bemerkung())
+                        .updatedAt(row.updatedAt())
+                        .hitclassName(row.hitclassName())
+                        .lessonId(row.lessonId())
+                        .build());
+            }
+        }
+        return new ArrayList<>(byStudent.values());
+    }
+    
 }
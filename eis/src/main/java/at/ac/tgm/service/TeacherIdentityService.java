@@ -0,0 +1,170 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.ad.entry.UserIdentity;
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.model.Teacher;
+import at.ac.tgm.model.TeacherAccount;
+import at.ac.tgm.repository.TeacherAccountRepository;
+import at.ac.tgm.repository.TeacherRepository;
+import at.ac.tgm.versioning.EntityVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ordnet angemeldete Lehrer (sAMAccountName) ihrem EIS-Lehrer zu.
+ * <p>
+ * Reihenfolge: Cache, dann die Tabelle {@link TeacherAccount}, erst danach der Abgleich über den LDAP-Namen
+ * ("Vorname ... NACHNAME" ist im Lehrernamen enthalten). Ein erfolgreicher Abgleich wird gespeichert, falsche
+ * Zuordnungen korrigiert ein Admin über {@link #assign(String, Long)}. Der Cache wird erst nach dem Commit angepasst,
+ * sonst könnte eine gleichzeitige Anfrage den alten Stand aus der Datenbank erneut zwischenspeichern.
+ */
+@Service
+public class TeacherIdentityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeacherIdentityService.class);
+
+    private final TeacherAccountRepository teacherAccountRepository;
+    private final TeacherRepository teacherRepository;
+    private final UserService userService;
+    private final EntityVersions entityVersions;
+    // sAMAccountName (klein) -> Teacher.id
+    private final Map<String, Long> cache = new ConcurrentHashMap<>();
+
+    public TeacherIdentityService(TeacherAccountRepository teacherAccountRepository, TeacherRepository teacherRepository, UserService userService,
+                                  EntityVersions entityVersions) {
+        this.teacherAccountRepository = teacherAccountRepository;
+        this.teacherRepository = teacherRepository;
+        this.userService = userService;
+        this.entityVersions = entityVersions;
+    }
+
+    public Optional<Long> findTeacherId(String sAMAccountName) {
+        String key = key(sAMAccountName);
+        Long cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Long> teacherId = teacherAccountRepository.findTeacherIdBySamAccountName(key)
+                .or(() -> userService.findIdentityBysAMAccountName(sAMAccountName)
+                        .flatMap(this::matchTeacher)
+                        .map(teacher -> {
+                            try {
+                                save(key, teacher, false);
+                                logger.info("Lehrer {} dem EIS-Lehrer {} ({}) zugeordnet", key, teacher.getName(), teacher.getId());
+                            } catch (DataIntegrityViolationException e) {
+                                // Eine gleichzeitige Anfrage hat die Zuordnung bereits gespeichert
+                                logger.debug("Zuordnung für {} existiert bereits", key);
+                            }
+                            return teacher.getId();
+                        }));
+        teacherId.ifPresent(id -> cache.put(key, id));
+        return teacherId;
+    }
+
+    /**
+     * Sucht den EIS-Lehrer, dessen Name Vor- und Nachnamen aus dem LDAP enthält.
+     */
+    public Optional<Teacher> matchTeacher(UserIdentity identity) {
+        String cleanedLdapName = identity.name().replaceAll(" [A-Z]\\.", "").trim().replace("Smriti SHRIDAR", "Smriti SHRIDHAR");
+        String[] parts = cleanedLdapName.split(" ");
+        if (parts.length < 2) {
+            throw new IllegalStateException("Ldap name muss aus zwei mindestens 2 Teilen bestehen: " + cleanedLdapName);
+        }
+        return teacherRepository.findByNameContainingIgnoreCaseAndNameContainingIgnoreCase(parts[0], parts[parts.length - 1]);
+    }
+
+    /**
+     * Setzt die Zuordnung von Hand, sie wird danach nicht mehr automatisch überschrieben.
+     */
+    @Transactional
+    public void assign(String sAMAccountName, Long teacherId) {
+        Teacher teacher = teacherRepository.findById(teacherId)
+                .orElseThrow(() -> new NoSuchElementException("Teacher not found with id=" + teacherId));
+        String key = key(sAMAccountName);
+        save(key, teacher, true);
+        afterCommit(() -> cache.put(key, teacherId));
+    }
+
+    /**
+     * Entfernt die Zuordnung, beim nächsten Zugriff wird wieder über den Namen abgeglichen.
+     */
+    @Transactional
+    public void unassign(String sAMAccountName) {
+        String key = key(sAMAccountName);
+        teacherAccountRepository.deleteById(key);
+        afterCommit(() -> cache.remove(key));
+    }
+
+    /**
+     * Muss vor dem Löschen eines Lehrers aufgerufen werden.
+     */
+    @Transactional
+    public void removeTeacher(Long teacherId) {
+        teacherAccountRepository.deleteByTeacherId(teacherId);
+        entityVersions.markChanged(TeacherAccount.class);
+        afterCommit(() -> cache.values().removeIf(teacherId::equals));
+    }
+
+    /**
+     * Nach einem Import mit neuen Lehrern: Ein umbenannter Lehrer kommt als neuer Lehrer ins EIS, die automatische
+     * Zuordnung zeigt dann noch auf den alten. Automatische Zuordnungen werden daher gelöscht und beim nächsten Zugriff
+     * neu abgeglichen, von Hand gesetzte bleiben.
+     *
+     * @return Anzahl der gelöschten Zuordnungen.
+     */
+    @Transactional
+    public int resetAutomaticMappings() {
+        int deleted = teacherAccountRepository.deleteByManualFalse();
+        if (deleted > 0) {
+            logger.info("{} automatische Lehrerzuordnungen nach dem Import zurückgesetzt", deleted);
+            entityVersions.markChanged(TeacherAccount.class);
+        }
+        clearCache();
+        return deleted;
+    }
+
+    /**
+     * Nach dem Löschen aller EIS-Daten, die Zuordnungen selbst löscht {@link DatabaseService#deleteAllData()}.
+     */
+    public void clearCache() {
+        afterCommit(cache::clear);
+    }
+
+    private void save(String key, Teacher teacher, boolean manual) {
+        teacherAccountRepository.save(TeacherAccount.builder()
+                .samAccountName(key)
+                .teacher(teacher)
+                .manual(manual)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String key(String sAMAccountName) {
+        return sAMAccountName.toLowerCase(Locale.ROOT);
+    }
+}
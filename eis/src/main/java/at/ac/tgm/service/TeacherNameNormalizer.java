@@ -0,0 +1,110 @@
+package at.ac.tgm.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Entfernt akademische Titel aus Lehrernamen des CSV-Exports, z.B. "Mag. Dr. Anna GRUBER, BEd" zu "Anna GRUBER,".
+ * <p>
+ * Ein Token (durch Whitespace getrennt) gilt als Titel, wenn es ohne abschließende Punkte/Beistriche und ohne
+ * Punkte/Bindestriche in Kleinschreibung einem bekannten Titel entspricht. Zusammengesetzte Formen wie
+ * "Dipl.-Ing.(FH)" sind ein einzelnes Token und stehen daher direkt in der vorab normalisierten Menge.
+ * Da im Export immer wieder dieselben Namen vorkommen, wird das Ergebnis je Rohwert zwischengespeichert.
+ */
+@Component
+public class TeacherNameNormalizer {
+
+    // Eine einzige Liste aller unerwünschten Titel
+    static final List<String> KNOWN_TITLES = List.of(
+            "Mag.a", "MMag", "Mag.", "MSc", "DI", "(FH)", "Dipl.-Ing.",
+            "BED", "BEd", "Bed", "BSc", "Dr", "Ing", "Bakk.techn",
+            "Prof", "MA", "MEd", "rer.nat.", "PhD", "FL", "FOL",
+            "BA", "Dipl.-Päd.", "techn.", "Mag.rer.nat.", "Ing.Mag.", "DI(FH)", "Dr.techn.",
+            "Mag.Dr.", "Ing.Dipl.-Päd.", "MMag.Dr.", "Dipl.-Ing.(FH)", "Dipl.-Ing.Dr.", "MAS", "BSc(WU)", "Mag.phil.", "Ing.DI", "Ing.Dr.", "Mag.(FH)"
+    );
+
+    private static final Set<String> NORMALIZED_TITLES = KNOWN_TITLES.stream()
+            .map(TeacherNameNormalizer::normalize)
+            .collect(Collectors.toUnmodifiableSet());
+
+    // Lehrernamen sind überschaubar, die Grenze schützt nur vor beliebig vielen verschiedenen Eingaben
+    private static final int MAX_CACHE_SIZE = 10_000;
+
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @return Der Name ohne Titel, zwischengespeichert je Rohwert.
+     */
+    public String removeTitles(String fullName) {
+        String cached = cache.get(fullName);
+        if (cached != null) {
+            return cached;
+        }
+        String result = stripTitles(fullName);
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            cache.clear();
+        }
+        cache.put(fullName, result);
+        return result;
+    }
+
+    /**
+     * Entfernt die Titel ohne Zwischenspeicher. Die übrigen Tokens bleiben unverändert und werden mit
+     * einzelnen Leerzeichen verbunden.
+     */
+    public String stripTitles(String fullName) {
+        StringBuilder result = new StringBuilder(fullName.length());
+        int length = fullName.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(fullName.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !isWhitespace(fullName.charAt(i))) {
+                i++;
+            }
+            if (start < i && !isTitle(fullName, start, i)) {
+                if (!result.isEmpty()) {
+                    result.append(' ');
+                }
+                result.append(fullName, start, i);
+            }
+        }
+        return result.toString().trim();
+    }
+
+    private static boolean isTitle(String name, int start, int end) {
+        // Abschließende Punkte und Beistriche gehören nicht zum Titel, z.B. "BEd,"
+        while (end > start && (name.charAt(end - 1) == '.' || name.charAt(end - 1) == ',')) {
+            end--;
+        }
+        return NORMALIZED_TITLES.contains(normalize(name.substring(start, end)));
+    }
+
+    /**
+     * Punkte und Bindestriche raus, klein schreiben.
+     */
+    private static String normalize(String token) {
+        StringBuilder normalized = new StringBuilder(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c != '.' && c != '-') {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase();
+    }
+
+    /**
+     * Entspricht {@code \s} in regulären Ausdrücken.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
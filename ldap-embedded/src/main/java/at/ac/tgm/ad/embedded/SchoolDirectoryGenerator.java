@@ -0,0 +1,237 @@
+package at.ac.tgm.ad.embedded;
+
+import com.unboundid.ldap.sdk.Entry;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Erzeugt ein realistisches Schulverzeichnis im Aufbau des TGM-AD für das eingebettete LDAP (Profil "ldap-embedded")
+ * und für Lasttests: Schüler unter {@code OU=<Abteilung>,OU=Schueler,OU=People}, Lehrer unter {@code OU=Lehrer,OU=People}
+ * und Klassengruppen wie {@code schueler5AHIT} bzw. die Gruppe {@code lehrer} unter {@code OU=Groups}.
+ * <p>
+ * Die Erzeugung ist deterministisch (gleicher Seed ergibt dasselbe Verzeichnis).
+ * Zusätzlich werden die festen Accounts {@link #TEST_TEACHER} und {@link #TEST_STUDENT} angelegt.
+ */
+public class SchoolDirectoryGenerator {
+    public static final String TEST_TEACHER = "testlehrer";
+    public static final String TEST_STUDENT = "testschueler";
+
+    private static final String[] DEPARTMENTS = {"HIT", "HEL", "HET", "HMB", "HBG"};
+    private static final String[] CLASS_LETTERS = {"A", "B", "C", "D"};
+    private static final int YEARS = 5;
+    /**
+     * Ohne Schema vergleicht das In-Memory-Verzeichnis Werte als Zeichenketten. Alle USNs haben daher gleich viele
+     * Stellen, damit Filter wie {@code (uSNChanged>=...)} wie im AD numerisch korrekt funktionieren.
+     */
+    private static final long FIRST_USN = 1_000_000L;
+
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Lukas", "Sophie", "David", "Lena", "Tobias", "Laura", "Simon", "Julia", "Florian",
+            "Katharina", "Maximilian", "Sarah", "Jakob", "Hannah", "Elias", "Lea", "Felix", "Marie", "Paul",
+            "Emma", "Jonas", "Magdalena", "Fabian", "Johanna", "Moritz", "Theresa", "Sebastian", "Valentina", "Noah",
+            "Mia", "Leon", "Clara", "Matthias", "Nina", "Alexander", "Selina", "Dominik", "Vanessa", "Stefan",
+            "Ahmet", "Elif", "Milan", "Ivana", "Luka", "Amina", "Nikola", "Zeynep", "Marko", "Smriti"};
+    private static final String[] LAST_NAMES = {
+            "Gruber", "Huber", "Wagner", "Müller", "Pichler", "Steiner", "Moser", "Mayer", "Hofer", "Bauer",
+            "Berger", "Fuchs", "Eder", "Fischer", "Schmid", "Winkler", "Weber", "Schwarz", "Maier", "Schneider",
+            "Reiter", "Mayr", "Schmidt", "Wimmer", "Egger", "Brunner", "Lang", "Baumgartner", "Auer", "Binder",
+            "Lechner", "Wolf", "Wallner", "Aigner", "Ebner", "Koller", "Lehner", "Haas", "Schuster", "Holzer",
+            "Yilmaz", "Kovačević", "Novak", "Horvat", "Petrović", "Kaya", "Nguyen", "Popescu", "Kowalski", "Shridhar"};
+
+    private final String rootDn;
+    private final String baseDn;
+    private final String mailDomain;
+    private final Random random;
+    private final Set<String> usedSamAccountNames = new HashSet<>();
+    private long usn = FIRST_USN;
+    private long nextStudentKennzahl = 100_000L;
+    private long nextTeacherNumber = 1_000L;
+
+    /**
+     * @param rootDn     Die Wurzel des Verzeichnisses, z.B. {@code DC=tgm,DC=ac,DC=at}.
+     * @param baseDn     Die Basis unterhalb der Wurzel, entspricht {@code spring.ldap.base}, z.B. {@code OU=tgm,DC=tgm,DC=ac,DC=at}.
+     * @param mailDomain Die Domain für Mail-Adressen und UPNs, z.B. {@code tgm.ac.at}.
+     * @param seed       Seed für die Zufallsdaten.
+     */
+    public SchoolDirectoryGenerator(String rootDn, String baseDn, String mailDomain, long seed) {
+        this.rootDn = rootDn;
+        this.baseDn = baseDn;
+        this.mailDomain = mailDomain;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Erzeugt alle Einträge (Wurzel, OUs, Gruppen, Lehrer, Schüler) in einer Reihenfolge, in der sie importiert werden können.
+     *
+     * @param students Anzahl der Schüler, werden gleichmäßig auf alle Klassen verteilt.
+     * @param teachers Anzahl der Lehrer.
+     */
+    public List<Entry> generate(int students, int teachers) {
+        List<Entry> entries = new ArrayList<>();
+        entries.add(domain(rootDn));
+        entries.add(organizationalUnit(baseDn));
+        String people = "OU=People," + baseDn;
+        String groups = "OU=Groups," + baseDn;
+        String lehrer = "OU=Lehrer," + people;
+        String schueler = "OU=Schueler," + people;
+        entries.add(organizationalUnit(people));
+        entries.add(organizationalUnit(groups));
+        entries.add(organizationalUnit(lehrer));
+        entries.add(organizationalUnit(schueler));
+        for (String department : DEPARTMENTS) {
+            entries.add(organizationalUnit("OU=" + department + "," + schueler));
+        }
+
+        // Benutzer zuerst erzeugen, damit die Gruppen mit ihren Mitgliedern angelegt werden können
+        Map<String, List<String>> membersByGroup = new LinkedHashMap<>();
+        List<String> classes = classNames();
+        classes.forEach(className -> membersByGroup.put("schueler" + className, new ArrayList<>()));
+        membersByGroup.put("lehrer", new ArrayList<>());
+
+        List<Entry> users = new ArrayList<>();
+        users.add(teacher(lehrer, groups, "Test", "Lehrer", TEST_TEACHER, membersByGroup));
+        for (int i = 0; i < teachers; i++) {
+            String[] name = randomName();
+            users.add(teacher(lehrer, groups, name[0], name[1], null, membersByGroup));
+        }
+        users.add(student(schueler, groups, "Test", "Schueler", TEST_STUDENT, "5AHIT", membersByGroup));
+        for (int i = 0; i < students; i++) {
+            String[] name = randomName();
+            users.add(student(schueler, groups, name[0], name[1], null, classes.get(i % classes.size()), membersByGroup));
+        }
+
+        membersByGroup.forEach((cn, members) -> entries.add(group(groups, cn, members)));
+        entries.addAll(users);
+        return entries;
+    }
+
+    /**
+     * @return Alle Klassenbezeichnungen wie {@code 5AHIT}.
+     */
+    public static List<String> classNames() {
+        List<String> classes = new ArrayList<>();
+        for (int year = 1; year <= YEARS; year++) {
+            for (String letter : CLASS_LETTERS) {
+                for (String department : DEPARTMENTS) {
+                    classes.add(year + letter + department);
+                }
+            }
+        }
+        return classes;
+    }
+
+    private Entry teacher(String ou, String groups, String givenName, String sn, String sam, Map<String, List<String>> membersByGroup) {
+        sam = sam != null ? reserve(sam) : samAccountName(givenName, sn);
+        String dn = "CN=" + givenName + " " + sn + " (" + sam + ")," + ou;
+        Entry entry = user(dn, sam, givenName, sn, sam + "@" + mailDomain);
+        entry.addAttribute("employeeNumber", String.valueOf(nextTeacherNumber++));
+        entry.addAttribute("employeeType", "Lehrer");
+        entry.addAttribute("info", "Lehrer");
+        addMembership(entry, dn, groups, "lehrer", membersByGroup);
+        return entry;
+    }
+
+    private Entry student(String ou, String groups, String givenName, String sn, String sam, String className,
+                          Map<String, List<String>> membersByGroup) {
+        sam = sam != null ? reserve(sam) : samAccountName(givenName, sn);
+        String department = className.substring(className.length() - 3);
+        String dn = "CN=" + givenName + " " + sn + " (" + sam + "),OU=" + department + "," + ou;
+        Entry entry = user(dn, sam, givenName, sn, sam + "@student." + mailDomain);
+        entry.addAttribute("employeeID", String.valueOf(nextStudentKennzahl++));
+        entry.addAttribute("employeeType", "Schueler");
+        entry.addAttribute("department", className);
+        addMembership(entry, dn, groups, "schueler" + className, membersByGroup);
+        return entry;
+    }
+
+    private Entry user(String dn, String sam, String givenName, String sn, String mail) {
+        Entry entry = new Entry(dn);
+        entry.addAttribute("objectClass", "top", "person", "organizationalPerson", "user");
+        entry.addAttribute("cn", dn.substring(3, dn.indexOf(',')));
+        entry.addAttribute("name", givenName + " " + sn.toUpperCase(Locale.ROOT));
+        entry.addAttribute("displayName", givenName + " " + sn);
+        entry.addAttribute("givenName", givenName);
+        entry.addAttribute("sn", sn);
+        entry.addAttribute("sAMAccountName", sam);
+        entry.addAttribute("userPrincipalName", sam + "@" + mailDomain);
+        entry.addAttribute("mail", mail);
+        entry.addAttribute("distinguishedName", dn);
+        entry.addAttribute("userAccountControl", "512");
+        addUsn(entry);
+        return entry;
+    }
+
+    private void addMembership(Entry entry, String dn, String groups, String groupCn, Map<String, List<String>> membersByGroup) {
+        // Das In-Memory-Verzeichnis pflegt memberOf nicht selbst, daher wird es wie im AD direkt gesetzt
+        entry.addAttribute("memberOf", "CN=" + groupCn + "," + groups);
+        membersByGroup.get(groupCn).add(dn);
+    }
+
+    private Entry group(String groups, String cn, List<String> members) {
+        String dn = "CN=" + cn + "," + groups;
+        Entry entry = new Entry(dn);
+        entry.addAttribute("objectClass", "top", "group");
+        entry.addAttribute("cn", cn);
+        entry.addAttribute("name", cn);
+        entry.addAttribute("sAMAccountName", cn);
+        entry.addAttribute("distinguishedName", dn);
+        entry.addAttribute("groupType", "-2147483646");
+        if (!members.isEmpty()) {
+            entry.addAttribute("member", members);
+        }
+        addUsn(entry);
+        return entry;
+    }
+
+    private Entry domain(String dn) {
+        Entry entry = new Entry(dn);
+        entry.addAttribute("objectClass", "top", "domain");
+        entry.addAttribute("dc", dn.substring(3, dn.indexOf(',')));
+        entry.addAttribute("distinguishedName", dn);
+        return entry;
+    }
+
+    private Entry organizationalUnit(String dn) {
+        Entry entry = new Entry(dn);
+        entry.addAttribute("objectClass", "top", "organizationalUnit");
+        entry.addAttribute("ou", dn.substring(3, dn.indexOf(',')));
+        entry.addAttribute("distinguishedName", dn);
+        addUsn(entry);
+        return entry;
+    }
+
+    private void addUsn(Entry entry) {
+        String value = String.valueOf(usn++);
+        entry.addAttribute("uSNCreated", value);
+        entry.addAttribute("uSNChanged", value);
+    }
+
+    private String[] randomName() {
+        return new String[]{FIRST_NAMES[random.nextInt(FIRST_NAMES.length)], LAST_NAMES[random.nextInt(LAST_NAMES.length)]};
+    }
+
+    private String samAccountName(String givenName, String sn) {
+        String base = normalize(givenName.substring(0, 1) + sn);
+        if (base.length() > 16) {
+            base = base.substring(0, 16);
+        }
+        String sam = base;
+        for (int i = 2; usedSamAccountNames.contains(sam); i++) {
+            sam = base + i;
+        }
+        return reserve(sam);
+    }
+
+    private String reserve(String sam) {
+        usedSamAccountNames.add(sam);
+        return sam;
+    }
+
+    private static String normalize(String value) {
+        return Normalizer.normalize(value, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("[^A-Za-z]", "")
+                .toLowerCase(Locale.ROOT);
+    }
+}
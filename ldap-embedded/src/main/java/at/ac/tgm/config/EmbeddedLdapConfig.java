@@ -0,0 +1,133 @@
+package at.ac.tgm.config;
+
+import at.ac.tgm.ad.embedded.SchoolDirectoryGenerator;
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSimpleBindRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.SimpleBindRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Startet mit dem Profil "ldap-embedded" ein In-Memory-LDAP (UnboundID) anstelle des echten AD,
+ * befüllt mit einem generierten Schulverzeichnis (siehe {@link SchoolDirectoryGenerator}).
+ * Damit laufen UserService, Login und Refresh-Jobs unverändert und ohne Zugriff auf das AD, z.B. für Last- und Performancetests.
+ * Alle generierten Benutzer haben das Passwort {@code ldap.embedded.user-password}.
+ */
+@Configuration
+@Profile("ldap-embedded")
+@Slf4j
+public class EmbeddedLdapConfig {
+    @Value("${ldap.embedded.port:10389}")
+    private int port;
+    @Value("${ldap.embedded.root:DC=tgm,DC=ac,DC=at}")
+    private String root;
+    @Value("${ldap.embedded.students:3000}")
+    private int students;
+    @Value("${ldap.embedded.teachers:250}")
+    private int teachers;
+    @Value("${ldap.embedded.seed:42}")
+    private long seed;
+    @Value("${ldap.embedded.user-password:password}")
+    private String userPassword;
+    @Value("${spring.ldap.base}")
+    private String base;
+    @Value("${spring.ldap.domain}")
+    private String domain;
+    @Value("${spring.ldap.username}")
+    private String bindDn;
+    @Value("${spring.ldap.password}")
+    private String bindPassword;
+
+    private InMemoryDirectoryServer server;
+
+    /**
+     * Der gepoolte {@code contextSource} (siehe AdLdapConfig) baut beim Start Verbindungen auf,
+     * das In-Memory-LDAP muss also vorher laufen. Die Reihenfolge wird hier festgelegt, damit die
+     * Produktionskonfiguration dieses Modul nicht kennen muss.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor embeddedLdapServerBeforeContextSource() {
+        return beanFactory -> {
+            if (beanFactory.containsBeanDefinition("contextSource")) {
+                BeanDefinition contextSource = beanFactory.getBeanDefinition("contextSource");
+                contextSource.setDependsOn(StringUtils.addStringToArray(contextSource.getDependsOn(), "embeddedLdapServer"));
+            }
+        };
+    }
+
+    @Bean
+    public InMemoryDirectoryServer embeddedLdapServer() throws LDAPException {
+        List<Entry> entries = new SchoolDirectoryGenerator(root, base, domain, seed).generate(students, teachers);
+        Map<String, String> dnBySAMAccountName = new HashMap<>();
+        for (Entry entry : entries) {
+            if (entry.hasObjectClass("user")) {
+                entry.addAttribute("userPassword", userPassword);
+                dnBySAMAccountName.put(entry.getAttributeValue("sAMAccountName").toLowerCase(Locale.ROOT), entry.getDN());
+            }
+        }
+
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(root);
+        // Das Standardschema kennt die AD-Attribute (sAMAccountName, memberOf, ...) nicht
+        config.setSchema(null);
+        config.addAdditionalBindCredentials(bindDn, bindPassword);
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", port));
+        config.addInMemoryOperationInterceptor(new UserPrincipalNameBindInterceptor(dnBySAMAccountName, domain));
+
+        server = new InMemoryDirectoryServer(config);
+        server.addEntries(entries);
+        server.startListening();
+        log.info("Embedded LDAP started on port {} with {} entries ({} students, {} teachers), test accounts: {}, {}",
+                port, entries.size(), students, teachers, SchoolDirectoryGenerator.TEST_TEACHER, SchoolDirectoryGenerator.TEST_STUDENT);
+        return server;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (server != null) {
+            server.shutDown(true);
+        }
+    }
+
+    /**
+     * Der {@code ActiveDirectoryLdapAuthenticationProvider} bindet wie im AD mit {@code sAMAccountName@domain}.
+     * Das In-Memory-LDAP kennt nur Binds per DN, daher wird der UPN hier auf den DN des Benutzers umgeschrieben.
+     */
+    private static class UserPrincipalNameBindInterceptor extends InMemoryOperationInterceptor {
+        private final Map<String, String> dnBySAMAccountName;
+        private final String suffix;
+
+        UserPrincipalNameBindInterceptor(Map<String, String> dnBySAMAccountName, String domain) {
+            this.dnBySAMAccountName = dnBySAMAccountName;
+            this.suffix = "@" + domain.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public void processSimpleBindRequest(InMemoryInterceptedSimpleBindRequest request) throws LDAPException {
+            SimpleBindRequest bindRequest = request.getRequest();
+            String bindDn = bindRequest.getBindDN().toLowerCase(Locale.ROOT);
+            if (bindDn.endsWith(suffix)) {
+                String dn = dnBySAMAccountName.get(bindDn.substring(0, bindDn.length() - suffix.length()));
+                if (dn != null) {
+                    request.setRequest(new SimpleBindRequest(dn, bindRequest.getPassword().getValue()));
+                }
+            }
+        }
+    }
+}
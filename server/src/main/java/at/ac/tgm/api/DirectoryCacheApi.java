@@ -0,0 +1,31 @@
+package at.ac.tgm.api;
+
+import at.ac.tgm.ad.Roles;
+import at.ac.tgm.ad.cache.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.util.List;
+
+@RequestMapping("/admin/directory-cache")
+public interface DirectoryCacheApi {
+    @Secured(Roles.ADMIN)
+    @GetMapping({"", "/"})
+    @Operation(summary = "Get hit/miss/eviction counters of the AD LDAP user caches")
+    List<CacheStats> getStats();
+    
+    @Secured(Roles.ADMIN)
+    @DeleteMapping("/{sAMAccountName}")
+    @Operation(summary = "Remove a single user from the AD LDAP user caches")
+    ResponseEntity<String> invalidate(@PathVariable("sAMAccountName") String sAMAccountName);
+    
+    @Secured(Roles.ADMIN)
+    @DeleteMapping({"", "/"})
+    @Operation(summary = "Clear all AD LDAP user caches")
+    ResponseEntity<String> invalidateAll();
+}
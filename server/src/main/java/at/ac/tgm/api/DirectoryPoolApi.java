@@ -0,0 +1,16 @@
+package at.ac.tgm.api;
+
+import at.ac.tgm.ad.Roles;
+import at.ac.tgm.dto.LdapPoolStatsDto;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@RequestMapping("/admin/directory-pool")
+public interface DirectoryPoolApi {
+    @Secured(Roles.ADMIN)
+    @GetMapping({"", "/"})
+    @Operation(summary = "Get usage metrics (active, idle, wait time) of the AD LDAP connection pool")
+    LdapPoolStatsDto getStats();
+}
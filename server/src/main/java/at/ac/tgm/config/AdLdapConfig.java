@@ -6,9 +6,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.ldap.repository.config.EnableLdapRepositories;
 import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.support.LdapContextSource;
+import org.springframework.ldap.pool2.factory.PoolConfig;
+import org.springframework.ldap.pool2.validation.DefaultDirContextValidator;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.core.GrantedAuthority;
@@ -18,6 +22,7 @@ import org.springframework.security.ldap.authentication.ad.ActiveDirectoryLdapAu
 import org.springframework.security.ldap.userdetails.LdapUserDetailsMapper;
 import org.springframework.security.ldap.userdetails.UserDetailsContextMapper;
 
+import java.time.Duration;
 import java.util.*;
 
 @Configuration
@@ -34,12 +39,97 @@ public class AdLdapConfig {
     private String url;
     @Value("${spring.ldap.domain}")
     private String domain;
+    @Value("${spring.ldap.base}")
+    private String base;
+    @Value("${spring.ldap.username}")
+    private String username;
+    @Value("${spring.ldap.password}")
+    private String password;
     @Value("${admins}")
     private List<String> admins;
     
+    @Value("${ldap.connect-timeout:5s}")
+    private Duration connectTimeout;
+    @Value("${ldap.read-timeout:15s}")
+    private Duration readTimeout;
+    @Value("${ldap.pool.min-idle:2}")
+    private int poolMinIdle;
+    @Value("${ldap.pool.max-idle:8}")
+    private int poolMaxIdle;
+    @Value("${ldap.pool.max-total:16}")
+    private int poolMaxTotal;
+    @Value("${ldap.pool.max-wait:5s}")
+    private Duration poolMaxWait;
+    @Value("${ldap.pool.test-on-borrow:true}")
+    private boolean poolTestOnBorrow;
+    @Value("${ldap.pool.test-while-idle:true}")
+    private boolean poolTestWhileIdle;
+    @Value("${ldap.pool.eviction-interval:1m}")
+    private Duration poolEvictionInterval;
+    @Value("${ldap.pool.min-evictable-idle:5m}")
+    private Duration poolMinEvictableIdle;
+    @Value("${ldap.pool.validation.base:}")
+    private String poolValidationBase;
+    @Value("${ldap.pool.validation.filter:objectclass=*}")
+    private String poolValidationFilter;
+    
+    /**
+     * Gepoolter ContextSource für das {@code LdapTemplate} (ersetzt den von Spring Boot erzeugten).
+     * Verbindungen werden wiederverwendet, vor der Ausgabe bzw. im Leerlauf validiert und
+     * haben Connect- und Read-Timeouts, damit ein langsames AD keine Servlet-Threads blockiert.
+     */
+    @Bean
+    @Primary
+    public MonitoredPooledContextSource contextSource() throws Exception {
+        LdapContextSource ldapContextSource = new LdapContextSource();
+        ldapContextSource.setUrl(url);
+        ldapContextSource.setBase(base);
+        ldapContextSource.setUserDn(username);
+        ldapContextSource.setPassword(password);
+        ldapContextSource.setPooled(false); // Pooling übernimmt der PooledContextSource
+        ldapContextSource.setBaseEnvironmentProperties(timeoutEnvironment());
+        ldapContextSource.afterPropertiesSet();
+        
+        PoolConfig poolConfig = new PoolConfig();
+        poolConfig.setMinIdlePerKey(poolMinIdle);
+        poolConfig.setMaxIdlePerKey(poolMaxIdle);
+        poolConfig.setMaxTotalPerKey(poolMaxTotal);
+        poolConfig.setMaxTotal(poolMaxTotal);
+        poolConfig.setMaxWaitMillis(poolMaxWait.toMillis());
+        poolConfig.setTestOnBorrow(poolTestOnBorrow);
+        poolConfig.setTestWhileIdle(poolTestWhileIdle);
+        poolConfig.setTimeBetweenEvictionRunsMillis(poolEvictionInterval.toMillis());
+        poolConfig.setMinEvictableIdleTimeMillis(poolMinEvictableIdle.toMillis());
+        
+        MonitoredPooledContextSource pooledContextSource = new MonitoredPooledContextSource(poolConfig);
+        pooledContextSource.setContextSource(ldapContextSource);
+        pooledContextSource.setDirContextValidator(dirContextValidator());
+        return pooledContextSource;
+    }
+    
+    /**
+     * Validiert Verbindungen mit einer Suche ({@code OBJECT_SCOPE}, höchstens ein Ergebnis) nach
+     * {@code ldap.pool.validation.filter} unter {@code ldap.pool.validation.base} (relativ zu {@code spring.ldap.base}).
+     */
+    private DefaultDirContextValidator dirContextValidator() {
+        DefaultDirContextValidator validator = new DefaultDirContextValidator();
+        validator.setBase(poolValidationBase);
+        validator.setFilter(poolValidationFilter);
+        return validator;
+    }
+    
+    private Map<String, Object> timeoutEnvironment() {
+        Map<String, Object> environment = new HashMap<>();
+        environment.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(connectTimeout.toMillis()));
+        environment.put("com.sun.jndi.ldap.read.timeout", String.valueOf(readTimeout.toMillis()));
+        return environment;
+    }
+    
     @Bean
     ActiveDirectoryLdapAuthenticationProvider authenticationProvider(UserDetailsContextMapper userDetailsContextMapper) {
         ActiveDirectoryLdapAuthenticationProvider authenticationProvider = new ActiveDirectoryLdapAuthenticationProvider(domain, url);
+        // Binds mit Benutzer-Credentials können nicht gepoolt werden, erhalten aber dieselben Timeouts
+        authenticationProvider.setContextEnvironmentProperties(timeoutEnvironment());
         authenticationProvider.setConvertSubErrorCodesToExceptions(true);
         authenticationProvider.setUseAuthenticationRequestCredentials(true);
         authenticationProvider.setSearchFilter("(&(objectClass=user)(sAMAccountName={1}))");
@@ -0,0 +1,47 @@
+package at.ac.tgm.config;
+
+import at.ac.tgm.versioning.ConditionalGetInterceptor;
+import at.ac.tgm.versioning.EntityVersionListener;
+import at.ac.tgm.versioning.EntityVersions;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Conditional GET für {@link at.ac.tgm.versioning.ConditionalGet}-Endpunkte: registriert den Hibernate-Listener,
+ * der die Änderungszähler pflegt, und den Interceptor, der mit 304 antwortet.
+ */
+@Configuration
+public class ConditionalGetConfig implements WebMvcConfigurer {
+
+    private final EntityVersions entityVersions;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ConditionalGetConfig(EntityVersions entityVersions, EntityManagerFactory entityManagerFactory) {
+        this.entityVersions = entityVersions;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        EntityVersionListener listener = new EntityVersionListener(entityVersions);
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ConditionalGetInterceptor(entityVersions));
+    }
+}
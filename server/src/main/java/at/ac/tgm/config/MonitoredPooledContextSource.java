@@ -0,0 +1,28 @@
+package at.ac.tgm.config;
+
+import at.ac.tgm.dto.LdapPoolStatsDto;
+import org.springframework.ldap.pool2.factory.PoolConfig;
+import org.springframework.ldap.pool2.factory.PooledContextSource;
+
+/**
+ * {@link PooledContextSource}, der die Kennzahlen des zugrunde liegenden Pools (aktive/freie Verbindungen,
+ * Wartezeiten) für das Dimensionieren des Pools zur Verfügung stellt.
+ */
+public class MonitoredPooledContextSource extends PooledContextSource {
+    public MonitoredPooledContextSource(PoolConfig poolConfig) {
+        super(poolConfig);
+    }
+    
+    public LdapPoolStatsDto getPoolStats() {
+        return new LdapPoolStatsDto(
+                keyedObjectPool.getNumActive(),
+                keyedObjectPool.getNumIdle(),
+                keyedObjectPool.getNumWaiters(),
+                keyedObjectPool.getMaxTotal(),
+                keyedObjectPool.getBorrowedCount(),
+                keyedObjectPool.getCreatedCount(),
+                keyedObjectPool.getDestroyedCount(),
+                keyedObjectPool.getMeanBorrowWaitTimeMillis(),
+                keyedObjectPool.getMaxBorrowWaitTimeMillis());
+    }
+}
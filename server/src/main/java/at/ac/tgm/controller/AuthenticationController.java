@@ -1,5 +1,6 @@
 package at.ac.tgm.controller;
 
+import at.ac.tgm.ad.SessionAttributes;
 import at.ac.tgm.ad.entry.UserEntry;
 import at.ac.tgm.ad.service.UserService;
 import at.ac.tgm.ad.util.Util;
@@ -59,6 +60,13 @@ public class AuthenticationController implements AuthenticationApi {
         SecurityContext context = SecurityContextHolder.getContext();
         context.setAuthentication(authentication);
         securityContextRepository.saveContext(context, request, response);
+        // Immer setzen oder entfernen, sonst bliebe bei einem erneuten Login in derselben Session die Kennung des vorherigen Benutzers stehen
+        HttpSession session = request.getSession();
+        if (user.getEmployeeID() != null) {
+            session.setAttribute(SessionAttributes.EMPLOYEE_ID, user.getEmployeeID());
+        } else {
+            session.removeAttribute(SessionAttributes.EMPLOYEE_ID);
+        }
         
         log.info("Login of {}", user.getDisplayName());
         
@@ -0,0 +1,37 @@
+package at.ac.tgm.controller;
+
+import at.ac.tgm.ad.cache.CacheStats;
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.api.DirectoryCacheApi;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@Slf4j
+public class DirectoryCacheController implements DirectoryCacheApi {
+    @Autowired
+    private UserService userService;
+    
+    @Override
+    public List<CacheStats> getStats() {
+        return userService.getCacheStats();
+    }
+    
+    @Override
+    public ResponseEntity<String> invalidate(String sAMAccountName) {
+        userService.invalidateUser(sAMAccountName);
+        log.info("Directory cache entry {} invalidated", sAMAccountName);
+        return ResponseEntity.ok("Cache entry " + sAMAccountName + " invalidated");
+    }
+    
+    @Override
+    public ResponseEntity<String> invalidateAll() {
+        userService.invalidateAllCaches();
+        log.info("Directory cache cleared");
+        return ResponseEntity.ok("Directory cache cleared");
+    }
+}
@@ -0,0 +1,18 @@
+package at.ac.tgm.controller;
+
+import at.ac.tgm.api.DirectoryPoolApi;
+import at.ac.tgm.config.MonitoredPooledContextSource;
+import at.ac.tgm.dto.LdapPoolStatsDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class DirectoryPoolController implements DirectoryPoolApi {
+    @Autowired
+    private MonitoredPooledContextSource contextSource;
+    
+    @Override
+    public LdapPoolStatsDto getStats() {
+        return contextSource.getPoolStats();
+    }
+}
@@ -0,0 +1,20 @@
+package at.ac.tgm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LdapPoolStatsDto {
+    private int active;
+    private int idle;
+    private int waiters;
+    private int maxTotal;
+    private long borrowed;
+    private long created;
+    private long destroyed;
+    private long meanBorrowWaitMillis;
+    private long maxBorrowWaitMillis;
+}
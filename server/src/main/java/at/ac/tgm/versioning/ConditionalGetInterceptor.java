@@ -0,0 +1,65 @@
+package at.ac.tgm.versioning;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Beantwortet GET-Anfragen auf {@link ConditionalGet}-Endpunkte mit 304, wenn sich seit der ETag des Clients keine der
+ * angegebenen Entitäten geändert hat; der Controller läuft dann gar nicht. Sonst werden {@code ETag} und
+ * {@code Last-Modified} gesetzt und die Anfrage normal bearbeitet.
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private final EntityVersions entityVersions;
+
+    public ConditionalGetInterceptor(EntityVersions entityVersions) {
+        this.entityVersions = entityVersions;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())) || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        ConditionalGet conditionalGet = handlerMethod.getMethodAnnotation(ConditionalGet.class);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // Ohne Berechtigung soll @Secured wie gewohnt ablehnen, statt dass ein 304 die Prüfung umgeht
+        if (conditionalGet == null || !permitted(handlerMethod, authentication)) {
+            return true;
+        }
+        EntityVersions.Snapshot snapshot = entityVersions.snapshot(conditionalGet.value());
+        String user = authentication != null ? authentication.getName() : "";
+        String etag = "W/\"" + Long.toHexString(snapshot.startedAt()) + "-" + snapshot.version() + "-"
+                + Integer.toHexString(Objects.hash(user, request.getQueryString())) + "\"";
+        // Spring Security setzt sonst "no-store", dann schickt der Browser nie eine ETag mit
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        return !new ServletWebRequest(request, response).checkNotModified(etag, snapshot.lastModified());
+    }
+
+    private static boolean permitted(HandlerMethod handlerMethod, Authentication authentication) {
+        Secured secured = handlerMethod.getMethodAnnotation(Secured.class);
+        if (secured == null) {
+            secured = handlerMethod.getBeanType().getAnnotation(Secured.class);
+        }
+        if (secured == null) {
+            return true;
+        }
+        if (authentication == null) {
+            return false;
+        }
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(authority -> Arrays.asList(secured.value()).contains(authority));
+    }
+}
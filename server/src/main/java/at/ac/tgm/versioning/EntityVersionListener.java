@@ -0,0 +1,65 @@
+package at.ac.tgm.versioning;
+
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Zählt jede über Hibernate geschriebene Entität in {@link EntityVersions} mit. Inserts, Updates und Deletes kommen
+ * als Post-Commit-Events, geänderte Collections (z.B. Lehrer eines Unterrichts) zählen beim Besitzer nach dem Commit.
+ */
+public class EntityVersionListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private final EntityVersions entityVersions;
+
+    public EntityVersionListener(EntityVersions entityVersions) {
+        this.entityVersions = entityVersions;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        entityVersions.increment(event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        entityVersions.increment(event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        entityVersions.increment(event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        entityVersions.markChanged(event.getAffectedOwnerEntityName());
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        entityVersions.markChanged(event.getAffectedOwnerEntityName());
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        entityVersions.markChanged(event.getAffectedOwnerEntityName());
+    }
+}
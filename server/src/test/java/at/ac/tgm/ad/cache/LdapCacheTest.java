@@ -0,0 +1,54 @@
+package at.ac.tgm.ad.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Eine Invalidierung während eines Ladevorgangs darf nicht durch dessen Ergebnis rückgängig gemacht werden.
+ */
+class LdapCacheTest {
+
+    private final LdapCache<String, String> cache = new LdapCache<>("test", Duration.ofMinutes(5), Duration.ofMinutes(1), 100);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void cachesLoadedValue() {
+        cache.get("a", key -> Optional.of("alt" + loads.incrementAndGet()));
+        assertEquals(Optional.of("alt1"), cache.get("a", key -> Optional.of("alt" + loads.incrementAndGet())));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidationDuringLoadIsNotUndone() {
+        cache.get("a", key -> {
+            cache.invalidate(key);
+            return Optional.of("alt");
+        });
+        assertEquals(Optional.of("neu"), cache.get("a", key -> Optional.of("neu")));
+    }
+
+    @Test
+    void invalidateAllDuringBatchLoadIsNotUndone() {
+        cache.getAll(List.of("a", "b"), keys -> {
+            cache.invalidateAll();
+            return Map.of("a", "alt", "b", "alt");
+        });
+        assertEquals(Map.of("a", "neu", "b", "neu"), cache.getAll(List.of("a", "b"), keys -> Map.of("a", "neu", "b", "neu")));
+    }
+
+    @Test
+    void invalidateIfDuringLoadIsNotUndone() {
+        cache.get("a", key -> {
+            cache.invalidateIf(value -> true);
+            return Optional.empty();
+        });
+        assertEquals(Optional.of("neu"), cache.get("a", key -> Optional.of("neu")));
+    }
+}
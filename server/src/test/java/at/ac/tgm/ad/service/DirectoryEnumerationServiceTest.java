@@ -0,0 +1,115 @@
+package at.ac.tgm.ad.service;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.support.LdapContextSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Die Partitionen müssen unabhängig von der Tiefe jeden Benutzer genau einmal liefern, auch unter Einträgen,
+ * die weder OU noch Container sind.
+ */
+class DirectoryEnumerationServiceTest {
+    private static final String BASE = "ou=tgm,dc=test";
+    private static final AttributesMapper<String> CN = attrs -> attrs.get("cn").get().toString();
+
+    private static InMemoryDirectoryServer server;
+    private static LdapTemplate ldapTemplate;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=test");
+        config.setSchema(null);
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        server = new InMemoryDirectoryServer(config);
+        server.add("dn: dc=test", "objectClass: top", "objectClass: domain", "dc: test");
+        server.add("dn: " + BASE, "objectClass: organizationalUnit", "ou: tgm");
+        server.add("dn: ou=People," + BASE, "objectClass: organizationalUnit", "ou: People");
+        server.add("dn: ou=Students,ou=People," + BASE, "objectClass: organizationalUnit", "ou: Students");
+        server.add("dn: ou=2025,ou=Students,ou=People," + BASE, "objectClass: organizationalUnit", "ou: 2025");
+        server.add("dn: cn=Users," + BASE, "objectClass: container", "cn: Users");
+        server.add("dn: cn=Builtin," + BASE, "objectClass: builtinDomain", "cn: Builtin");
+        server.add("dn: cn=Groups," + BASE, "objectClass: group", "cn: Groups");
+        user("cn=direct," + BASE);
+        user("cn=teacher,ou=People," + BASE);
+        user("cn=student,ou=Students,ou=People," + BASE);
+        user("cn=deep,ou=2025,ou=Students,ou=People," + BASE);
+        user("cn=container,cn=Users," + BASE);
+        user("cn=builtin,cn=Builtin," + BASE);
+        // Unterhalb von Personen wird nicht gesucht (dokumentierte Einschränkung)
+        server.add("dn: cn=device,cn=direct," + BASE, "objectClass: msExchActiveSyncDevice", "cn: device");
+        server.startListening();
+
+        LdapContextSource contextSource = new LdapContextSource();
+        contextSource.setUrl("ldap://localhost:" + server.getListenPort());
+        contextSource.setBase(BASE);
+        contextSource.setAnonymousReadOnly(true);
+        contextSource.afterPropertiesSet();
+        ldapTemplate = new LdapTemplate(contextSource);
+    }
+
+    private static void user(String dn) throws Exception {
+        String cn = dn.substring(3, dn.indexOf(','));
+        server.add("dn: " + dn, "objectClass: top", "objectClass: person", "objectClass: user", "cn: " + cn);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.shutDown(true);
+    }
+
+    private static DirectoryEnumerationService service(int depth) {
+        DirectoryEnumerationService service = new DirectoryEnumerationService();
+        ReflectionTestUtils.setField(service, "ldapTemplate", ldapTemplate);
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "partitionDepth", depth);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "poolMaxTotal", 16);
+        return service;
+    }
+
+    private static List<String> enumerate(int depth, String filter) {
+        List<String> result = new ArrayList<>();
+        long count = service(depth).enumerate(filter, new String[]{"cn"}, CN, result::addAll);
+        assertEquals(result.size(), count);
+        return result.stream().sorted().toList();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4})
+    void everyUserExactlyOnce(int depth) {
+        assertEquals(List.of("builtin", "container", "deep", "direct", "student", "teacher"), enumerate(depth, "(objectClass=user)"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void partitionsAreDisjointForAllEntries(int depth) {
+        List<String> all = enumerate(depth, "(objectClass=*)");
+        assertEquals(all.stream().distinct().count(), all.size());
+        assertEquals(List.of("2025", "Builtin", "Groups", "People", "Students", "Users", "builtin", "container", "deep", "direct", "student", "teacher"), all);
+        assertFalse(all.contains("device"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void mapperNullsAreNotCounted(int depth) {
+        List<String> result = new ArrayList<>();
+        long count = service(depth).enumerate("(objectClass=user)", new String[]{"cn"},
+                attrs -> attrs.get("cn").get().toString().startsWith("d") ? null : CN.mapFromAttributes(attrs), result::addAll);
+        assertEquals(4, count);
+        assertEquals(4, result.size());
+    }
+}
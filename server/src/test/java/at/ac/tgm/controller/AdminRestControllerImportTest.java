@@ -0,0 +1,143 @@
+package at.ac.tgm.controller;
+
+import at.ac.tgm.dto.DeltaImportReportDto;
+import at.ac.tgm.dto.ImportJobDto.Status;
+import at.ac.tgm.dto.ImportSummaryDto;
+import at.ac.tgm.repository.*;
+import at.ac.tgm.service.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.Reader;
+import java.time.Duration;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Upload (normal und Delta) und Statusabfrage des Hintergrund-Imports über die Admin-API (ohne Security, die prüft {@code @Secured}).
+ */
+class AdminRestControllerImportTest {
+    private static final String BASE = "/eis/api/admin";
+
+    private final ImportService importService = Mockito.mock(ImportService.class);
+    private ImportJobService importJobService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        importJobService = new ImportJobService(importService, 1, Duration.ofHours(1), Duration.ofHours(1));
+        AdminRestController controller = new AdminRestController(importJobService, Mockito.mock(DatabaseService.class),
+                Mockito.mock(HitclassRepository.class), Mockito.mock(TeacherRepository.class), Mockito.mock(LessonRepository.class), Mockito.mock(StudentRepository.class), Mockito.mock(AmpelRepository.class),
+                Mockito.mock(TeacherAccountRepository.class), Mockito.mock(TeacherIdentityService.class),
+                Mockito.mock(AmpelStatsService.class), Mockito.mock(AmpelChangeFeed.class), Mockito.mock(AdminListService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.shutdown();
+    }
+
+    private String upload() throws Exception {
+        return upload(multipart(BASE + "/upload"));
+    }
+
+    private String upload(MockMultipartHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request
+                        .file(new MockMultipartFile("file", "export.csv", "text/csv", "a;b\nc;d".getBytes())))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").isString())
+                .andExpect(jsonPath("$.job.fileName").value("export.csv"))
+                .andReturn();
+        String location = result.getResponse().getHeader("Location");
+        String jobId = location.substring(location.lastIndexOf('/') + 1);
+        awaitFinished(jobId);
+        return jobId;
+    }
+
+    private void awaitFinished(String jobId) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            Status status = importJobService.getJob(jobId).orElseThrow().getStatus();
+            if (status == Status.COMPLETED || status == Status.FAILED) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Import " + jobId + " nicht abgeschlossen");
+    }
+
+    @Test
+    void uploadStartsJobAndStatusShowsSummary() throws Exception {
+        ImportSummaryDto summary = new ImportSummaryDto();
+        summary.setStudentsCreated(2);
+        Mockito.when(importService.importCsv(Mockito.any(Reader.class), Mockito.any(IntConsumer.class))).thenReturn(summary);
+
+        String jobId = upload();
+
+        mockMvc.perform(get(BASE + "/import/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobId").value(jobId))
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.summary.studentsCreated").value(2))
+                .andExpect(jsonPath("$.errors").isEmpty());
+    }
+
+    @Test
+    void failedImportIsReportedInStatus() throws Exception {
+        Mockito.when(importService.importCsv(Mockito.any(Reader.class), Mockito.any(IntConsumer.class)))
+                .thenThrow(new IllegalStateException("Datenbank nicht erreichbar"));
+
+        String jobId = upload();
+
+        mockMvc.perform(get(BASE + "/import/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.errors[0]").value("Datenbank nicht erreichbar"))
+                .andExpect(jsonPath("$.summary").doesNotExist());
+    }
+
+    @Test
+    void deltaImportRunsAsJobAndStatusShowsReport() throws Exception {
+        DeltaImportReportDto report = new DeltaImportReportDto();
+        report.setDryRun(true);
+        report.setStudentsDeleted(1);
+        report.setSummary(new ImportSummaryDto());
+        Mockito.when(importService.importDelta(Mockito.any(Reader.class), Mockito.eq(true), Mockito.any(IntConsumer.class))).thenReturn(report);
+
+        String jobId = upload(multipart(BASE + "/import/delta").param("dryRun", "true"));
+
+        mockMvc.perform(get(BASE + "/import/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.delta.dryRun").value(true))
+                .andExpect(jsonPath("$.delta.studentsDeleted").value(1))
+                .andExpect(jsonPath("$.summary").exists());
+    }
+
+    @Test
+    void unknownJobIsNotFound() throws Exception {
+        mockMvc.perform(get(BASE + "/import/unbekannt"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rejectedUploadIsServerError() throws Exception {
+        importJobService.shutdown();
+
+        mockMvc.perform(multipart(BASE + "/upload").file(new MockMultipartFile("file", "export.csv", "text/csv", "a".getBytes())))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("Failed to upload and process file"));
+    }
+}
@@ -0,0 +1,79 @@
+package at.ac.tgm.controller;
+
+import at.ac.tgm.ad.SessionAttributes;
+import at.ac.tgm.ad.entry.UserEntry;
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.dto.LoginRequestDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Ein erneuter Login in derselben Session darf die Schülerkennzahl des vorherigen Benutzers nicht übernehmen.
+ */
+class AuthenticationControllerSessionTest {
+
+    private final UserService userService = Mockito.mock(UserService.class);
+    private final AuthenticationController controller = new AuthenticationController();
+    private final MockHttpSession session = new MockHttpSession();
+
+    @BeforeEach
+    void setUp() {
+        AuthenticationManager authenticationManager = Mockito.mock(AuthenticationManager.class);
+        Mockito.when(authenticationManager.authenticate(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+        ReflectionTestUtils.setField(controller, "authenticationManager", authenticationManager);
+        ReflectionTestUtils.setField(controller, "securityContextRepository", Mockito.mock(SecurityContextRepository.class));
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        user("mmustermann", "1001");
+        user("amusterfrau", "1002");
+        user("mpointner", null);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void user(String sAMAccountName, String employeeID) {
+        UserEntry entry = new UserEntry();
+        entry.setSAMAccountName(sAMAccountName);
+        entry.setDisplayName(sAMAccountName);
+        entry.setEmployeeID(employeeID);
+        Mockito.when(userService.findBysAMAccountName(sAMAccountName)).thenReturn(Optional.of(entry));
+    }
+
+    private Object login(String username) {
+        LoginRequestDto loginRequest = new LoginRequestDto();
+        loginRequest.setUsername(username);
+        loginRequest.setPassword("1234");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(session);
+        controller.login(loginRequest, request, new MockHttpServletResponse());
+        return session.getAttribute(SessionAttributes.EMPLOYEE_ID);
+    }
+
+    @Test
+    void loginOfAnotherStudentReplacesEmployeeId() {
+        assertEquals("1001", login("mmustermann"));
+        assertEquals("1002", login("amusterfrau"));
+    }
+
+    @Test
+    void loginOfTeacherRemovesEmployeeId() {
+        assertEquals("1001", login("mmustermann"));
+        assertNull(login("mpointner"));
+    }
+}
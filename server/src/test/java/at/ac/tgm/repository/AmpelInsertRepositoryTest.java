@@ -0,0 +1,92 @@
+package at.ac.tgm.repository;
+
+import at.ac.tgm.model.*;
+import at.ac.tgm.versioning.EntityVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Natives Einfügen auf H2: Eine bestehende Ampel wird nicht überschrieben, das Einfügen scheitert am eindeutigen Schlüssel.
+ */
+@DataJpaTest
+@Import(EntityVersions.class)
+class AmpelInsertRepositoryTest {
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    @Autowired
+    private AmpelRepository ampelRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Lesson lesson;
+    private Student student;
+    private Teacher teacher;
+
+    @BeforeEach
+    void seed() {
+        teacher = entityManager.persist(Teacher.builder().name("Anna GRUBER").lessons(new HashSet<>()).build());
+        Hitclass hitclass = entityManager.persist(Hitclass.builder().name("1AHIT").students(new HashSet<>()).lessons(new HashSet<>()).build());
+        Subject subject = entityManager.persist(Subject.builder().kurzbezeichnung("SEW").gegenstandsart("Pflichtgegenstände").langbezeichnung("Softwareentwicklung").build());
+        lesson = entityManager.persist(Lesson.builder().subject(subject).hitclass(hitclass).teachers(new HashSet<>(Set.of(teacher))).build());
+        student = entityManager.persist(Student.builder().vorname("Max").nachname("MUSTER").studentKennzahl("1001").hitclass(hitclass).build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private boolean insert(AmpelFarbe farbe, String bemerkung, LocalDateTime updatedAt) {
+        return ampelRepository.insert(lesson.getId(), student.getId(), teacher.getId(), farbe, bemerkung, updatedAt);
+    }
+
+    private Ampel load() {
+        entityManager.clear();
+        return ampelRepository.findWithDetails(lesson.getId(), student.getId(), teacher.getId()).orElseThrow();
+    }
+
+    @Test
+    void uniqueKeyIsPresent() {
+        assertTrue(AmpelInsertRepositoryImpl.hasUniqueKey(jdbcTemplate));
+    }
+
+    @Test
+    void insertsMissingAmpel() {
+        assertTrue(insert(AmpelFarbe.GELB, "Hausübungen fehlen", MONDAY));
+
+        Ampel ampel = load();
+        assertNotNull(ampel.getId());
+        assertEquals(AmpelFarbe.GELB, ampel.getFarbe());
+        assertEquals("Hausübungen fehlen", ampel.getBemerkung());
+        assertEquals(MONDAY, ampel.getUpdatedAt());
+        assertEquals("1AHIT", ampel.getLesson().getHitclass().getName());
+    }
+
+    @Test
+    void existingAmpelFailsAndKeepsItsState() {
+        insert(AmpelFarbe.GELB, "Hausübungen fehlen", MONDAY);
+        Long id = load().getId();
+
+        assertThrows(DuplicateKeyException.class, () -> insert(AmpelFarbe.ROT, "Test negativ", MONDAY.plusDays(1)));
+
+        // Die Transaktion ist weiter verwendbar, die bestehende Ampel kann gesperrt gelesen und geändert werden
+        Ampel ampel = ampelRepository.findForUpdate(lesson.getId(), student.getId(), teacher.getId()).orElseThrow();
+        assertEquals(id, ampel.getId());
+        assertEquals(AmpelFarbe.GELB, ampel.getFarbe());
+        assertEquals("Hausübungen fehlen", ampel.getBemerkung());
+        assertEquals(1, ampelRepository.count());
+    }
+}
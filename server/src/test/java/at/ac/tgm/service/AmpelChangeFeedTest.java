@@ -0,0 +1,185 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.AmpelChangeEventDto.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nachschicken ab der {@code Last-Event-ID}, Reset nach Massenänderungen und das Trennen hängender Clients.
+ */
+class AmpelChangeFeedTest {
+    private static final Pattern ID = Pattern.compile("id:(\\d+)");
+    private static final Pattern NAME = Pattern.compile("event:(\\w+)");
+
+    private RecordingEmitter nextEmitter;
+    private final AmpelChangeFeed feed = new AmpelChangeFeed(1000, Duration.ofMinutes(1), Duration.ofHours(1), 16, Duration.ofMillis(100)) {
+        @Override
+        SseEmitter newEmitter(long timeoutMillis) {
+            return nextEmitter;
+        }
+    };
+
+    /**
+     * Zeichnet die gesendeten Events als Text auf ("id:..", "event:.."), optional hängt jedes Senden bis zur Freigabe.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private volatile boolean completed;
+        private volatile Runnable completionCallback;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> {
+                if (part.getData() instanceof String data) {
+                    text.append(data);
+                }
+            });
+            events.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            completionCallback = callback;
+            super.onCompletion(callback);
+        }
+
+        List<String> names() {
+            return events.stream().map(event -> group(NAME, event)).toList();
+        }
+
+        List<Long> ids() {
+            return events.stream().map(event -> Long.parseLong(group(ID, event))).toList();
+        }
+
+        private static String group(Pattern pattern, String event) {
+            Matcher matcher = pattern.matcher(event);
+            return matcher.find() ? matcher.group(1) : null;
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        feed.shutdown();
+    }
+
+    private RecordingEmitter subscribe(Long lastEventId, Long... hitclassIds) {
+        return subscribe(null, lastEventId, hitclassIds);
+    }
+
+    private RecordingEmitter subscribe(CountDownLatch release, Long lastEventId, Long... hitclassIds) {
+        nextEmitter = new RecordingEmitter(release);
+        assertSame(nextEmitter, feed.subscribe(Set.of(hitclassIds), lastEventId));
+        return nextEmitter;
+    }
+
+    private void publish(long hitclassId) {
+        feed.publish(Type.UPDATED, hitclassId, 1L, 1L, 1L, null);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Zeitüberschreitung");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void replaysEventsAfterLastEventId() throws InterruptedException {
+        RecordingEmitter first = subscribe(null, 1L);
+        publish(1);
+        publish(2);
+        publish(1);
+        publish(1);
+        await(() -> first.events.size() == 3);
+        List<Long> ids = first.ids();
+
+        RecordingEmitter reconnected = subscribe(ids.getFirst(), 1L);
+        await(() -> reconnected.events.size() == 2);
+        assertEquals(ids.subList(1, 3), reconnected.ids());
+        assertEquals(List.of("ampel", "ampel"), reconnected.names());
+    }
+
+    @Test
+    void unknownLastEventIdGetsReset() throws InterruptedException {
+        RecordingEmitter emitter = subscribe(-1L, 1L);
+        await(() -> emitter.events.size() == 1);
+        assertEquals(List.of("reset"), emitter.names());
+    }
+
+    @Test
+    void publishResetReachesEveryClientAndClearsBuffer() throws InterruptedException {
+        RecordingEmitter own = subscribe(null, 1L);
+        RecordingEmitter other = subscribe(null, 2L);
+        publish(1);
+        await(() -> own.events.size() == 1);
+        long beforeReset = own.ids().getFirst();
+
+        feed.publishReset();
+        await(() -> own.events.size() == 2 && other.events.size() == 1);
+        assertEquals(List.of("ampel", "reset"), own.names());
+        assertEquals(List.of("reset"), other.names());
+        long resetId = other.ids().getFirst();
+
+        // Eine ID von vor dem Reset ist nicht mehr im Puffer, mit der ID des Resets ist der Client aktuell
+        RecordingEmitter stale = subscribe(beforeReset, 1L);
+        RecordingEmitter current = subscribe(resetId, 1L);
+        publish(1);
+        await(() -> current.events.size() == 1 && stale.events.size() == 2);
+        assertEquals(List.of("reset", "ampel"), stale.names());
+        assertEquals(List.of(resetId + 1), current.ids());
+    }
+
+    @Test
+    void stalledClientIsDroppedWithoutBlockingOthers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stalled = subscribe(release, null, 1L);
+        RecordingEmitter healthy = subscribe(null, 1L);
+        try {
+            publish(1);
+            publish(1);
+            await(() -> healthy.events.size() == 2);
+            await(() -> stalled.completed);
+            assertTrue(stalled.events.isEmpty());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void disconnectAfterShutdownIsIgnored() {
+        RecordingEmitter emitter = subscribe(null, 1L);
+        feed.shutdown();
+        assertDoesNotThrow(() -> emitter.completionCallback.run());
+    }
+}
@@ -0,0 +1,126 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.AmpelRequestDto;
+import at.ac.tgm.dto.AmpelStatsDto;
+import at.ac.tgm.model.*;
+import at.ac.tgm.repository.AmpelRepository;
+import at.ac.tgm.versioning.EntityVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Die fortgeschriebenen Zähler müssen nach einzelnen Änderungen, Massenänderungen und dem Löschen eines Schülers
+ * genau dem entsprechen, was {@link AmpelStatsService#rebuild()} aus den Ampeln berechnet.
+ */
+@DataJpaTest
+@Import({TeacherAmpelService.class, AmpelStatsService.class, AmpelChangeFeed.class, EntityVersions.class})
+class AmpelStatsServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TeacherAmpelService teacherAmpelService;
+
+    @Autowired
+    private AmpelStatsService ampelStatsService;
+
+    @Autowired
+    private AmpelRepository ampelRepository;
+
+    private Teacher teacher;
+    private Lesson sew;
+    private Lesson deutsch;
+    private Student anna;
+    private Student bernd;
+    private Student clara;
+
+    @BeforeEach
+    void seed() {
+        teacher = entityManager.persist(Teacher.builder().name("Anna GRUBER").lessons(new HashSet<>()).build());
+        Hitclass hitclass = entityManager.persist(Hitclass.builder().name("1AHIT").students(new HashSet<>()).lessons(new HashSet<>()).build());
+        sew = lesson(hitclass, "SEW");
+        deutsch = lesson(hitclass, "D");
+        anna = student(hitclass, "1001");
+        bernd = student(hitclass, "1002");
+        clara = student(hitclass, "1003");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Lesson lesson(Hitclass hitclass, String kurzbezeichnung) {
+        Subject subject = entityManager.persist(Subject.builder().kurzbezeichnung(kurzbezeichnung).gegenstandsart("Pflichtgegenstände")
+                .langbezeichnung("Gegenstand " + kurzbezeichnung).build());
+        return entityManager.persist(Lesson.builder().subject(subject).hitclass(hitclass).teachers(new HashSet<>(Set.of(teacher))).build());
+    }
+
+    private Student student(Hitclass hitclass, String kennzahl) {
+        return entityManager.persist(Student.builder().vorname("Vorname").nachname("Nachname" + kennzahl).studentKennzahl(kennzahl).hitclass(hitclass).build());
+    }
+
+    private static AmpelRequestDto request(Lesson lesson, Student student, Teacher teacher, String farbe) {
+        return AmpelRequestDto.builder().lessonId(lesson.getId()).studentId(student.getId()).teacherId(teacher.getId()).farbe(farbe).build();
+    }
+
+    private void save(Lesson lesson, Student student, String farbe) {
+        teacherAmpelService.createOrUpdateAmpel(request(lesson, student, teacher, farbe));
+    }
+
+    // "Gegenstand Farbe" -> Anzahl
+    private Map<String, Long> subjectCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        ampelStatsService.getStats().subjects().forEach(stat -> counts.put(stat.subjectKurzbezeichnung() + " " + stat.farbe(), stat.anzahl()));
+        return counts;
+    }
+
+    private void assertMatchesRebuild() {
+        AmpelStatsDto counted = ampelStatsService.getStats();
+        ampelStatsService.rebuild();
+        assertEquals(counted, ampelStatsService.getStats());
+    }
+
+    @Test
+    void countersMatchRebuildAfterSingleAndBulkChanges() {
+        save(sew, anna, "GELB");
+        save(sew, anna, "ROT");
+        save(sew, bernd, "GELB");
+        save(deutsch, anna, "GRUEN");
+        teacherAmpelService.bulkCreateOrUpdateAmpel(teacher.getId(), List.of(
+                request(sew, bernd, teacher, "ROT"),
+                request(sew, clara, teacher, "GRUEN"),
+                request(deutsch, bernd, teacher, "GELB")));
+        teacherAmpelService.deleteAmpel(deutsch.getId(), anna.getId(), teacher.getId());
+
+        assertEquals(Map.of("D GELB", 1L, "SEW GRUEN", 1L, "SEW ROT", 2L), subjectCounts());
+        assertMatchesRebuild();
+    }
+
+    @Test
+    void removeStudentSubtractsOnlyTheirAmpeln() {
+        save(sew, anna, "ROT");
+        save(deutsch, anna, "GELB");
+        save(sew, bernd, "ROT");
+        save(deutsch, clara, "GELB");
+
+        List<Ampel> ampeln = ampelRepository.findForUpdateByStudentId(anna.getId());
+        ampelStatsService.removeStudent(anna.getId(), ampeln);
+        ampelRepository.deleteAll(ampeln);
+
+        assertEquals(Map.of("D GELB", 1L, "SEW ROT", 1L), subjectCounts());
+        assertTrue(ampelStatsService.getStats().students().stream().noneMatch(stat -> stat.studentId().equals(anna.getId())));
+        assertMatchesRebuild();
+    }
+}
@@ -0,0 +1,83 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.repository.AmpelInsertRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Doppelte Ampeln aus der Zeit vor dem eindeutigen Schlüssel werden beim Start protokolliert und entfernt, danach wird der Schlüssel angelegt.
+ * Ohne Testtransaktion, da H2 bei DDL ohnehin committet.
+ */
+@DataJpaTest
+@Import(AmpelUniqueKeyInitializer.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ExtendWith(OutputCaptureExtension.class)
+class AmpelUniqueKeyInitializerTest {
+
+    @Autowired
+    private AmpelUniqueKeyInitializer initializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM eis_ampeleis");
+        jdbcTemplate.update("DELETE FROM eis_ampelstat");
+        jdbcTemplate.update("DELETE FROM eis_lessoneis WHERE id = 9001");
+        jdbcTemplate.update("DELETE FROM eis_eisstudent WHERE id = 9001");
+        jdbcTemplate.update("DELETE FROM eis_teachereis WHERE id IN (9001, 9002)");
+        initializer.ensureUniqueKey();
+    }
+
+    private void ampel(long id, Long teacherId, String farbe) {
+        jdbcTemplate.update("INSERT INTO eis_ampeleis (id, lesson_id, student_id, teacher_id, farbe, bemerkung) VALUES (?, 9001, 9001, ?, ?, ?)",
+                id, teacherId, farbe, "Bemerkung " + id);
+    }
+
+    @Test
+    void removesDuplicatesAndAddsKey(CapturedOutput output) {
+        jdbcTemplate.execute("ALTER TABLE eis_ampeleis DROP CONSTRAINT " + AmpelInsertRepositoryImpl.UNIQUE_KEY);
+        jdbcTemplate.update("INSERT INTO eis_teachereis (id, name) VALUES (9001, 'Anna GRUBER'), (9002, 'Lukas HUBER')");
+        jdbcTemplate.update("INSERT INTO eis_eisstudent (id, student_kennzahl) VALUES (9001, '1001')");
+        jdbcTemplate.update("INSERT INTO eis_lessoneis (id) VALUES (9001)");
+        ampel(9001, 9001L, "GELB");
+        ampel(9002, 9001L, "ROT");
+        ampel(9003, 9002L, "GRUEN");
+        ampel(9004, null, "GRUEN");
+        ampel(9005, null, "GRUEN");
+        jdbcTemplate.update("INSERT INTO eis_ampelstat (hitclass_id, subject_id, farbe, anzahl) VALUES (1, 1, 'GELB', 2)");
+
+        initializer.ensureUniqueKey();
+
+        assertEquals(List.of(9002L, 9003L, 9004L, 9005L), jdbcTemplate.queryForList("SELECT id FROM eis_ampeleis ORDER BY id", Long.class));
+        assertTrue(output.getOut().contains("id=9001 (Unterricht 9001, Schüler 9001, Lehrer 9001): farbe=GELB, bemerkung=Bemerkung 9001"));
+        assertFalse(output.getOut().contains("id=9002 "));
+        assertTrue(AmpelInsertRepositoryImpl.hasUniqueKey(jdbcTemplate));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM eis_ampelstat", Integer.class));
+    }
+
+    @Test
+    void leavesDataAloneWhenKeyExists() {
+        jdbcTemplate.update("INSERT INTO eis_ampelstat (hitclass_id, subject_id, farbe, anzahl) VALUES (1, 1, 'GELB', 2)");
+
+        initializer.ensureUniqueKey();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM eis_ampelstat", Integer.class));
+    }
+}
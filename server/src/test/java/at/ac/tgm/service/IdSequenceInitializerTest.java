@@ -0,0 +1,55 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.model.Hitclass;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Die Sequenzen werden nur hinter noch per IDENTITY vergebene IDs gesetzt, nie zurück auf bereits vergebene Werte.
+ */
+@DataJpaTest
+@Import(IdSequenceInitializer.class)
+class IdSequenceInitializerTest {
+    private static final String SEQUENCE = "eis_hitclasseis_seq";
+
+    @Autowired
+    private IdSequenceInitializer initializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private long next() {
+        return initializer.nextValue("h2", SEQUENCE);
+    }
+
+    @Test
+    void restartsBehindLegacyIds() {
+        long legacyId = next() + 1000;
+        jdbcTemplate.update("INSERT INTO eis_hitclasseis (id, name) VALUES (?, '9ZHIT')", legacyId);
+
+        initializer.alignSequences();
+
+        assertEquals(legacyId + 50, next());
+    }
+
+    @Test
+    void leavesSequenceAheadOfIdsUntouched() {
+        entityManager.persistAndFlush(Hitclass.builder().name("1AHIT").build());
+        // Bereits vergebener, aber noch ungenutzter Block, darf nicht erneut vergeben werden
+        jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + SEQUENCE, Long.class);
+        long before = next();
+
+        initializer.alignSequences();
+
+        assertEquals(before, next());
+    }
+}
@@ -0,0 +1,134 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.ImportJobDto;
+import at.ac.tgm.dto.ImportJobDto.Status;
+import at.ac.tgm.dto.ImportSummaryDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hintergrund-Import: Fortschritt, Zusammenfassung, Fehlerfall, Aufräumen der temporären Datei und Verwerfen alter Jobs.
+ */
+class ImportJobServiceTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    private final ImportService importService = Mockito.mock(ImportService.class);
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() {
+        importJobService = new ImportJobService(importService, 1, Duration.ZERO, Duration.ofHours(1));
+        importJobService.spoolDirectory = spoolDirectory;
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.shutdown();
+    }
+
+    private static MockMultipartFile csv(String... lines) {
+        return new MockMultipartFile("file", "export.csv", "text/csv", String.join("\n", lines).getBytes());
+    }
+
+    static ImportJobDto awaitFinished(ImportJobService service, String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            ImportJobDto job = service.getJob(jobId).orElseThrow();
+            if (job.getStatus() == Status.COMPLETED || job.getStatus() == Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Import " + jobId + " nicht abgeschlossen");
+    }
+
+    private List<Path> spooled() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void completedJobReportsProgressAndSummary() throws Exception {
+        ImportSummaryDto summary = new ImportSummaryDto();
+        summary.setRowsRead(3);
+        Mockito.when(importService.importCsv(Mockito.any(Reader.class), Mockito.any(IntConsumer.class))).thenAnswer(invocation -> {
+            BufferedReader reader = new BufferedReader(invocation.getArgument(0, Reader.class));
+            IntConsumer progress = invocation.getArgument(1);
+            int rows = 0;
+            while (reader.readLine() != null) {
+                progress.accept(++rows);
+            }
+            return summary;
+        });
+
+        ImportJobDto submitted = importJobService.submit(csv("a", "b", "c"));
+        ImportJobDto job = awaitFinished(importJobService, submitted.getJobId());
+
+        assertEquals(Status.COMPLETED, job.getStatus());
+        assertEquals("export.csv", job.getFileName());
+        assertEquals(3, job.getRowsProcessed());
+        assertEquals(summary, job.getSummary());
+        assertTrue(job.getErrors().isEmpty());
+        assertNotNull(job.getStartedAt());
+        assertNotNull(job.getFinishedAt());
+        assertEquals(List.of(), spooled());
+    }
+
+    @Test
+    void failedJobReportsErrorAndDeletesSpool() throws Exception {
+        Mockito.when(importService.importCsv(Mockito.any(Reader.class), Mockito.any(IntConsumer.class)))
+                .thenThrow(new IllegalStateException("Zeile 2 ungültig"));
+
+        ImportJobDto job = awaitFinished(importJobService, importJobService.submit(csv("a", "b")).getJobId());
+
+        assertEquals(Status.FAILED, job.getStatus());
+        assertEquals(List.of("Zeile 2 ungültig"), job.getErrors());
+        assertNull(job.getSummary());
+        assertEquals(List.of(), spooled());
+    }
+
+    @Test
+    void rejectedSubmitDeletesSpool() throws Exception {
+        importJobService.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> importJobService.submit(csv("a")));
+
+        assertEquals(List.of(), spooled());
+    }
+
+    @Test
+    void finishedJobsAreEvicted() throws Exception {
+        Mockito.when(importService.importCsv(Mockito.any(Reader.class), Mockito.any(IntConsumer.class))).thenReturn(new ImportSummaryDto());
+        String jobId = importJobService.submit(csv("a")).getJobId();
+        awaitFinished(importJobService, jobId);
+
+        importJobService.evictFinishedJobs();
+
+        assertTrue(importJobService.getJob(jobId).isEmpty());
+    }
+
+    @Test
+    void unknownJobIsEmpty() {
+        assertTrue(importJobService.getJob("unbekannt").isEmpty());
+    }
+}
@@ -0,0 +1,204 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.dto.DeltaImportReportDto;
+import at.ac.tgm.dto.ImportSummaryDto;
+import at.ac.tgm.model.*;
+import at.ac.tgm.repository.AmpelRepository;
+import at.ac.tgm.repository.HitclassRepository;
+import at.ac.tgm.repository.StudentRepository;
+import at.ac.tgm.versioning.EntityVersions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSV-Import des EIS: der normale Import legt nur an und ergänzt, bestehende Schüler bleiben unverändert.
+ * Der Delta-Import gleicht Schüler, Unterrichte und Klassen ab, der Probelauf schreibt dabei nichts.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ImportService.class, TeacherNameNormalizer.class, AmpelStatsService.class, AmpelChangeFeed.class, TeacherIdentityService.class, EntityVersions.class})
+class ImportServiceTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private HitclassRepository hitclassRepository;
+
+    @Autowired
+    private AmpelRepository ampelRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockitoBean
+    private UserService userService;
+
+    static String row(String klasse, String kennzahl, String nachname, String vorname, String kurzbezeichnung, String lehrer) {
+        String gegenstandsart = kurzbezeichnung.equals("KV") ? "Allgemeines" : "Pflichtgegenstände";
+        return String.join(";", "", klasse, "", "", kennzahl, nachname, vorname, "", "", "", "",
+                gegenstandsart, "", kurzbezeichnung, "Gegenstand " + kurzbezeichnung, lehrer);
+    }
+
+    private ImportSummaryDto importCsv(String... rows) throws IOException {
+        ImportSummaryDto summary = importService.importCsv(new StringReader(String.join("\n", rows)));
+        entityManager.flush();
+        entityManager.clear();
+        return summary;
+    }
+
+    @Test
+    void reimportKeepsExistingStudents() throws IOException {
+        importCsv(row("1AHIT", "1001", "MUSTER", "Max", "SEW", "Mag. Anna GRUBER"));
+
+        ImportSummaryDto summary = importCsv(row("2AHIT", "1001", "MUSTERMANN", "Maximilian", "SEW", "Mag. Anna GRUBER"));
+
+        Student student = studentRepository.findByStudentKennzahl("1001").orElseThrow();
+        assertEquals("MUSTER", student.getNachname());
+        assertEquals("Max", student.getVorname());
+        assertEquals("1AHIT", student.getHitclass().getName());
+        assertEquals(0, summary.getStudentsUpdated());
+        assertEquals(1, summary.getHitclassesCreated());
+        assertEquals(1, summary.getLessonsCreated());
+    }
+
+    /**
+     * 1AHIT mit zwei Schülern und drei Unterrichten, 2AHIT mit einem Schüler. Jeder Schüler hat eine Ampel.
+     */
+    private void seed() throws IOException {
+        importCsv(
+                row("1AHIT", "1001", "MUSTER", "Max", "SEW", "Anna GRUBER"),
+                row("1AHIT", "1001", "MUSTER", "Max", "KV", "Anna GRUBER"),
+                row("1AHIT", "1001", "MUSTER", "Max", "AM", "Lukas HUBER"),
+                row("1AHIT", "1002", "HUBER", "Eva", "SEW", "Anna GRUBER"),
+                row("2AHIT", "2001", "BAUER", "Tom", "SEW", "Anna GRUBER"));
+        ampel("1AHIT", "AM", "1001");
+        ampel("1AHIT", "SEW", "1002");
+        ampel("2AHIT", "SEW", "2001");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * 1001 umbenannt, in SEW unterrichtet HUBER statt GRUBER, AM entfällt. 1002 und die 2AHIT fehlen, die 3AHIT ist neu.
+     */
+    private DeltaImportReportDto importDelta(boolean dryRun) throws IOException {
+        DeltaImportReportDto report = importService.importDelta(new StringReader(String.join("\n",
+                row("1AHIT", "1001", "MUSTERMANN", "Max", "SEW", "Lukas HUBER"),
+                row("1AHIT", "1001", "MUSTERMANN", "Max", "KV", "Anna GRUBER"),
+                row("3AHIT", "3001", "NEU", "Nina", "SEW", "Anna GRUBER"))), dryRun);
+        entityManager.flush();
+        entityManager.clear();
+        return report;
+    }
+
+    private void ampel(String klasse, String kurzbezeichnung, String studentKennzahl) {
+        Lesson lesson = lesson(klasse, kurzbezeichnung);
+        Ampel ampel = new Ampel();
+        ampel.setLesson(lesson);
+        ampel.setStudent(studentRepository.findByStudentKennzahl(studentKennzahl).orElseThrow());
+        ampel.setTeacher(lesson.getTeachers().iterator().next());
+        ampel.setFarbe(AmpelFarbe.GELB);
+        entityManager.persist(ampel);
+    }
+
+    private Lesson lesson(String klasse, String kurzbezeichnung) {
+        return entityManager.getEntityManager()
+                .createQuery("SELECT l FROM Lesson l WHERE l.hitclass.name = :klasse AND l.subject.kurzbezeichnung = :kurzbezeichnung", Lesson.class)
+                .setParameter("klasse", klasse)
+                .setParameter("kurzbezeichnung", kurzbezeichnung)
+                .getSingleResult();
+    }
+
+    private Map<String, String> students() {
+        return studentRepository.findAll().stream().collect(Collectors.toMap(Student::getStudentKennzahl,
+                student -> student.getNachname() + " " + student.getHitclass().getName(), (a, b) -> a, TreeMap::new));
+    }
+
+    private static void assertDiff(DeltaImportReportDto report) {
+        assertEquals(1, report.getSummary().getStudentsCreated());
+        assertEquals(1, report.getSummary().getStudentsUpdated());
+        assertEquals(2, report.getStudentsDeleted());
+        assertEquals(1, report.getSummary().getLessonsCreated());
+        assertEquals(1, report.getSummary().getLessonsUpdated());
+        assertEquals(2, report.getLessonsDeleted());
+        assertEquals(1, report.getLessonTeachersAdded());
+        assertEquals(1, report.getLessonTeachersRemoved());
+        assertEquals(1, report.getSummary().getHitclassesCreated());
+        assertEquals(1, report.getHitclassesDeleted());
+        assertEquals(0, report.getKlassenvorstaendeChanged());
+        assertEquals(3, report.getAmpelnDeleted());
+        assertTrue(report.getChanges().contains("Schüler geändert: 1001 MUSTER Max (1AHIT) -> 1001 MUSTERMANN Max (1AHIT)"));
+        assertTrue(report.getChanges().contains("Schüler gelöscht: 1002 HUBER Eva (1AHIT)"));
+        assertTrue(report.getChanges().contains("Unterricht gelöscht: 1AHIT AM"));
+        assertTrue(report.getChanges().contains("Lehrer zugeteilt: 1AHIT SEW Lukas HUBER"));
+        assertTrue(report.getChanges().contains("Lehrer entfernt: 1AHIT SEW Anna GRUBER"));
+        assertTrue(report.getChanges().contains("Klasse angelegt: 3AHIT"));
+        assertTrue(report.getChanges().contains("Klasse gelöscht: 2AHIT"));
+    }
+
+    @Test
+    void deltaImportAddsChangesAndRemoves() throws IOException {
+        seed();
+
+        DeltaImportReportDto report = importDelta(false);
+
+        assertFalse(report.isDryRun());
+        assertDiff(report);
+        assertEquals(Map.of("1001", "MUSTERMANN 1AHIT", "3001", "NEU 3AHIT"), students());
+        assertEquals(Set.of("1AHIT", "3AHIT"), hitclassRepository.findAll().stream().map(Hitclass::getName).collect(Collectors.toSet()));
+        assertEquals(Set.of("Lukas HUBER"), lesson("1AHIT", "SEW").getTeachers().stream().map(Teacher::getName).collect(Collectors.toSet()));
+        assertEquals(Set.of("Anna GRUBER"), lesson("3AHIT", "SEW").getTeachers().stream().map(Teacher::getName).collect(Collectors.toSet()));
+        assertEquals(0, ampelRepository.count());
+    }
+
+    @Test
+    void deltaImportDetachesDeletedHitclasses() throws IOException {
+        seed();
+        Hitclass removed = hitclassRepository.findByName("2AHIT").orElseThrow();
+
+        importService.importDelta(new StringReader(row("1AHIT", "1001", "MUSTER", "Max", "SEW", "Anna GRUBER")), false);
+
+        assertFalse(entityManager.getEntityManager().contains(removed));
+        assertTrue(hitclassRepository.findByName("2AHIT").isEmpty());
+    }
+
+    @Test
+    void dryRunReportsTheSameDiffWithoutWriting() throws IOException {
+        seed();
+        Map<String, String> studentsBefore = students();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        DeltaImportReportDto report = importDelta(true);
+
+        assertTrue(report.isDryRun());
+        assertDiff(report);
+        assertEquals(0, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getEntityDeleteCount());
+        assertEquals(0, statistics.getCollectionUpdateCount());
+        assertEquals(studentsBefore, students());
+        assertEquals(Set.of("1AHIT", "2AHIT"), hitclassRepository.findAll().stream().map(Hitclass::getName).collect(Collectors.toSet()));
+        assertEquals(Set.of("Anna GRUBER"), lesson("1AHIT", "SEW").getTeachers().stream().map(Teacher::getName).collect(Collectors.toSet()));
+        assertEquals(3, ampelRepository.count());
+    }
+}
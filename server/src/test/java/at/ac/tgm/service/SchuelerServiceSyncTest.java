@@ -0,0 +1,192 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.ad.entry.UserContact;
+import at.ac.tgm.ad.entry.UserIdentity;
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.entity.LdapSyncState;
+import at.ac.tgm.repository.LdapSyncStateRepository;
+import at.ac.tgm.repository.SchuelerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Die Jahrgänge 4 und 5 werden unabhängig voneinander synchronisiert: Ein vollständiger Lauf darf nur die Schüler
+ * seines Jahrgangs löschen und nur seinen eigenen Synchronisationsstand neu setzen. Als neue Marke dient der vor der Suche
+ * gelesene highestCommittedUSN, damit während der Suche geänderte Benutzer im nächsten Lauf nicht fehlen.
+ */
+@DataJpaTest
+@Import({SchuelerService.class, LdapSyncService.class})
+class SchuelerServiceSyncTest {
+
+    @Autowired
+    private SchuelerService schuelerService;
+
+    @Autowired
+    private SchuelerRepository schuelerRepository;
+
+    @Autowired
+    private LdapSyncStateRepository syncStateRepository;
+
+    @MockitoBean
+    private UserService userService;
+
+    // Jahrgang -> aktuelle Mitglieder der Schülergruppen im LDAP
+    private final Map<String, List<UserContact>> directory = new HashMap<>();
+    private long usn = 100;
+    // Wird nach der ersten gelieferten Seite einmal ausgeführt (Änderung im LDAP während der Suche)
+    private Runnable afterFirstPage;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void mockDirectory() {
+        Mockito.when(userService.streamUsersPaged(Mockito.anyString(), Mockito.any())).thenAnswer(invocation ->
+                deliver(invocation.getArgument(0), 0, invocation.getArgument(1, Consumer.class)));
+        Mockito.when(userService.streamUsersChangedSincePaged(Mockito.anyString(), Mockito.anyLong(), Mockito.any())).thenAnswer(invocation ->
+                deliver(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2, Consumer.class)));
+        Mockito.when(userService.findHighestCommittedUsn()).thenAnswer(invocation -> Optional.of(usn));
+    }
+
+    private int deliver(String filter, long since, Consumer<List<UserContact>> pageConsumer) {
+        String year = filter.contains("schueler4") ? "4" : "5";
+        // Jeder Benutzer als eigene Seite, die Seiten werden wie bei der Partitionssuche nacheinander gelesen
+        int count = 0;
+        for (int i = 0; i < directory.getOrDefault(year, List.of()).size(); i++) {
+            UserContact user = directory.get(year).get(i);
+            if (Long.parseLong(user.uSNChanged()) > since) {
+                pageConsumer.accept(List.of(user));
+                count++;
+                if (afterFirstPage != null) {
+                    Runnable change = afterFirstPage;
+                    afterFirstPage = null;
+                    change.run();
+                }
+            }
+        }
+        return count;
+    }
+
+    private void member(String year, String... samAccountNames) {
+        List<UserContact> users = new ArrayList<>();
+        for (String sam : samAccountNames) {
+            users.add(contact(sam, sam.toUpperCase(Locale.ROOT)));
+        }
+        directory.put(year, users);
+    }
+
+    private UserContact contact(String sam, String nachname) {
+        return new UserContact(new UserIdentity(sam, sam, sam, sam, "Vorname", nachname, sam + "@student.tgm.ac.at", null, null),
+                Set.of(), null, null, null, null, String.valueOf(++usn));
+    }
+
+    private String nachname(String samAccountName) {
+        return schuelerRepository.findAll().stream()
+                .filter(schueler -> schueler.getSamAccountName().equals(samAccountName))
+                .findFirst().orElseThrow().getNachname();
+    }
+
+    private Map<String, String> jahrgaenge() {
+        Map<String, String> result = new TreeMap<>();
+        schuelerRepository.findAll().forEach(schueler -> result.put(schueler.getSamAccountName(), schueler.getJahrgang()));
+        return result;
+    }
+
+    @Test
+    void fullSyncOfOneYearKeepsTheOtherYear() {
+        member("4", "anna", "bernd");
+        member("5", "clara");
+
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        schuelerService.refreshSchuelerListFromLDAP("5", false);
+        schuelerService.refreshSchuelerListFromLDAP("4", true);
+
+        assertEquals(Map.of("anna", "4", "bernd", "4", "clara", "5"), jahrgaenge());
+        assertEquals(2, syncStateRepository.count());
+    }
+
+    @Test
+    void secondRunIsIncremental() {
+        member("4", "anna");
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        schuelerService.refreshSchuelerListFromLDAP("5", false);
+
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+
+        Mockito.verify(userService, Mockito.times(1)).streamUsersPaged(Mockito.contains("schueler4"), Mockito.any());
+        Mockito.verify(userService, Mockito.times(1)).streamUsersChangedSincePaged(Mockito.contains("schueler4"), Mockito.anyLong(), Mockito.any());
+        assertEquals(Map.of("anna", "4"), jahrgaenge());
+    }
+
+    @Test
+    void fullSyncRemovesStudentsThatLeftTheYear() {
+        member("4", "anna", "bernd");
+        member("5", "clara");
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        schuelerService.refreshSchuelerListFromLDAP("5", false);
+
+        member("4", "anna");
+        schuelerService.refreshSchuelerListFromLDAP("4", true);
+
+        assertEquals(Map.of("anna", "4", "clara", "5"), jahrgaenge());
+    }
+
+    @Test
+    void fullSyncMovesStudentsBetweenYears() {
+        member("4", "anna");
+        member("5", "clara");
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        schuelerService.refreshSchuelerListFromLDAP("5", false);
+
+        // Gruppenwechsel ändert uSNChanged des Benutzers nicht, ein inkrementeller Lauf sieht ihn daher nicht
+        directory.put("5", List.of());
+        directory.put("4", List.of(directory.get("4").get(0), new UserContact(
+                new UserIdentity("clara", "clara", "clara", "clara", "Vorname", "CLARA", null, null, null), Set.of(), null, null, null, null, "1")));
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        assertEquals(Map.of("anna", "4", "clara", "5"), jahrgaenge());
+
+        schuelerService.refreshSchuelerListFromLDAP("5", true);
+        schuelerService.refreshSchuelerListFromLDAP("4", true);
+        assertEquals(Map.of("anna", "4", "clara", "4"), jahrgaenge());
+    }
+
+    @Test
+    void changeDuringSearchIsSeenByNextRun() {
+        member("4", "anna", "bernd");
+        // Anna wird nach ihrer Seite geändert, Bernd davor: Das Maximum der gelesenen uSNChanged läge hinter Annas Änderung
+        afterFirstPage = () -> {
+            List<UserContact> users = directory.get("4");
+            users.set(0, contact("anna", "NEU"));
+            users.set(1, contact("bernd", "BERND"));
+        };
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        assertEquals("ANNA", nachname("anna"));
+
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        assertEquals("NEU", nachname("anna"));
+    }
+
+    @Test
+    void outdatedFullSyncTriggersReconcile() {
+        member("4", "anna", "bernd");
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+        member("4", "anna");
+
+        LdapSyncState state = syncStateRepository.findById("schueler-4").orElseThrow();
+        state.setLastFullSyncAt(LocalDateTime.now().minusDays(2));
+        syncStateRepository.save(state);
+        schuelerService.refreshSchuelerListFromLDAP("4", false);
+
+        Mockito.verify(userService, Mockito.times(2)).streamUsersPaged(Mockito.contains("schueler4"), Mockito.any());
+        assertEquals(Map.of("anna", "4"), jahrgaenge());
+    }
+}
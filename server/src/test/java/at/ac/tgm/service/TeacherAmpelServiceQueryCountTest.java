@@ -0,0 +1,86 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.dto.AmpelDto;
+import at.ac.tgm.model.*;
+import at.ac.tgm.versioning.EntityVersions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Die Ampel-Übersicht eines Lehrers muss unabhängig von der Anzahl an Klassen und Schülern
+ * mit einer festen Anzahl an Abfragen auskommen (Lehrer, Unterrichte mit Schülern, Ampeln).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({TeacherAmpelService.class, AmpelStatsService.class, AmpelChangeFeed.class, EntityVersions.class})
+class TeacherAmpelServiceQueryCountTest {
+    private static final int SUBJECTS = 3;
+    private static final int EXPECTED_QUERIES = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TeacherAmpelService teacherAmpelService;
+
+    @ParameterizedTest
+    @CsvSource({"1, 5", "4, 10", "12, 30"})
+    void getAllAmpelForTeacherUsesConstantNumberOfQueries(int classes, int studentsPerClass) {
+        Teacher teacher = seed(classes, studentsPerClass);
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<AmpelDto> result = teacherAmpelService.getAllAmpelForTeacher(teacher.getId());
+
+        assertEquals(EXPECTED_QUERIES, statistics.getPrepareStatementCount());
+        assertEquals(classes * SUBJECTS * studentsPerClass, result.size());
+        // Jeder zweite Schüler hat im ersten Gegenstand eine Ampel, alle anderen Einträge sind Platzhalter
+        assertEquals(classes * ((studentsPerClass + 1) / 2), result.stream().filter(dto -> dto.getAmpelId() != null).count());
+    }
+
+    private Teacher seed(int classes, int studentsPerClass) {
+        Teacher teacher = entityManager.persist(Teacher.builder().name("Anna GRUBER").lessons(new HashSet<>()).build());
+        Teacher klassenvorstand = entityManager.persist(Teacher.builder().name("Lukas HUBER").lessons(new HashSet<>()).build());
+        Subject[] subjects = new Subject[SUBJECTS];
+        for (int s = 0; s < SUBJECTS; s++) {
+            subjects[s] = entityManager.persist(Subject.builder().kurzbezeichnung("S" + s).gegenstandsart("Pflichtgegenstände").langbezeichnung("Gegenstand " + s).build());
+        }
+        for (int c = 0; c < classes; c++) {
+            Hitclass hitclass = entityManager.persist(Hitclass.builder().name(c + "AHIT").klassenvorstand(klassenvorstand)
+                    .students(new HashSet<>()).lessons(new HashSet<>()).build());
+            Lesson[] lessons = new Lesson[SUBJECTS];
+            for (int s = 0; s < SUBJECTS; s++) {
+                lessons[s] = entityManager.persist(Lesson.builder().subject(subjects[s]).hitclass(hitclass).teachers(new HashSet<>(Set.of(teacher))).build());
+            }
+            for (int i = 0; i < studentsPerClass; i++) {
+                Student student = entityManager.persist(Student.builder().vorname("Vorname" + i).nachname("Nachname" + i)
+                        .studentKennzahl(c + "-" + i).hitclass(hitclass).build());
+                if (i % 2 == 0) {
+                    Ampel ampel = new Ampel();
+                    ampel.setLesson(lessons[0]);
+                    ampel.setStudent(student);
+                    ampel.setTeacher(teacher);
+                    ampel.setFarbe(AmpelFarbe.GRUEN);
+                    ampel.setBemerkung("Bemerkung " + i);
+                    ampel.setUpdatedAt(LocalDateTime.now());
+                    entityManager.persist(ampel);
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return teacher;
+    }
+}
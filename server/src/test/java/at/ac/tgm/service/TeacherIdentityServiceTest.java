@@ -0,0 +1,124 @@
+package at.ac.tgm.service;
+
+import at.ac.tgm.ad.entry.UserIdentity;
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.model.Teacher;
+import at.ac.tgm.model.TeacherAccount;
+import at.ac.tgm.repository.TeacherAccountRepository;
+import at.ac.tgm.repository.TeacherRepository;
+import at.ac.tgm.versioning.EntityVersions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+
+import static at.ac.tgm.service.ImportServiceTest.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Von Hand gesetzte Zuordnungen überstehen das Löschen aller Daten, automatische werden nach einem Import mit neuen
+ * Lehrern neu abgeglichen. Ohne Testtransaktion, da der Cache erst nach dem Commit angepasst wird.
+ */
+@DataJpaTest
+@Import({TeacherIdentityService.class, DatabaseService.class, ImportService.class, TeacherNameNormalizer.class, AmpelStatsService.class, AmpelChangeFeed.class,
+        EntityVersions.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TeacherIdentityServiceTest {
+
+    @Autowired
+    private TeacherIdentityService teacherIdentityService;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private TeacherAccountRepository teacherAccountRepository;
+
+    @MockitoBean
+    private UserService userService;
+
+    @AfterEach
+    void cleanUp() {
+        databaseService.deleteAllData();
+        teacherAccountRepository.deleteAll();
+        teacherRepository.deleteAll();
+        teacherIdentityService.clearCache();
+    }
+
+    private void ldapName(String sAMAccountName, String name) {
+        Mockito.when(userService.findIdentityBysAMAccountName(sAMAccountName)).thenReturn(Optional.of(
+                new UserIdentity(sAMAccountName, name, name, name, null, null, null, null, null)));
+    }
+
+    private Long teacherId(String name) {
+        return teacherRepository.findByNameIgnoreCase(name).orElseThrow().getId();
+    }
+
+    private void importCsv(String lehrer) throws IOException {
+        importService.importCsv(new StringReader(row("1AHIT", "1001", "MUSTER", "Max", "SEW", lehrer)));
+    }
+
+    @Test
+    void deleteAllDataKeepsManualMappings() throws IOException {
+        importCsv("Mag. Anna GRUBER, Lukas HUBER");
+        ldapName("lhuber", "Lukas HUBER");
+        assertEquals(Optional.of(teacherId("Lukas HUBER")), teacherIdentityService.findTeacherId("lhuber"));
+        teacherIdentityService.assign("agruber", teacherId("Anna GRUBER"));
+        Long gruber = teacherId("Anna GRUBER");
+
+        databaseService.deleteAllData();
+
+        TeacherAccount manual = teacherAccountRepository.findById("agruber").orElseThrow();
+        assertTrue(manual.isManual());
+        assertFalse(teacherAccountRepository.existsById("lhuber"));
+        assertEquals(1, teacherRepository.count());
+
+        // Der neue Import findet den erhaltenen Lehrer über den Namen wieder
+        importCsv("Mag. Anna GRUBER");
+        assertEquals(gruber, teacherId("Anna GRUBER"));
+        assertEquals(Optional.of(gruber), teacherIdentityService.findTeacherId("agruber"));
+    }
+
+    @Test
+    void importOfRenamedTeacherRematchesAutomaticMappings() throws IOException {
+        importCsv("Anna GRUBER, Lukas HUBER");
+        ldapName("agruber", "Anna GRUBER");
+        assertEquals(Optional.of(teacherId("Anna GRUBER")), teacherIdentityService.findTeacherId("agruber"));
+        teacherIdentityService.assign("lhuber", teacherId("Lukas HUBER"));
+
+        ldapName("agruber", "Anna MAIER");
+        importCsv("Anna MAIER, Lukas HUBER");
+
+        assertEquals(Optional.of(teacherId("Anna MAIER")), teacherIdentityService.findTeacherId("agruber"));
+        assertEquals(Optional.of(teacherId("Lukas HUBER")), teacherIdentityService.findTeacherId("lhuber"));
+    }
+
+    @Test
+    void removeTeacherEvictsCachedMapping() throws IOException {
+        importCsv("Anna GRUBER");
+        ldapName("agruber", "Anna GRUBER");
+        Long gruber = teacherId("Anna GRUBER");
+        assertEquals(Optional.of(gruber), teacherIdentityService.findTeacherId("agruber"));
+
+        teacherIdentityService.removeTeacher(gruber);
+
+        Mockito.when(userService.findIdentityBysAMAccountName("agruber")).thenReturn(Optional.empty());
+        assertFalse(teacherAccountRepository.existsById("agruber"));
+        assertEquals(Optional.empty(), teacherIdentityService.findTeacherId("agruber"));
+    }
+}
@@ -0,0 +1,61 @@
+package at.ac.tgm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vergleicht die Titelbereinigung mit {@code golden/teacher-names.golden}. Die erwarteten Werte stammen aus der
+ * ursprünglichen, regex-basierten Implementierung von {@code ImportService.removeTitles}.
+ * Format je Zeile: {@code <Rohwert> => <Ergebnis>}, Tabulatoren sind als {@code \t} geschrieben.
+ */
+class TeacherNameNormalizerGoldenFileTest {
+    private static final String GOLDEN_FILE = "/golden/teacher-names.golden";
+    private static final String SEPARATOR = " =>";
+
+    @Test
+    void removeTitlesMatchesGoldenFile() throws IOException {
+        TeacherNameNormalizer normalizer = new TeacherNameNormalizer();
+        List<String[]> cases = readGoldenFile();
+        assertTrue(cases.size() > 100);
+        for (String[] c : cases) {
+            assertEquals(c[1], normalizer.stripTitles(c[0]), () -> "stripTitles(\"" + c[0] + "\")");
+            assertEquals(c[1], normalizer.removeTitles(c[0]), () -> "removeTitles(\"" + c[0] + "\")");
+        }
+        // Zweiter Durchlauf über den Zwischenspeicher
+        for (String[] c : cases) {
+            assertEquals(c[1], normalizer.removeTitles(c[0]), () -> "removeTitles(\"" + c[0] + "\") cached");
+        }
+    }
+
+    private static List<String[]> readGoldenFile() throws IOException {
+        List<String[]> cases = new ArrayList<>();
+        try (InputStream in = Objects.requireNonNull(TeacherNameNormalizerGoldenFileTest.class.getResourceAsStream(GOLDEN_FILE));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(SEPARATOR);
+                String expected = line.substring(separator + SEPARATOR.length());
+                if (expected.startsWith(" ")) {
+                    expected = expected.substring(1);
+                }
+                cases.add(new String[]{unescape(line.substring(0, separator)), unescape(expected)});
+            }
+        }
+        return cases;
+    }
+
+    private static String unescape(String value) {
+        return value.replace("\\t", "\t");
+    }
+}
@@ -0,0 +1,173 @@
+package at.ac.tgm.versioning;
+
+import at.ac.tgm.ad.service.UserService;
+import at.ac.tgm.config.ConditionalGetConfig;
+import at.ac.tgm.model.Ampel;
+import at.ac.tgm.model.Hitclass;
+import at.ac.tgm.model.Subject;
+import at.ac.tgm.repository.HitclassRepository;
+import at.ac.tgm.repository.TeacherRepository;
+import at.ac.tgm.service.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ein {@link ConditionalGet}-Endpunkt antwortet mit 304, solange sich keine seiner Entitäten geändert hat. Gezählt wird erst
+ * nach dem Commit, über Hibernate ({@link EntityVersionListener}) ebenso wie bei Massen-Deletes, die {@link EntityVersions#markChanged}
+ * selbst aufrufen. Ohne Testtransaktion, da der Listener nur Commits sieht.
+ */
+@DataJpaTest
+@Import({ConditionalGetConfig.class, EntityVersions.class, DatabaseService.class, ImportService.class, TeacherIdentityService.class,
+        TeacherNameNormalizer.class, AmpelStatsService.class, AmpelChangeFeed.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConditionalGetInterceptorTest {
+
+    @Autowired
+    private EntityVersions entityVersions;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private HitclassRepository hitclassRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @MockitoBean
+    private UserService userService;
+
+    private MockMvc mockMvc;
+
+    @RestController
+    static class VersionedController {
+
+        @ConditionalGet(Hitclass.class)
+        @GetMapping("/hitclasses")
+        String hitclasses() {
+            return "hitclasses";
+        }
+
+        @ConditionalGet(Ampel.class)
+        @GetMapping("/ampel")
+        String ampel() {
+            return "ampel";
+        }
+
+        @ConditionalGet(Subject.class)
+        @GetMapping("/subjects")
+        String subjects() {
+            return "subjects";
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockMvc = MockMvcBuilders.standaloneSetup(new VersionedController())
+                .addInterceptors(new ConditionalGetInterceptor(entityVersions))
+                .build();
+        importCsv(false, "1AHIT");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        databaseService.deleteAllData();
+        teacherRepository.deleteAll();
+    }
+
+    private void importCsv(boolean delta, String... klassen) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (String klasse : klassen) {
+            csv.append(String.join(";", "", klasse, "", "", klasse + "-1", "MUSTER", "Max", "", "", "", "",
+                    "Pflichtgegenstände", "", "SEW", "Softwareentwicklung", "Anna GRUBER")).append('\n');
+        }
+        if (delta) {
+            importService.importDelta(new StringReader(csv.toString()), false);
+        } else {
+            importService.importCsv(new StringReader(csv.toString()));
+        }
+    }
+
+    private String etag(String path) throws Exception {
+        return mockMvc.perform(get(path)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private void assertNotModified(String path, String etag) throws Exception {
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+    }
+
+    private void assertModified(String path, String etag) throws Exception {
+        String current = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, current);
+    }
+
+    @Test
+    void notModifiedWithoutChanges() throws Exception {
+        String etag = etag("/hitclasses");
+        assertNotModified("/hitclasses", etag);
+        // Eine Änderung an anderen Entitäten betrifft den Endpunkt nicht
+        entityVersions.markChanged(Ampel.class);
+        assertNotModified("/hitclasses", etag);
+    }
+
+    @Test
+    void committedChangeReturnsNewVersion() throws Exception {
+        String etag = etag("/hitclasses");
+        Hitclass hitclass = hitclassRepository.findByName("1AHIT").orElseThrow();
+        hitclass.setName("1BHIT");
+        hitclassRepository.save(hitclass);
+        assertModified("/hitclasses", etag);
+    }
+
+    @Test
+    void rolledBackDryRunKeepsVersion() throws Exception {
+        String etag = etag("/hitclasses");
+        importService.importDelta(new StringReader(""), true);
+        assertNotModified("/hitclasses", etag);
+    }
+
+    @Test
+    void deltaImportDeletingHitclassesReturnsNewVersion() throws Exception {
+        importCsv(false, "2AHIT");
+        String etag = etag("/hitclasses");
+        importCsv(true, "1AHIT");
+        assertModified("/hitclasses", etag);
+    }
+
+    @Test
+    void bulkDeleteOfAmpelnReturnsNewVersion() throws Exception {
+        String etag = etag("/ampel");
+        databaseService.deleteAllAmpel();
+        assertModified("/ampel", etag);
+    }
+
+    @Test
+    void deleteAllDataReturnsNewVersion() throws Exception {
+        String etag = etag("/subjects");
+        databaseService.deleteAllData();
+        assertModified("/subjects", etag);
+    }
+}